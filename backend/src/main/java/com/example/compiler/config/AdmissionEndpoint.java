@@ -0,0 +1,31 @@
+package com.example.compiler.config;
+
+import com.example.compiler.service.AdmissionLimiter;
+import com.example.compiler.service.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes admission control state at /actuator/admission.
+ */
+@Component
+@Endpoint(id = "admission")
+public class AdmissionEndpoint {
+
+    @Autowired
+    private AdmissionLimiter admission;
+
+    @Autowired
+    private JobService jobService;
+
+    @ReadOperation
+    public Map<String, Object> admission() {
+        Map<String, Object> state = admission.describe();
+        state.put("queueDepth", jobService.getQueueDepth());
+        return state;
+    }
+}
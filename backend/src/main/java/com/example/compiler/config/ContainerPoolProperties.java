@@ -0,0 +1,64 @@
+package com.example.compiler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Warm container pool settings, bound from {@code app.execution.pool}.
+ * Pool sizes are keyed by the language names supported by ExecutionService.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.execution.pool")
+public class ContainerPoolProperties {
+
+    private boolean enabled = false;
+
+    // Recycle a container after this many executions
+    private int maxUses = 50;
+
+    // Recycle a container that has been idle for this long
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    // Number of warm containers per language, e.g. python: 2
+    private Map<String, Integer> sizes = new HashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxUses() {
+        return maxUses;
+    }
+
+    public void setMaxUses(int maxUses) {
+        this.maxUses = maxUses;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Map<String, Integer> getSizes() {
+        return sizes;
+    }
+
+    public void setSizes(Map<String, Integer> sizes) {
+        this.sizes = sizes;
+    }
+
+    public int getSize(String language) {
+        return sizes.getOrDefault(language, 0);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.compiler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Cluster-wide rate limits kept in MongoDB, bound from {@code app.rate-limit.distributed}.
+ * Each node leases a share of a client's remaining quota and spends it locally, so most
+ * checks never reach the database.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit.distributed")
+public class DistributedRateLimitProperties {
+
+    private boolean enabled = false;
+
+    private String collection = "rate_limit_windows";
+
+    // Share of a client's remaining quota one node leases at a time. The cluster never admits
+    // more than a limit; hits leased to other nodes but not yet spent can refuse a client early.
+    private double leaseFraction = 0.1;
+
+    // Smallest lease, at most a quarter of the limit, so a nearly used-up quota does not cost
+    // a round trip per hit
+    private int minLease = 5;
+
+    private int maxLease = 50;
+
+    // After a database error, count on this node only for this long before trying again
+    private Duration fallbackInterval = Duration.ofSeconds(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public double getLeaseFraction() {
+        return leaseFraction;
+    }
+
+    public void setLeaseFraction(double leaseFraction) {
+        this.leaseFraction = leaseFraction;
+    }
+
+    public int getMinLease() {
+        return minLease;
+    }
+
+    public void setMinLease(int minLease) {
+        this.minLease = minLease;
+    }
+
+    public int getMaxLease() {
+        return maxLease;
+    }
+
+    public void setMaxLease(int maxLease) {
+        this.maxLease = maxLease;
+    }
+
+    public Duration getFallbackInterval() {
+        return fallbackInterval;
+    }
+
+    public void setFallbackInterval(Duration fallbackInterval) {
+        this.fallbackInterval = fallbackInterval;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.compiler.config;
+
+import com.example.compiler.model.UserTier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sandbox resource limits, bound from {@code app.execution}. The top-level values are
+ * the defaults; {@code profiles.languages} and {@code profiles.tiers} override any of
+ * them per language and per user tier. Plain numbers for timeouts are seconds.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.execution")
+public class ExecutionProperties {
+
+    // Run step time limit; also the compile limit unless compile-timeout is set
+    @DurationUnit(ChronoUnit.SECONDS)
+    private Duration timeout = Duration.ofSeconds(10);
+
+    @DurationUnit(ChronoUnit.SECONDS)
+    private Duration compileTimeout;
+
+    // Docker-style size, e.g. 128m
+    private String memoryLimit = "128m";
+
+    private double cpuLimit = 0.5;
+
+    private int pidsLimit = 50;
+
+    // Ceiling for per-user output caps, bytes per stream
+    private int maxOutputSizeLimit = 1048576;
+
+    private Profiles profiles = new Profiles();
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Duration getCompileTimeout() {
+        return compileTimeout;
+    }
+
+    public void setCompileTimeout(Duration compileTimeout) {
+        this.compileTimeout = compileTimeout;
+    }
+
+    public String getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public void setMemoryLimit(String memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    public double getCpuLimit() {
+        return cpuLimit;
+    }
+
+    public void setCpuLimit(double cpuLimit) {
+        this.cpuLimit = cpuLimit;
+    }
+
+    public int getPidsLimit() {
+        return pidsLimit;
+    }
+
+    public void setPidsLimit(int pidsLimit) {
+        this.pidsLimit = pidsLimit;
+    }
+
+    public int getMaxOutputSizeLimit() {
+        return maxOutputSizeLimit;
+    }
+
+    public void setMaxOutputSizeLimit(int maxOutputSizeLimit) {
+        this.maxOutputSizeLimit = maxOutputSizeLimit;
+    }
+
+    public Profiles getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(Profiles profiles) {
+        this.profiles = profiles;
+    }
+
+    /**
+     * Overrides of the defaults. For a job the language's limits apply first, then its
+     * tier's, then the tier entry nested under the language.
+     */
+    public static class Profiles {
+
+        // Optional YAML file with the same layout as app.execution, checked for changes
+        private String file = "";
+
+        private Duration reloadInterval = Duration.ofSeconds(10);
+
+        private Map<String, LanguageLimits> languages = new HashMap<>();
+
+        private Map<UserTier, Limits> tiers = new EnumMap<>(UserTier.class);
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public Duration getReloadInterval() {
+            return reloadInterval;
+        }
+
+        public void setReloadInterval(Duration reloadInterval) {
+            this.reloadInterval = reloadInterval;
+        }
+
+        public Map<String, LanguageLimits> getLanguages() {
+            return languages;
+        }
+
+        public void setLanguages(Map<String, LanguageLimits> languages) {
+            this.languages = languages;
+        }
+
+        public Map<UserTier, Limits> getTiers() {
+            return tiers;
+        }
+
+        public void setTiers(Map<UserTier, Limits> tiers) {
+            this.tiers = tiers;
+        }
+    }
+
+    /**
+     * A set of overrides; unset values keep whatever applied before.
+     */
+    public static class Limits {
+
+        @DurationUnit(ChronoUnit.SECONDS)
+        private Duration compileTimeout;
+
+        @DurationUnit(ChronoUnit.SECONDS)
+        private Duration runTimeout;
+
+        private String memoryLimit;
+
+        private Double cpuLimit;
+
+        private Integer pidsLimit;
+
+        private Integer outputLimit;
+
+        public Duration getCompileTimeout() {
+            return compileTimeout;
+        }
+
+        public void setCompileTimeout(Duration compileTimeout) {
+            this.compileTimeout = compileTimeout;
+        }
+
+        public Duration getRunTimeout() {
+            return runTimeout;
+        }
+
+        public void setRunTimeout(Duration runTimeout) {
+            this.runTimeout = runTimeout;
+        }
+
+        public String getMemoryLimit() {
+            return memoryLimit;
+        }
+
+        public void setMemoryLimit(String memoryLimit) {
+            this.memoryLimit = memoryLimit;
+        }
+
+        public Double getCpuLimit() {
+            return cpuLimit;
+        }
+
+        public void setCpuLimit(Double cpuLimit) {
+            this.cpuLimit = cpuLimit;
+        }
+
+        public Integer getPidsLimit() {
+            return pidsLimit;
+        }
+
+        public void setPidsLimit(Integer pidsLimit) {
+            this.pidsLimit = pidsLimit;
+        }
+
+        public Integer getOutputLimit() {
+            return outputLimit;
+        }
+
+        public void setOutputLimit(Integer outputLimit) {
+            this.outputLimit = outputLimit;
+        }
+    }
+
+    /**
+     * Overrides for one language, optionally refined per tier.
+     */
+    public static class LanguageLimits extends Limits {
+
+        private Map<UserTier, Limits> tiers = new EnumMap<>(UserTier.class);
+
+        public Map<UserTier, Limits> getTiers() {
+            return tiers;
+        }
+
+        public void setTiers(Map<UserTier, Limits> tiers) {
+            this.tiers = tiers;
+        }
+    }
+}
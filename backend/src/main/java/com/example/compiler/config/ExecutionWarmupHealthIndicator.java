@@ -0,0 +1,25 @@
+package com.example.compiler.config;
+
+import com.example.compiler.service.LanguageWarmup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports "executionWarmup" out of service until the required languages passed their
+ * warm-up canaries. Part of the readiness group, so no traffic arrives before then.
+ */
+@Component
+public class ExecutionWarmupHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private LanguageWarmup warmup;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warmup.isReady() ? Health.up() : Health.outOfService();
+        // Details are only shown to authenticated callers (show-details: when-authorized)
+        return builder.withDetail("languages", warmup.describe(true)).build();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.compiler.config;
+
+import com.example.compiler.service.WorkerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the coordinator's registered workers, their slots and load at /actuator/fleet.
+ */
+@Component
+@Endpoint(id = "fleet")
+public class FleetEndpoint {
+
+    @Autowired
+    private FleetProperties properties;
+
+    @Autowired
+    private WorkerRegistry registry;
+
+    @ReadOperation
+    public Map<String, Object> fleet() {
+        return Map.of("role", properties.getRole(), "workers", registry.describe());
+    }
+}
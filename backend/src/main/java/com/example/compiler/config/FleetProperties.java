@@ -0,0 +1,145 @@
+package com.example.compiler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+
+/**
+ * Splitting execution across machines, bound from {@code app.execution.fleet}. A
+ * coordinator serves the API and routes executions to worker nodes, which register
+ * with it and report their free slots; standalone runs everything in one process.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.execution.fleet")
+public class FleetProperties {
+
+    public enum Role {
+        STANDALONE, COORDINATOR, WORKER
+    }
+
+    private Role role = Role.STANDALONE;
+
+    // Shared secret between coordinator and workers, sent as X-Fleet-Token
+    private String token = "";
+
+    // Workers: where to register, e.g. http://api-1:8080
+    private String coordinatorUrl = "";
+
+    // Workers: how the coordinator reaches this node; defaults to http://<hostname>:<server.port>
+    private String advertisedUrl = "";
+
+    // Workers: executions run at once; 0 means one per CPU core
+    private int slots = 0;
+
+    private Duration heartbeatInterval = Duration.ofSeconds(2);
+
+    // Coordinator: a worker not heard from for this long is dropped
+    private Duration workerExpiry = Duration.ofSeconds(10);
+
+    // Coordinator: workers tried for one execution before giving up
+    private int maxAttempts = 3;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    // Coordinator: longest wait for a worker's answer, covering compile, run and any batch
+    private Duration requestTimeout = Duration.ofMinutes(5);
+
+    public Role getRole() {
+        return role;
+    }
+
+    public void setRole(Role role) {
+        this.role = role;
+    }
+
+    public boolean isCoordinator() {
+        return role == Role.COORDINATOR;
+    }
+
+    public boolean isWorker() {
+        return role == Role.WORKER;
+    }
+
+    /**
+     * Whether a request presented the shared token; always false while none is configured.
+     */
+    public boolean isValidToken(String presented) {
+        return !token.isEmpty() && presented != null
+            && MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public String getCoordinatorUrl() {
+        return coordinatorUrl;
+    }
+
+    public void setCoordinatorUrl(String coordinatorUrl) {
+        this.coordinatorUrl = coordinatorUrl;
+    }
+
+    public String getAdvertisedUrl() {
+        return advertisedUrl;
+    }
+
+    public void setAdvertisedUrl(String advertisedUrl) {
+        this.advertisedUrl = advertisedUrl;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+
+    public Duration getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(Duration heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public Duration getWorkerExpiry() {
+        return workerExpiry;
+    }
+
+    public void setWorkerExpiry(Duration workerExpiry) {
+        this.workerExpiry = workerExpiry;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.compiler.config;
+
+import com.example.compiler.model.UserTier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tier scheduling settings, bound from {@code app.execution.jobs.scheduler}.
+ * MASTER jobs always go first; the other tiers share the workers in proportion
+ * to their weights.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.execution.jobs.scheduler")
+public class JobSchedulerProperties {
+
+    // Relative share of workers per tier under contention
+    private Map<UserTier, Integer> weights = new EnumMap<>(Map.of(
+        UserTier.ADVANCED, 4,
+        UserTier.BASIC, 2,
+        UserTier.ANONYMOUS, 1
+    ));
+
+    // Maximum jobs of a tier running at once; tiers without an entry are unlimited
+    private Map<UserTier, Integer> maxConcurrent = new EnumMap<>(UserTier.class);
+
+    // A job queued longer than this is run next regardless of tier
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    public Map<UserTier, Integer> getWeights() {
+        return weights;
+    }
+
+    public void setWeights(Map<UserTier, Integer> weights) {
+        this.weights = weights;
+    }
+
+    public Map<UserTier, Integer> getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(Map<UserTier, Integer> maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getWeight(UserTier tier) {
+        return Math.max(1, weights.getOrDefault(tier, 1));
+    }
+
+    public int getMaxConcurrent(UserTier tier) {
+        return maxConcurrent.getOrDefault(tier, 0);
+    }
+}
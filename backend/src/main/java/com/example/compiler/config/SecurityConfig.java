@@ -32,10 +32,15 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/signup").permitAll()
                 .requestMatchers("/api/auth/debug-token").permitAll()
                 .requestMatchers("/api/public/**").permitAll()
-                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                // Load balancer probes: readiness and per-language warm-up
+                .requestMatchers("/actuator/warmup", "/actuator/warmup/**").permitAll()
                 .requestMatchers("/h2-console/**").permitAll()
+                // Fleet traffic between nodes; the controllers check the shared token
+                .requestMatchers("/internal/**").permitAll()
                 // Core functionality - allow anonymous access
-                .requestMatchers("/api/execute").permitAll()
+                .requestMatchers("/api/execute", "/api/execute/stream", "/api/execute/batch").permitAll()
+                .requestMatchers("/api/jobs/**", "/api/jobs").permitAll()
                 .requestMatchers("/api/languages").permitAll()
                 // Protected auth endpoints - me, refresh-api-key, validate require authentication
                 .requestMatchers("/api/auth/**").authenticated()
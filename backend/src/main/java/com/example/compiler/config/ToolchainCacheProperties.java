@@ -0,0 +1,49 @@
+package com.example.compiler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared toolchain caches mounted read-only into every container of a language,
+ * bound from {@code app.execution.toolchain-caches}. Docker modes only.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.execution.toolchain-caches")
+public class ToolchainCacheProperties {
+
+    // Per language, "source:target" where source is a named volume or an absolute host path
+    private Map<String, List<String>> mounts = new HashMap<>();
+
+    public Map<String, List<String>> getMounts() {
+        return mounts;
+    }
+
+    public void setMounts(Map<String, List<String>> mounts) {
+        this.mounts = mounts;
+    }
+
+    /**
+     * The language's mounts as Docker bind specs ending in {@code :ro}.
+     *
+     * @throws IllegalArgumentException if an entry is not {@code source:target} with an absolute target
+     */
+    public List<String> getReadOnlyBinds(String language) {
+        List<String> binds = new ArrayList<>();
+        for (String mount : mounts.getOrDefault(language, List.of())) {
+            String[] parts = mount.trim().split(":");
+            // Caches are shared by every user, so they can never be mounted writable
+            boolean readOnly = parts.length == 2 || (parts.length == 3 && parts[2].equals("ro"));
+            if (!readOnly || parts[0].isEmpty() || !parts[1].startsWith("/")) {
+                throw new IllegalArgumentException("Invalid toolchain cache mount for " + language + ": " + mount
+                    + " (expected source:/absolute/target)");
+            }
+            binds.add(parts[0] + ":" + parts[1] + ":ro");
+        }
+        return binds;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.compiler.config;
+
+import com.example.compiler.service.LanguageWarmup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes warm-up state at /actuator/warmup. /actuator/warmup/{language} answers 200
+ * when the language is warm and 503 otherwise, so load balancers can route per language.
+ * Probes are anonymous and only get status and latency; canary errors can name hosts,
+ * paths and toolchain versions, so only authenticated callers see them.
+ */
+@Component
+@Endpoint(id = "warmup")
+public class WarmupEndpoint {
+
+    @Autowired
+    private LanguageWarmup warmup;
+
+    @ReadOperation
+    public Map<String, Object> warmup(SecurityContext securityContext) {
+        return Map.of("ready", warmup.isReady(), "languages", warmup.describe(isAuthenticated(securityContext)));
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<Map<String, Object>> language(@Selector String language,
+                                                             SecurityContext securityContext) {
+        if (!warmup.isSupported(language)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        int status = warmup.isReady(language) ? WebEndpointResponse.STATUS_OK
+            : WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE;
+        return new WebEndpointResponse<>(warmup.describe(language, isAuthenticated(securityContext)), status);
+    }
+
+    private static boolean isAuthenticated(SecurityContext securityContext) {
+        return securityContext.getPrincipal() != null;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.compiler.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup warm-up of the execution toolchains, bound from {@code app.execution.warmup}.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.execution.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    // Languages that must pass their canary before the service reports ready; empty means all
+    private List<String> requiredLanguages = new ArrayList<>();
+
+    // Canaries run at the same time
+    private int parallelism = 4;
+
+    // Wait before running a failed language's canary again
+    private Duration retryInterval = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public List<String> getRequiredLanguages() {
+        return requiredLanguages;
+    }
+
+    public void setRequiredLanguages(List<String> requiredLanguages) {
+        this.requiredLanguages = requiredLanguages;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public Duration getRetryInterval() {
+        return retryInterval;
+    }
+
+    public void setRetryInterval(Duration retryInterval) {
+        this.retryInterval = retryInterval;
+    }
+}
@@ -3,7 +3,8 @@ package com.example.compiler.controller;
 import com.example.compiler.model.AIInsightRequest;
 import com.example.compiler.model.AIInsightResponse;
 import com.example.compiler.service.AIInsightService;
-import com.example.compiler.service.RateLimitingService;
+import com.example.compiler.service.RateLimitEngine;
+import com.example.compiler.service.RateLimitPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,7 +20,7 @@ public class AIInsightController {
     private AIInsightService aiInsightService;
     
     @Autowired
-    private RateLimitingService rateLimitingService;    @PostMapping("/ai-insights")
+    private RateLimitEngine rateLimitEngine;    @PostMapping("/ai-insights")
     public ResponseEntity<?> getAIInsights(@RequestBody AIInsightRequest request, HttpServletRequest httpRequest) {
         try {
             System.out.println("🔍 AI Insights request received:");
@@ -33,12 +34,13 @@ public class AIInsightController {
             
             // Apply rate limiting for AI insights (with a more restrictive bucket for AI calls)
             String clientIp = getClientIp(httpRequest);
-            String aiRateLimitKey = "ai-insights-" + clientIp;
+            // Same key as the request limit, so both policies share the client's entry
+            String aiRateLimitKey = "ip:" + clientIp;
             
             System.out.println("  - Client IP: " + clientIp);
             System.out.println("  - Rate limit key: " + aiRateLimitKey);
             
-            if (!rateLimitingService.tryConsume(aiRateLimitKey)) {
+            if (!rateLimitEngine.check(aiRateLimitKey, null, RateLimitPolicy.AI_INSIGHTS).isAllowed()) {
                 System.out.println("❌ Rate limit exceeded for: " + aiRateLimitKey);
                 return ResponseEntity.status(429).body("AI Insights rate limit exceeded. Please wait before trying again.");
             }
@@ -1,23 +1,40 @@
 package com.example.compiler.controller;
 
+import com.example.compiler.model.BatchExecuteRequest;
+import com.example.compiler.model.BatchExecuteResponse;
 import com.example.compiler.model.ExecuteRequest;
 import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.JobResponse;
+import com.example.compiler.model.StdinRequest;
 import com.example.compiler.model.User;
 import com.example.compiler.model.UserTier;
 import com.example.compiler.security.UserPrincipal;
+import com.example.compiler.service.AdmissionRejectedException;
+import com.example.compiler.service.ExecutionJob;
 import com.example.compiler.service.ExecutionService;
-import com.example.compiler.service.RateLimitService;
+import com.example.compiler.service.JobService;
+import com.example.compiler.service.RateLimitEngine;
+import com.example.compiler.service.RateLimitPolicy;
 import com.example.compiler.service.UserService;
+import com.example.compiler.util.StdinChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
@@ -30,57 +47,321 @@ public class ExecuteController {
     private ExecutionService executionService;
     
     @Autowired
-    private RateLimitService rateLimitService;
+    private RateLimitEngine rateLimitEngine;
     
     @Autowired
     private UserService userService;
     
-    @Value("${spring.profiles.active:}")
-    private String activeProfile;    @PostMapping("/execute")
+    @Autowired
+    private JobService jobService;
+    
+    private static final int MAX_STDIN_CHUNK = 8192;
+    private static final long STDIN_OFFER_TIMEOUT_MILLIS = 1000;
+    
+    @Value("${app.execution.stream.timeout:5m}")
+    private Duration streamTimeout;
+    
+    @Value("${app.execution.batch.max-cases:100}")
+    private int maxBatchCases;
+    
+    // Stdin chunks held for a program that has not read them yet
+    @Value("${app.execution.stream.stdin-buffer-chunks:16}")
+    private int stdinBufferChunks;
+    
+    @PostMapping("/execute")
     public ResponseEntity<ExecuteResponse> executeCode(@RequestBody ExecuteRequest request, 
                                                       Authentication authentication,
                                                       HttpServletRequest httpRequest) {
-        String userId = null;
-        String username = "anonymous";
-        UserTier userTier = UserTier.BASIC; // Default tier for anonymous users
-        String rateLimitKey; // Key used for rate limiting
+        Caller caller = resolveCaller(authentication, httpRequest);
+
+        // Check rate limiting (applies to both authenticated and anonymous users)
+        ResponseEntity<ExecuteResponse> rejection = checkRateLimit(caller);
+        if (rejection == null) {
+            rejection = validate(request);
+        }
+        if (rejection != null) {
+            return rejection;
+        }
+
+        logger.info("Received execution request for language: {} from user: {} (tier: {}, key: {})", 
+                   request.getLanguage(), caller.username, caller.tier, caller.rateLimitKey);
+
+        try {
+            ExecuteResponse response = jobService.execute(newJob(request, caller));
+              // Add tier information to response
+            if (caller.userId != null) {
+                response.setMetadata("tier", caller.tier.name());
+                response.setMetadata("tierDescription", caller.tier.getDescription());
+                response.setMetadata("remainingRequests", caller.remainingRequests);
+                response.setMetadata("authenticated", true);
+            } else {
+                // For anonymous users, also show rate limit info
+                response.setMetadata("tier", "ANONYMOUS");
+                response.setMetadata("tierDescription", "Anonymous access - Sign up for higher limits");
+                response.setMetadata("remainingRequests", caller.remainingRequests);
+                response.setMetadata("authenticated", false);
+            }
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (RejectedExecutionException e) {
+            return serviceUnavailable(e).body(ExecuteResponse.error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Execution interrupted", e);
+            return ResponseEntity.internalServerError()
+                .body(ExecuteResponse.error("Execution interrupted"));
+        } catch (Exception e) {
+            logger.error("Error executing code", e);
+            return ResponseEntity.internalServerError()
+                .body(ExecuteResponse.error("Internal server error"));
+        }
+    }
+    
+    /**
+     * Compiles once and runs the code against every test case in one sandbox.
+     */
+    @PostMapping("/execute/batch")
+    public ResponseEntity<BatchExecuteResponse> executeBatch(@RequestBody BatchExecuteRequest request,
+                                                             Authentication authentication,
+                                                             HttpServletRequest httpRequest) {
+        Caller caller = resolveCaller(authentication, httpRequest);
+
+        ResponseEntity<ExecuteResponse> rejection = validate(new ExecuteRequest(request.getCode(), request.getLanguage()));
+        if (rejection == null && (request.getTestCases() == null || request.getTestCases().isEmpty())) {
+            rejection = ResponseEntity.badRequest().body(ExecuteResponse.error("At least one test case is required"));
+        }
+        if (rejection == null && request.getTestCases().size() > maxBatchCases) {
+            rejection = ResponseEntity.badRequest()
+                .body(ExecuteResponse.error("A batch may contain at most " + maxBatchCases + " test cases"));
+        }
+        // Each test case is an execution; checked once the batch is known to be valid, so a bad one costs nothing
+        if (rejection == null) {
+            rejection = checkRateLimit(caller, request.getTestCases().size());
+        }
+        if (rejection != null) {
+            return ResponseEntity.status(rejection.getStatusCode())
+                .body(BatchExecuteResponse.error(rejection.getBody().getError()));
+        }
+
+        logger.info("Received batch of {} test cases for language: {} from user: {}",
+                   request.getTestCases().size(), request.getLanguage(), caller.username);
+
+        ExecutionJob job = new ExecutionJob(caller.rateLimitKey, request.getCode(), request.getLanguage(), null,
+            caller.userId, caller.tier, caller.maxOutputSize);
+        job.batch(request.getTestCases());
+        try {
+            ExecuteResponse summary = jobService.execute(job);
+            BatchExecuteResponse response = job.getBatchResult();
+            if (response == null) {
+                // Cancelled or failed before the batch produced results
+                return ResponseEntity.internalServerError().body(BatchExecuteResponse.error(summary.getError()));
+            }
+            response.setMetadata("tier", caller.tier.name());
+            response.setMetadata("remainingRequests", caller.remainingRequests);
+            return ResponseEntity.ok(response);
+        } catch (RejectedExecutionException e) {
+            return serviceUnavailable(e).body(BatchExecuteResponse.error(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError()
+                .body(BatchExecuteResponse.error("Execution interrupted"));
+        }
+    }
+    
+    /**
+     * Queue an execution and return its job id immediately. Poll GET /api/jobs/{id} for the result.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody ExecuteRequest request,
+                                       Authentication authentication,
+                                       HttpServletRequest httpRequest) {
+        Caller caller = resolveCaller(authentication, httpRequest);
+
+        ResponseEntity<ExecuteResponse> rejection = checkRateLimit(caller);
+        if (rejection == null) {
+            rejection = validate(request);
+        }
+        if (rejection != null) {
+            return rejection;
+        }
+
+        try {
+            ExecutionJob job = jobService.submit(newJob(request, caller));
+            logger.info("Queued execution job {} for language: {} from user: {}", job.getId(), request.getLanguage(), caller.username);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toResponse());
+        } catch (RejectedExecutionException e) {
+            return serviceUnavailable(e).body(ExecuteResponse.error(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Runs code and streams its output as Server-Sent Events. Further stdin can be sent
+     * to POST /api/jobs/{id}/input while the program runs.
+     */
+    @PostMapping("/execute/stream")
+    public ResponseEntity<SseEmitter> streamExecution(@RequestBody ExecuteRequest request,
+                                             Authentication authentication,
+                                             HttpServletRequest httpRequest) {
+        Caller caller = resolveCaller(authentication, httpRequest);
+
+        ResponseEntity<ExecuteResponse> rejection = checkRateLimit(caller);
+        if (rejection == null) {
+            rejection = validate(request);
+        }
+        if (rejection != null) {
+            return errorStream(rejection);
+        }
+
+        SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+        ExecutionEventStream events = new ExecutionEventStream(emitter);
+        StdinChannel stdin = new StdinChannel(stdinBufferChunks);
+        if (request.getInput() != null && !request.getInput().isEmpty()) {
+            stdin.offer(request.getInput().getBytes(StandardCharsets.UTF_8));
+        }
+
+        ExecutionJob job = newJob(request, caller);
+        job.stream(stdin, events);
+        try {
+            events.sendJob(job.toResponse());
+            jobService.submit(job);
+        } catch (RejectedExecutionException e) {
+            return errorStream(serviceUnavailable(e).body(ExecuteResponse.error(e.getMessage())));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+        logger.info("Streaming execution job {} for language: {} from user: {}", job.getId(), request.getLanguage(), caller.username);
+
+        // A client that disconnects cancels its job
+        emitter.onCompletion(() -> jobService.cancel(job));
+        emitter.onTimeout(() -> jobService.cancel(job));
+        emitter.onError(error -> jobService.cancel(job));
+        job.getCompletion().thenAccept(events::finish);
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+    
+    /**
+     * Sends a chunk of stdin to a running streaming job.
+     */
+    @PostMapping("/jobs/{id}/input")
+    public ResponseEntity<?> sendInput(@PathVariable String id,
+                                       @RequestBody StdinRequest request,
+                                       Authentication authentication,
+                                       HttpServletRequest httpRequest) {
+        ExecutionJob job = findOwnedJob(id, resolveCaller(authentication, httpRequest));
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!(job.getStdin() instanceof StdinChannel) || job.getStatus().isFinished()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ExecuteResponse.error("Job is not accepting input"));
+        }
+        StdinChannel stdin = (StdinChannel) job.getStdin();
+        String data = request.getData() != null ? request.getData() : "";
+        if (data.length() > MAX_STDIN_CHUNK) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(ExecuteResponse.error("Input chunk exceeds " + MAX_STDIN_CHUNK + " characters"));
+        }
+
+        try {
+            if (!stdin.offer(data.getBytes(StandardCharsets.UTF_8), STDIN_OFFER_TIMEOUT_MILLIS)) {
+                // The program is not reading; make the client slow down instead of buffering
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "1")
+                    .body(ExecuteResponse.error("Program is not reading input"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().build();
+        }
+        if (request.isEof()) {
+            stdin.close();
+        }
+        return ResponseEntity.accepted().build();
+    }
+    
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<JobResponse> getJob(@PathVariable String id,
+                                              Authentication authentication,
+                                              HttpServletRequest httpRequest) {
+        ExecutionJob job = findOwnedJob(id, resolveCaller(authentication, httpRequest));
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.toResponse());
+    }
+    
+    /**
+     * Cancel a queued or running job; a running program and its container are killed.
+     */
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<JobResponse> cancelJob(@PathVariable String id,
+                                                 Authentication authentication,
+                                                 HttpServletRequest httpRequest) {
+        ExecutionJob job = findOwnedJob(id, resolveCaller(authentication, httpRequest));
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!jobService.cancel(job)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(job.toResponse());
+        }
+        return ResponseEntity.ok(job.toResponse());
+    }
+    
+    private Caller resolveCaller(Authentication authentication, HttpServletRequest httpRequest) {
+        Caller caller = new Caller();
           // Get user info if authenticated
         if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal) {
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            userId = userPrincipal.getUserId();
-            username = userPrincipal.getUsername();
-            rateLimitKey = userId; // Use user ID for authenticated users
+            caller.userId = userPrincipal.getUserId();
+            caller.username = userPrincipal.getUsername();
+            caller.rateLimitKey = "user:" + caller.userId; // Use user ID for authenticated users
             
             // Get user's tier
-            User user = userService.getUserByUsername(username);
+            User user = userService.getUserByUsername(caller.username);
             if (user != null) {
                 try {
-                    userTier = UserTier.valueOf(user.getTier());
+                    caller.tier = UserTier.valueOf(user.getTier());
                 } catch (IllegalArgumentException e) {
-                    userTier = UserTier.BASIC;
+                    caller.tier = UserTier.BASIC;
+                }
+                if (user.getSettings() != null) {
+                    caller.maxOutputSize = user.getSettings().getMaxOutputSize();
                 }
             }
         } else {
             // For anonymous users, use IP address for rate limiting
-            rateLimitKey = "anon_" + getClientIpAddress(httpRequest);
+            caller.rateLimitKey = "ip:" + getClientIpAddress(httpRequest);
             // Anonymous users get more restrictive limits
-            userTier = UserTier.ANONYMOUS;
+            caller.tier = UserTier.ANONYMOUS;
         }
+        return caller;
+    }
+    
+    private ResponseEntity<ExecuteResponse> checkRateLimit(Caller caller) {
+        return checkRateLimit(caller, 1);
+    }
 
-        // Check rate limiting (applies to both authenticated and anonymous users)
-        if (rateLimitService.isRateLimited(rateLimitKey, userTier)) {
-            int remaining = rateLimitService.getRemainingRequests(rateLimitKey, userTier);
-            String message = userId != null ? 
-                "Rate limit exceeded. " + userTier.getDescription() + ". Remaining requests this hour: " + remaining :
-                "Rate limit exceeded for anonymous users. Please wait or sign up for higher limits. Remaining requests this hour: " + remaining;
+    // Counts executions against the caller's hourly limit, all or none of them
+    private ResponseEntity<ExecuteResponse> checkRateLimit(Caller caller, int executions) {
+        RateLimitEngine.Decision decision = rateLimitEngine.check(caller.rateLimitKey, caller.tier,
+            RateLimitPolicy.EXECUTIONS, executions);
+        caller.remainingRequests = decision.getRemaining();
+        if (!decision.isAllowed()) {
+            int remaining = decision.getRemaining();
+            String exceeded = executions > 1 && remaining > 0
+                ? "A batch of " + executions + " test cases needs " + executions + " executions"
+                : "Rate limit exceeded";
+            String message = caller.userId != null ? 
+                exceeded + ". " + caller.tier.getDescription() + ". Remaining requests this hour: " + remaining :
+                exceeded + " for anonymous users. Please wait or sign up for higher limits. Remaining requests this hour: " + remaining;
             return ResponseEntity.status(429)
                 .body(ExecuteResponse.error(message));
         }
-
-        logger.info("Received execution request for language: {} from user: {} (tier: {}, key: {})", 
-                   request.getLanguage(), username, userTier, rateLimitKey);
-        
-        // Validate request
+        return null;
+    }
+    
+    private ResponseEntity<ExecuteResponse> validate(ExecuteRequest request) {
         if (request.getCode() == null || request.getCode().trim().isEmpty()) {
             return ResponseEntity.badRequest()
                 .body(ExecuteResponse.error("Code cannot be empty"));
@@ -95,49 +376,41 @@ public class ExecuteController {
             return ResponseEntity.badRequest()
                 .body(ExecuteResponse.error("Code exceeds maximum length of 10KB"));
         }
+        return null;
+    }
+    
+    // Streams a rejected request as a single result event, keeping its status code
+    private ResponseEntity<SseEmitter> errorStream(ResponseEntity<ExecuteResponse> rejection) {
+        SseEmitter emitter = new SseEmitter();
+        new ExecutionEventStream(emitter).finish(rejection.getBody());
+        return ResponseEntity.status(rejection.getStatusCode()).headers(rejection.getHeaders())
+            .contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+    
+    // 503 telling the client when capacity is likely to be available again
+    private static ResponseEntity.BodyBuilder serviceUnavailable(RejectedExecutionException e) {
+        long retryAfter = e instanceof AdmissionRejectedException
+            ? ((AdmissionRejectedException) e).getRetryAfterSeconds() : 1;
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+    }
 
-        try {
-            // Apply tier-based delay in development mode
-            if ("dev".equals(activeProfile) && userTier.getDelayMs() > 0) {
-                logger.info("Applying tier-based delay: {}ms for tier: {}", userTier.getDelayMs(), userTier);
-                Thread.sleep(userTier.getDelayMs());
-            }
-            
-            ExecuteResponse response = executionService.executeCode(
-                request.getCode(),
-                request.getLanguage(),
-                request.getInput(),
-                userId
-            );
-              // Add tier information to response
-            if (userId != null) {
-                int remaining = rateLimitService.getRemainingRequests(rateLimitKey, userTier);
-                response.setMetadata("tier", userTier.name());
-                response.setMetadata("tierDescription", userTier.getDescription());
-                response.setMetadata("remainingRequests", remaining);
-                response.setMetadata("authenticated", true);
-            } else {
-                // For anonymous users, also show rate limit info
-                int remaining = rateLimitService.getRemainingRequests(rateLimitKey, userTier);
-                response.setMetadata("tier", "ANONYMOUS");
-                response.setMetadata("tierDescription", "Anonymous access - Sign up for higher limits");
-                response.setMetadata("remainingRequests", remaining);
-                response.setMetadata("authenticated", false);
-            }
-            
-            return ResponseEntity.ok(response);
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            logger.error("Execution interrupted", e);
-            return ResponseEntity.internalServerError()
-                .body(ExecuteResponse.error("Execution interrupted"));
-        } catch (Exception e) {
-            logger.error("Error executing code", e);
-            return ResponseEntity.internalServerError()
-                .body(ExecuteResponse.error("Internal server error"));
+    private ExecutionJob newJob(ExecuteRequest request, Caller caller) {
+        ExecutionJob job = new ExecutionJob(caller.rateLimitKey, request.getCode(), request.getLanguage(),
+            request.getInput(), caller.userId, caller.tier, caller.maxOutputSize);
+        job.setDeterministic(request.isDeterministic());
+        job.setCompileOnly(request.isCompileOnly());
+        return job;
+    }
+    
+    private ExecutionJob findOwnedJob(String id, Caller caller) {
+        ExecutionJob job = jobService.getJob(id);
+        if (job == null || !job.getOwnerKey().equals(caller.rateLimitKey)) {
+            return null;
         }
+        return job;
     }
+    
       @GetMapping("/languages")
     public ResponseEntity<Set<String>> getSupportedLanguages() {
         Set<String> languages = executionService.getSupportedLanguages();
@@ -178,4 +451,13 @@ public class ExecuteController {
         String remoteAddr = request.getRemoteAddr();
         return remoteAddr != null ? remoteAddr : "unknown";
     }
+    
+    private static class Caller {
+        String userId;
+        String username = "anonymous";
+        UserTier tier = UserTier.BASIC; // Default tier for anonymous users
+        String rateLimitKey; // Key used for rate limiting, shared with the request limit's keys
+        int remainingRequests; // Executions left this hour, once checked
+        Integer maxOutputSize; // User's output cap, server default when null
+    }
 }
@@ -0,0 +1,88 @@
+package com.example.compiler.controller;
+
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.JobResponse;
+import com.example.compiler.util.OutputListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Writes a streaming execution to an SSE connection: a {@code job} event, then
+ * {@code stdout}/{@code stderr} events as output arrives, then a final {@code result}.
+ * Events are sent on the thread reading the program's output, so a slow client
+ * throttles the program rather than growing a server-side buffer.
+ */
+class ExecutionEventStream implements OutputListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionEventStream.class);
+
+    private final SseEmitter emitter;
+    // Trailing bytes of a UTF-8 character split across reads, per stream
+    private byte[] stdoutCarry = new byte[0];
+    private byte[] stderrCarry = new byte[0];
+
+    ExecutionEventStream(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    void sendJob(JobResponse job) throws IOException {
+        emitter.send(SseEmitter.event().name("job").data(job, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void onOutput(boolean stderr, byte[] data, int offset, int length) throws IOException {
+        String text;
+        synchronized (this) {
+            byte[] carry = stderr ? stderrCarry : stdoutCarry;
+            byte[] bytes = new byte[carry.length + length];
+            System.arraycopy(carry, 0, bytes, 0, carry.length);
+            System.arraycopy(data, offset, bytes, carry.length, length);
+            int complete = completeUtf8Length(bytes);
+            carry = Arrays.copyOfRange(bytes, complete, bytes.length);
+            if (stderr) {
+                stderrCarry = carry;
+            } else {
+                stdoutCarry = carry;
+            }
+            text = new String(bytes, 0, complete, StandardCharsets.UTF_8);
+        }
+        if (!text.isEmpty()) {
+            // JSON-wrapped so newlines in the output cannot break SSE framing
+            emitter.send(SseEmitter.event().name(stderr ? "stderr" : "stdout")
+                .data(Map.of("data", text), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Sends the final frame and closes the connection.
+     */
+    void finish(ExecuteResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(response, MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Client already went away
+            logger.debug("Could not send execution result: {}", e.getMessage());
+        }
+    }
+
+    // Length of the prefix that does not end in the middle of a multi-byte character
+    private static int completeUtf8Length(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= Math.max(0, bytes.length - 3); i--) {
+            int b = bytes[i] & 0xff;
+            if ((b & 0xc0) == 0x80) {
+                continue; // continuation byte
+            }
+            int needed = b >= 0xf0 ? 4 : b >= 0xe0 ? 3 : b >= 0xc0 ? 2 : 1;
+            return i + needed > bytes.length ? i : bytes.length;
+        }
+        return bytes.length;
+    }
+}
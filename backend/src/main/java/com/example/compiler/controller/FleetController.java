@@ -0,0 +1,62 @@
+package com.example.compiler.controller;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.WorkerHeartbeat;
+import com.example.compiler.service.FleetRouter;
+import com.example.compiler.service.WorkerRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Registration and heartbeats from worker nodes. Only served in the coordinator role,
+ * and only to callers presenting the fleet token.
+ */
+@RestController
+@RequestMapping("/internal/fleet")
+public class FleetController {
+
+    @Autowired
+    private FleetProperties fleetProperties;
+
+    @Autowired
+    private WorkerRegistry workerRegistry;
+
+    @PostMapping("/heartbeat")
+    public ResponseEntity<Void> heartbeat(@RequestHeader(value = FleetRouter.TOKEN_HEADER, required = false) String token,
+                                          @RequestBody WorkerHeartbeat heartbeat) {
+        ResponseEntity<Void> rejection = checkAccess(token);
+        if (rejection != null) {
+            return rejection;
+        }
+        if (heartbeat.getWorkerId() == null || heartbeat.getUrl() == null || heartbeat.getSlots() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        workerRegistry.heartbeat(heartbeat);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/deregister")
+    public ResponseEntity<Void> deregister(@RequestHeader(value = FleetRouter.TOKEN_HEADER, required = false) String token,
+                                           @RequestBody Map<String, String> request) {
+        ResponseEntity<Void> rejection = checkAccess(token);
+        if (rejection != null) {
+            return rejection;
+        }
+        workerRegistry.deregister(request.get("workerId"));
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<Void> checkAccess(String token) {
+        if (!fleetProperties.isCoordinator()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!fleetProperties.isValidToken(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return null;
+    }
+}
@@ -4,10 +4,12 @@ import com.example.compiler.model.ShareRequest;
 import com.example.compiler.model.ShareResponse;
 import com.example.compiler.model.LoadResponse;
 import com.example.compiler.model.User;
+import com.example.compiler.model.UserTier;
 import com.example.compiler.repository.UserRepository;
 import com.example.compiler.security.UserPrincipal;
+import com.example.compiler.service.RateLimitEngine;
+import com.example.compiler.service.RateLimitPolicy;
 import com.example.compiler.service.ShareService;
-import com.example.compiler.service.AnonymousShareService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,7 +39,9 @@ public class ShareController {
     private UserRepository userRepository;
     
     @Autowired
-    private AnonymousShareService anonymousShareService;    @PostMapping("/share")
+    private RateLimitEngine rateLimitEngine;
+    
+    @PostMapping("/share")
     public ResponseEntity<ShareResponse> createShare(@RequestBody ShareRequest request, Authentication authentication, HttpServletRequest httpRequest) {
         try {
             logger.info("Creating share for language: {}, title: {}", request.getLanguage(), request.getTitle());
@@ -118,13 +122,9 @@ public class ShareController {
                 
                 if (userOptional.isPresent()) {
                     User user = userOptional.get();
-                    user.resetShareCountIfNeeded(); // Reset if new day
-                    
-                    response.put("canShare", user.canShare());
-                    response.put("remainingShares", user.getRemainingShares());
-                    response.put("usedShares", user.getShareCount());
+                    putShareLimits(response, rateLimitEngine.peek("user:" + user.getId(),
+                        UserTier.fromName(user.getTier()), RateLimitPolicy.SHARES));
                     response.put("tier", user.getTier());
-                    response.put("unlimited", "ADVANCED".equals(user.getTier()) || "MASTER".equals(user.getTier()));
                 } else {
                     response.put("canShare", false);
                     response.put("remainingShares", 0);
@@ -136,11 +136,9 @@ public class ShareController {
                 // Anonymous user - check IP-based limits
                 String clientIp = getClientIpAddress(httpRequest);
                 
-                response.put("canShare", anonymousShareService.canShare(clientIp));
-                response.put("remainingShares", anonymousShareService.getRemainingShares(clientIp));
-                response.put("usedShares", anonymousShareService.getUsedShares(clientIp));
+                putShareLimits(response, rateLimitEngine.peek("ip:" + clientIp, UserTier.ANONYMOUS,
+                    RateLimitPolicy.SHARES));
                 response.put("tier", "ANONYMOUS");
-                response.put("unlimited", false);
             }
             
             return ResponseEntity.ok(response);
@@ -151,6 +149,14 @@ public class ShareController {
         }
     }
     
+    // Remaining is -1 for tiers with unlimited sharing, which are not counted
+    private static void putShareLimits(Map<String, Object> response, RateLimitEngine.Decision decision) {
+        response.put("canShare", decision.isAllowed());
+        response.put("remainingShares", decision.getRemaining());
+        response.put("usedShares", decision.isUnlimited() ? 0 : decision.getLimit() - decision.getRemaining());
+        response.put("unlimited", decision.isUnlimited());
+    }
+    
     private String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
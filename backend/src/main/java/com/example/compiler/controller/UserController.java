@@ -1,5 +1,6 @@
 package com.example.compiler.controller;
 
+import com.example.compiler.config.JobSchedulerProperties;
 import com.example.compiler.model.User;
 import com.example.compiler.model.UserTier;
 import com.example.compiler.model.Snippet;
@@ -31,6 +32,9 @@ public class UserController {
     @Autowired
     private SnippetService snippetService;
 
+    @Autowired
+    private JobSchedulerProperties schedulerProperties;
+
     @GetMapping("/settings")
     public ResponseEntity<?> getUserSettings(Authentication authentication) {
         if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal)) {
@@ -138,7 +142,9 @@ public class UserController {
             Map<String, Object> info = new HashMap<>();
             info.put("description", tier.getDescription());
             info.put("requestsPerHour", tier.getRequestsPerHour());
-            info.put("delayMs", tier.getDelayMs());
+            // Executions are queued by tier, not delayed; MASTER always goes first
+            info.put("queuePriority", tier == UserTier.MASTER ? "Runs first"
+                : "Weight " + schedulerProperties.getWeight(tier) + " when the queue is busy");
             tierInfo.put(tier.name(), info);
         }
         return ResponseEntity.ok(tierInfo);
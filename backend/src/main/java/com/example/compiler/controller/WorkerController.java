@@ -0,0 +1,72 @@
+package com.example.compiler.controller;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.BatchExecuteResponse;
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.WorkerExecuteRequest;
+import com.example.compiler.service.ExecutionService;
+import com.example.compiler.service.FleetRouter;
+import com.example.compiler.service.FleetWorker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.function.Supplier;
+
+/**
+ * Executions handed to this node by the fleet coordinator. Only served in the worker
+ * role, and only to callers presenting the fleet token.
+ */
+@RestController
+@RequestMapping("/internal/worker")
+public class WorkerController {
+
+    @Autowired
+    private FleetProperties fleetProperties;
+
+    @Autowired
+    private FleetWorker fleetWorker;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @PostMapping("/execute")
+    public ResponseEntity<?> execute(@RequestHeader(value = FleetRouter.TOKEN_HEADER, required = false) String token,
+                                     @RequestBody WorkerExecuteRequest request) {
+        return runInSlot(token, () -> {
+            ExecuteResponse response = executionService.executeCode(request.getCode(), request.getLanguage(),
+                request.getInput(), request.getUserId(), request.getTier(), request.getMaxOutputSize(),
+                request.isDeterministic(), request.isCompileOnly());
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestHeader(value = FleetRouter.TOKEN_HEADER, required = false) String token,
+                                   @RequestBody WorkerExecuteRequest request) {
+        return runInSlot(token, () -> {
+            BatchExecuteResponse response = executionService.executeBatch(request.getCode(), request.getLanguage(),
+                request.getTestCases(), request.getUserId(), request.getTier(), request.getMaxOutputSize());
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    private ResponseEntity<?> runInSlot(String token, Supplier<ResponseEntity<?>> execution) {
+        if (!fleetProperties.isWorker()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!fleetProperties.isValidToken(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        // The coordinator retries elsewhere when this node is full
+        if (!fleetWorker.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return execution.get();
+        } finally {
+            fleetWorker.release();
+        }
+    }
+}
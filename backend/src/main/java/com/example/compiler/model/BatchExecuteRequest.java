@@ -0,0 +1,35 @@
+package com.example.compiler.model;
+
+import java.util.List;
+
+public class BatchExecuteRequest {
+    private String code;
+    private String language;
+    private List<TestCase> testCases;
+    
+    public BatchExecuteRequest() {}
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public void setCode(String code) {
+        this.code = code;
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+    
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+    
+    public void setTestCases(List<TestCase> testCases) {
+        this.testCases = testCases;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.compiler.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchExecuteResponse {
+    private String compileOutput; // Compiler stdout and stderr
+    private String error; // Set when the code could not be compiled or run
+    private int exitCode; // Compiler exit code when compilation failed
+    private List<TestCaseResult> results = new ArrayList<>();
+    private int passed;
+    private int failed;
+    private long executionTime; // In milliseconds
+    private Map<String, Object> metadata = new HashMap<>(); // Additional metadata
+    
+    public BatchExecuteResponse() {}
+    
+    // Static method for error responses
+    public static BatchExecuteResponse error(String error) {
+        BatchExecuteResponse response = new BatchExecuteResponse();
+        response.setError(error);
+        response.setExitCode(-1);
+        return response;
+    }
+    
+    public String getCompileOutput() {
+        return compileOutput;
+    }
+    
+    public void setCompileOutput(String compileOutput) {
+        this.compileOutput = compileOutput;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public int getExitCode() {
+        return exitCode;
+    }
+    
+    public void setExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+    
+    public List<TestCaseResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<TestCaseResult> results) {
+        this.results = results;
+    }
+    
+    public int getPassed() {
+        return passed;
+    }
+    
+    public void setPassed(int passed) {
+        this.passed = passed;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public long getExecutionTime() {
+        return executionTime;
+    }
+    
+    public void setExecutionTime(long executionTime) {
+        this.executionTime = executionTime;
+    }
+    
+    public Map<String, Object> getMetadata() {
+        return metadata;
+    }
+    
+    public void setMetadata(Map<String, Object> metadata) {
+        this.metadata = metadata;
+    }
+    
+    public void setMetadata(String key, Object value) {
+        this.metadata.put(key, value);
+    }
+}
@@ -4,6 +4,8 @@ public class ExecuteRequest {
     private String code;
     private String language;
     private String input; // Optional input for the program
+    private boolean deterministic; // Output depends only on input; a recent identical result may be reused
+    private boolean compileOnly; // Only compile or syntax-check the code, for diagnostics
     
     public ExecuteRequest() {}
     
@@ -41,4 +43,20 @@ public class ExecuteRequest {
     public void setInput(String input) {
         this.input = input;
     }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+    
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public boolean isCompileOnly() {
+        return compileOnly;
+    }
+
+    public void setCompileOnly(boolean compileOnly) {
+        this.compileOnly = compileOnly;
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.compiler.model;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class ExecuteResponse {
@@ -8,7 +9,12 @@ public class ExecuteResponse {
     private String stderr;
     private int exitCode;
     private String error; // For compilation or runtime errors
-    private long executionTime; // In milliseconds
+    private long executionTime; // In milliseconds, measured steps only when phases are set
+    private TerminationReason terminationReason; // How the last step that ran ended
+    private boolean outputTruncated; // Output hit the size cap and the program was stopped
+    private long stdoutTruncatedBytes;
+    private long stderrTruncatedBytes;
+    private List<ExecutionPhase> phases; // Compile and run steps, in order; null when not measured
     private Map<String, Object> metadata = new HashMap<>(); // Additional metadata
     
     public ExecuteResponse() {}
@@ -73,6 +79,46 @@ public class ExecuteResponse {
         this.executionTime = executionTime;
     }
     
+    public TerminationReason getTerminationReason() {
+        return terminationReason;
+    }
+    
+    public void setTerminationReason(TerminationReason terminationReason) {
+        this.terminationReason = terminationReason;
+    }
+    
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+    
+    public void setOutputTruncated(boolean outputTruncated) {
+        this.outputTruncated = outputTruncated;
+    }
+    
+    public long getStdoutTruncatedBytes() {
+        return stdoutTruncatedBytes;
+    }
+    
+    public void setStdoutTruncatedBytes(long stdoutTruncatedBytes) {
+        this.stdoutTruncatedBytes = stdoutTruncatedBytes;
+    }
+    
+    public long getStderrTruncatedBytes() {
+        return stderrTruncatedBytes;
+    }
+    
+    public void setStderrTruncatedBytes(long stderrTruncatedBytes) {
+        this.stderrTruncatedBytes = stderrTruncatedBytes;
+    }
+    
+    public List<ExecutionPhase> getPhases() {
+        return phases;
+    }
+
+    public void setPhases(List<ExecutionPhase> phases) {
+        this.phases = phases;
+    }
+
     public Map<String, Object> getMetadata() {
         return metadata;
     }
@@ -0,0 +1,113 @@
+package com.example.compiler.model;
+
+/**
+ * Timing and resource use of one step of an execution, compile or run. CPU time,
+ * peak memory and peak pids are null where the sandbox cannot measure them.
+ */
+public class ExecutionPhase {
+    private String name;
+    private long wallTime; // In milliseconds
+    private Long cpuTime; // In milliseconds, user plus system
+    private Long userCpuTime; // In milliseconds
+    private Long systemCpuTime; // In milliseconds
+    private Long peakMemoryBytes;
+    private Long peakPids; // Most processes and threads alive at once
+    private int exitCode;
+    private boolean timedOut;
+    private TerminationReason terminationReason; // Null when nothing ran
+    private boolean cached; // Compiled artifacts were reused, nothing ran
+
+    public ExecutionPhase() {}
+
+    public ExecutionPhase(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public void setWallTime(long wallTime) {
+        this.wallTime = wallTime;
+    }
+
+    public Long getCpuTime() {
+        return cpuTime;
+    }
+
+    public void setCpuTime(Long cpuTime) {
+        this.cpuTime = cpuTime;
+    }
+
+    public Long getUserCpuTime() {
+        return userCpuTime;
+    }
+
+    public void setUserCpuTime(Long userCpuTime) {
+        this.userCpuTime = userCpuTime;
+    }
+
+    public Long getSystemCpuTime() {
+        return systemCpuTime;
+    }
+
+    public void setSystemCpuTime(Long systemCpuTime) {
+        this.systemCpuTime = systemCpuTime;
+    }
+
+    public Long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    public void setPeakMemoryBytes(Long peakMemoryBytes) {
+        this.peakMemoryBytes = peakMemoryBytes;
+    }
+
+    public Long getPeakPids() {
+        return peakPids;
+    }
+
+    public void setPeakPids(Long peakPids) {
+        this.peakPids = peakPids;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public void setExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    public TerminationReason getTerminationReason() {
+        return terminationReason;
+    }
+
+    public void setTerminationReason(TerminationReason terminationReason) {
+        this.terminationReason = terminationReason;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+}
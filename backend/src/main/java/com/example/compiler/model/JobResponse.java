@@ -0,0 +1,78 @@
+package com.example.compiler.model;
+
+public class JobResponse {
+    private String id;
+    private JobStatus status;
+    private String language;
+    private long submittedAt; // Epoch milliseconds
+    private Long startedAt;
+    private Long finishedAt;
+    private ExecuteResponse result; // Present once the job has finished
+    private BatchExecuteResponse batchResult; // Per-case results of a finished batch job
+    
+    public JobResponse() {}
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public JobStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+    
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+    
+    public void setSubmittedAt(long submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+    
+    public Long getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(Long startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public Long getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(Long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    public ExecuteResponse getResult() {
+        return result;
+    }
+    
+    public void setResult(ExecuteResponse result) {
+        this.result = result;
+    }
+    
+    public BatchExecuteResponse getBatchResult() {
+        return batchResult;
+    }
+    
+    public void setBatchResult(BatchExecuteResponse batchResult) {
+        this.batchResult = batchResult;
+    }
+}
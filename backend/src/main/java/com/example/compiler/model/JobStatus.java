@@ -0,0 +1,15 @@
+package com.example.compiler.model;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED,
+    // Shed by admission control before it started
+    REJECTED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == CANCELLED || this == FAILED || this == REJECTED;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.compiler.model;
+
+public class StdinRequest {
+    private String data; // Text to append to the program's stdin
+    private boolean eof; // Close stdin after this chunk
+    
+    public StdinRequest() {}
+    
+    public String getData() {
+        return data;
+    }
+    
+    public void setData(String data) {
+        this.data = data;
+    }
+    
+    public boolean isEof() {
+        return eof;
+    }
+    
+    public void setEof(boolean eof) {
+        this.eof = eof;
+    }
+}
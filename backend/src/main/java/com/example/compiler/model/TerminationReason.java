@@ -0,0 +1,15 @@
+package com.example.compiler.model;
+
+/**
+ * Why a compile or run step ended.
+ */
+public enum TerminationReason {
+    // Exited on its own, with any exit code
+    EXITED,
+    // Killed by a signal it did not get from us, e.g. a segmentation fault
+    SIGNALED,
+    TIMEOUT,
+    // Killed by the kernel's OOM killer at the sandbox memory limit
+    MEMORY_LIMIT,
+    OUTPUT_LIMIT
+}
@@ -0,0 +1,29 @@
+package com.example.compiler.model;
+
+public class TestCase {
+    private String input;
+    private String expectedOutput; // Optional; the case passes when stdout matches
+    
+    public TestCase() {}
+    
+    public TestCase(String input, String expectedOutput) {
+        this.input = input;
+        this.expectedOutput = expectedOutput;
+    }
+    
+    public String getInput() {
+        return input;
+    }
+    
+    public void setInput(String input) {
+        this.input = input;
+    }
+    
+    public String getExpectedOutput() {
+        return expectedOutput;
+    }
+    
+    public void setExpectedOutput(String expectedOutput) {
+        this.expectedOutput = expectedOutput;
+    }
+}
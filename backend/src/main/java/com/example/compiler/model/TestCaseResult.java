@@ -0,0 +1,114 @@
+package com.example.compiler.model;
+
+public class TestCaseResult {
+    private int index;
+    private String stdout;
+    private String stderr;
+    private int exitCode;
+    private long executionTime; // In milliseconds
+    private Long cpuTime; // In milliseconds; cases running at once in one container are counted together
+    private Long peakMemoryBytes; // Null unless the case had a container of its own
+    private boolean timedOut;
+    private TerminationReason terminationReason;
+    private boolean outputTruncated;
+    private Boolean passed; // Null when no expected output was given
+    private String error;
+    
+    public TestCaseResult() {}
+    
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public String getStdout() {
+        return stdout;
+    }
+    
+    public void setStdout(String stdout) {
+        this.stdout = stdout;
+    }
+    
+    public String getStderr() {
+        return stderr;
+    }
+    
+    public void setStderr(String stderr) {
+        this.stderr = stderr;
+    }
+    
+    public int getExitCode() {
+        return exitCode;
+    }
+    
+    public void setExitCode(int exitCode) {
+        this.exitCode = exitCode;
+    }
+    
+    public long getExecutionTime() {
+        return executionTime;
+    }
+    
+    public void setExecutionTime(long executionTime) {
+        this.executionTime = executionTime;
+    }
+    
+    public Long getCpuTime() {
+        return cpuTime;
+    }
+
+    public void setCpuTime(Long cpuTime) {
+        this.cpuTime = cpuTime;
+    }
+
+    public Long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    public void setPeakMemoryBytes(Long peakMemoryBytes) {
+        this.peakMemoryBytes = peakMemoryBytes;
+    }
+
+    public TerminationReason getTerminationReason() {
+        return terminationReason;
+    }
+
+    public void setTerminationReason(TerminationReason terminationReason) {
+        this.terminationReason = terminationReason;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+    
+    public void setTimedOut(boolean timedOut) {
+        this.timedOut = timedOut;
+    }
+    
+    public boolean isOutputTruncated() {
+        return outputTruncated;
+    }
+    
+    public void setOutputTruncated(boolean outputTruncated) {
+        this.outputTruncated = outputTruncated;
+    }
+    
+    public Boolean getPassed() {
+        return passed;
+    }
+    
+    public void setPassed(Boolean passed) {
+        this.passed = passed;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -1,23 +1,21 @@
 package com.example.compiler.model;
 
 public enum UserTier {
-    ANONYMOUS(60000, "Anonymous access - Sign up for higher limits", 5),
-    BASIC(30000, "Basic Plan - 30 second compilation delay", 10),
-    ADVANCED(15000, "Advanced Plan - 15 second compilation delay", 50),
-    MASTER(0, "Master Plan - Instant compilation", 200);
+    ANONYMOUS("Anonymous access - Sign up for higher limits", 5, 3),
+    BASIC("Basic Plan - Standard queue priority", 10, 3),
+    ADVANCED("Advanced Plan - Higher queue priority", 50, UserTier.UNLIMITED),
+    MASTER("Master Plan - Runs ahead of every other tier", 200, UserTier.UNLIMITED);
+    
+    public static final int UNLIMITED = -1;
     
-    private final int delayMs;
     private final String description;
     private final int requestsPerHour;
+    private final int sharesPerDay;
     
-    UserTier(int delayMs, String description, int requestsPerHour) {
-        this.delayMs = delayMs;
+    UserTier(String description, int requestsPerHour, int sharesPerDay) {
         this.description = description;
         this.requestsPerHour = requestsPerHour;
-    }
-    
-    public int getDelayMs() {
-        return delayMs;
+        this.sharesPerDay = sharesPerDay;
     }
     
     public String getDescription() {
@@ -27,4 +25,19 @@ public enum UserTier {
     public int getRequestsPerHour() {
         return requestsPerHour;
     }
+    
+    public int getSharesPerDay() {
+        return sharesPerDay;
+    }
+    
+    /**
+     * The tier stored on a user, BASIC when it is missing or not recognised.
+     */
+    public static UserTier fromName(String name) {
+        try {
+            return name != null ? UserTier.valueOf(name) : BASIC;
+        } catch (IllegalArgumentException e) {
+            return BASIC;
+        }
+    }
 }
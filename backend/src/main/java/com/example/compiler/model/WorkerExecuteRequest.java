@@ -0,0 +1,92 @@
+package com.example.compiler.model;
+
+import java.util.List;
+
+/**
+ * An execution the coordinator hands to a worker node, with the caller's limits.
+ */
+public class WorkerExecuteRequest {
+    private String code;
+    private String language;
+    private String input;
+    private List<TestCase> testCases; // Set for batch executions
+    private String userId;
+    private UserTier tier;
+    private Integer maxOutputSize;
+    private boolean deterministic;
+    private boolean compileOnly;
+
+    public WorkerExecuteRequest() {}
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public void setInput(String input) {
+        this.input = input;
+    }
+
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+
+    public void setTestCases(List<TestCase> testCases) {
+        this.testCases = testCases;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public UserTier getTier() {
+        return tier;
+    }
+
+    public void setTier(UserTier tier) {
+        this.tier = tier;
+    }
+
+    public Integer getMaxOutputSize() {
+        return maxOutputSize;
+    }
+
+    public void setMaxOutputSize(Integer maxOutputSize) {
+        this.maxOutputSize = maxOutputSize;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public boolean isCompileOnly() {
+        return compileOnly;
+    }
+
+    public void setCompileOnly(boolean compileOnly) {
+        this.compileOnly = compileOnly;
+    }
+}
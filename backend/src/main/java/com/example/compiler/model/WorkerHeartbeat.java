@@ -0,0 +1,48 @@
+package com.example.compiler.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sent by a worker node to the coordinator to register and report its capacity.
+ */
+public class WorkerHeartbeat {
+    private String workerId;
+    private String url; // Where the coordinator sends executions
+    private int slots; // Executions the worker runs at once
+    private Map<String, Integer> freeSlots = new HashMap<>(); // Per warm language; absent languages are not served
+
+    public WorkerHeartbeat() {}
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int slots) {
+        this.slots = slots;
+    }
+
+    public Map<String, Integer> getFreeSlots() {
+        return freeSlots;
+    }
+
+    public void setFreeSlots(Map<String, Integer> freeSlots) {
+        this.freeSlots = freeSlots;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.compiler.repository;
+
+import com.example.compiler.config.DistributedRateLimitProperties;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Hit counts of fixed rate limit windows, one document per policy, client and window,
+ * removed by a TTL index once the window can no longer affect a decision.
+ */
+@Repository
+public class RateLimitWindowRepository {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DistributedRateLimitProperties properties;
+
+    public void ensureIndexes() {
+        mongoTemplate.indexOps(properties.getCollection())
+            .ensureIndex(new Index().on("expiresAt", Sort.Direction.ASC).expire(Duration.ZERO));
+    }
+
+    /**
+     * Atomically adds to a window's count, creating the window when it is new.
+     *
+     * @return the count after adding
+     */
+    public int increment(String windowId, int delta, Date expiresAt) {
+        Query query = new Query(where("_id").is(windowId));
+        Update update = new Update().inc("count", delta).setOnInsert("expiresAt", expiresAt);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        Document window;
+        try {
+            window = mongoTemplate.findAndModify(query, update, options, Document.class, properties.getCollection());
+        } catch (DuplicateKeyException e) {
+            // Another node created the window first; it exists now
+            window = mongoTemplate.findAndModify(query, update, options, Document.class, properties.getCollection());
+        }
+        return window != null ? window.getInteger("count", 0) : 0;
+    }
+
+    public int count(String windowId) {
+        Document window = mongoTemplate.findById(windowId, Document.class, properties.getCollection());
+        return window != null ? window.getInteger("count", 0) : 0;
+    }
+}
@@ -2,8 +2,10 @@ package com.example.compiler.security;
 
 import com.example.compiler.model.User;
 import com.example.compiler.service.AuthService;
-import com.example.compiler.service.RateLimitingService;
+import com.example.compiler.service.RateLimitEngine;
+import com.example.compiler.service.RateLimitPolicy;
 import com.example.compiler.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -35,7 +37,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private UserService userService;
     
     @Autowired
-    private RateLimitingService rateLimitingService;
+    private RateLimitEngine rateLimitEngine;
       @Override
     protected void doFilterInternal(HttpServletRequest request, 
                                    HttpServletResponse response, 
@@ -51,22 +53,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         // Check rate limiting for authenticated endpoints
         String clientIdentifier = getClientIdentifier(request);
-        if (!rateLimitingService.tryConsume(clientIdentifier)) {
+        int remaining = rateLimitEngine.tryAcquire(clientIdentifier, null, RateLimitPolicy.REQUESTS);
+        int burst = rateLimitEngine.limitFor(RateLimitPolicy.REQUESTS, null);
+        if (remaining < 0) {
             logger.warn("Rate limit exceeded for client: {}", clientIdentifier);
             response.setStatus(429); // Too Many Requests
             response.setContentType("application/json");
             response.getWriter().write("{\"error\":\"Rate limit exceeded\",\"message\":\"Too many requests. Please try again later.\"}");
             
             // Add rate limit headers
-            RateLimitingService.RateLimitInfo info = rateLimitingService.getRateLimitInfo(clientIdentifier);
-            response.setHeader("X-Rate-Limit-Remaining", String.valueOf(info.getAvailableTokens()));
-            response.setHeader("X-Rate-Limit-Burst", String.valueOf(info.getBurstCapacity()));
+            response.setHeader("X-Rate-Limit-Remaining", "0");
+            response.setHeader("X-Rate-Limit-Burst", String.valueOf(burst));
             return;
         }        // Try JWT authentication first
         String token = extractJwtFromHeader(request);
         if (token != null) {
-            if (authService.validateToken(token)) {
-                authenticateWithJwt(request, token);
+            // Verified once here; username and user ID come from the same claims
+            Optional<Claims> claims = authService.parseToken(token);
+            if (claims.isPresent()) {
+                authenticateWithJwt(request, claims.get());
             }
         } else {
             // Try API key authentication
@@ -79,9 +84,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         
         // Add rate limit headers to response
-        RateLimitingService.RateLimitInfo info = rateLimitingService.getRateLimitInfo(clientIdentifier);
-        response.setHeader("X-Rate-Limit-Remaining", String.valueOf(info.getAvailableTokens()));
-        response.setHeader("X-Rate-Limit-Burst", String.valueOf(info.getBurstCapacity()));
+        response.setHeader("X-Rate-Limit-Remaining", String.valueOf(remaining));
+        response.setHeader("X-Rate-Limit-Burst", String.valueOf(burst));
         
         filterChain.doFilter(request, response);
     }
@@ -92,7 +96,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                path.equals("/api/auth/debug-token") ||
                path.startsWith("/api/public/") ||
                path.equals("/actuator/health") ||
-               path.startsWith("/h2-console/");
+               path.startsWith("/h2-console/") ||
+               path.startsWith("/internal/"); // Fleet traffic between nodes, authenticated by token
     }
     
     private String getClientIdentifier(HttpServletRequest request) {
@@ -123,10 +128,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             apiKey = request.getParameter("api_key");
         }
         return apiKey;
-    }    private void authenticateWithJwt(HttpServletRequest request, String token) {
+    }    private void authenticateWithJwt(HttpServletRequest request, Claims claims) {
         try {
-            String username = authService.getUsernameFromToken(token);
-            String userId = authService.getUserIdFromToken(token);
+            String username = claims.getSubject();
             
             Optional<User> userOptional = userService.findByUsername(username);
             
@@ -0,0 +1,325 @@
+package com.example.compiler.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Adaptive limit on concurrently running executions (AIMD). Every interval the host's
+ * CPU load and memory pressure are sampled: when either is above its threshold the limit
+ * is cut multiplicatively, and while the host is healthy and the limit is actually in
+ * use it grows by one. Also estimates how long queued work will take, so callers can
+ * be turned away early with a sensible Retry-After instead of timing out. On a fleet
+ * coordinator the limit instead follows the slots the workers report.
+ */
+@Service
+public class AdmissionLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionLimiter.class);
+
+    private static final Path MEMORY_PRESSURE = Path.of("/proc/pressure/memory");
+    private static final Path MEMINFO = Path.of("/proc/meminfo");
+    private static final double DECREASE_FACTOR = 0.75;
+    // Weight of the newest sample in the service time average
+    private static final double SERVICE_TIME_ALPHA = 0.2;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    @Value("${app.execution.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.execution.admission.min-limit:1}")
+    private int minLimit;
+
+    @Value("${app.execution.admission.target-cpu-load:0.85}")
+    private double targetCpuLoad;
+
+    // Fraction of memory that must stay available; used where PSI is not
+    @Value("${app.execution.admission.min-available-memory:0.10}")
+    private double minAvailableMemory;
+
+    // PSI "some avg10" for memory, in percent of time tasks were stalled
+    @Value("${app.execution.admission.max-memory-pressure:20}")
+    private double maxMemoryPressure;
+
+    @Value("${app.execution.admission.queue-timeout:20s}")
+    private Duration queueTimeout;
+
+    @Value("${app.execution.admission.interval:1s}")
+    private Duration interval;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final com.sun.management.OperatingSystemMXBean os =
+        (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    private final List<Runnable> limitRaisedListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;
+    // Set on a coordinator, whose executions run elsewhere and are limited by the fleet's slots
+    private IntSupplier capacity;
+
+    private int maxLimit;
+    private double limit;
+    private int inFlight = 0;
+    private double serviceMillis = 0;
+    private double cpuLoad = -1;
+    private double memoryPressure = -1;
+    private double availableMemory = -1;
+
+    /**
+     * Starts adapting. The limit starts at, and never exceeds, maxLimit.
+     */
+    public synchronized void start(int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+        minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        registerGauges();
+        if (!enabled) {
+            logger.info("Admission control disabled, running up to {} executions at once", maxLimit);
+            return;
+        }
+        startTicker();
+        logger.info("Admission control adapting between {} and {} concurrent executions", minLimit, maxLimit);
+    }
+
+    /**
+     * Starts tracking capacity elsewhere instead of this host's load: the limit follows
+     * the supplied capacity, and is at least one so executions fail fast rather than
+     * queue while it is zero.
+     */
+    public synchronized void follow(IntSupplier capacity) {
+        this.capacity = capacity;
+        this.maxLimit = Math.max(1, capacity.getAsInt());
+        this.limit = maxLimit;
+        minLimit = 1;
+        registerGauges();
+        startTicker();
+        logger.info("Admission limit following remote capacity, now {}", maxLimit);
+    }
+
+    private void registerGauges() {
+        Gauge.builder("execution.admission.limit", this, AdmissionLimiter::getLimit)
+            .description("Executions currently allowed to run at once")
+            .register(meterRegistry);
+        Gauge.builder("execution.admission.inflight", this, AdmissionLimiter::getInFlight)
+            .description("Executions running")
+            .register(meterRegistry);
+    }
+
+    private void startTicker() {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "admission-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(100, interval.toMillis());
+        ticker.scheduleWithFixedDelay(capacity != null ? this::track : this::adjust, millis, millis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a callback for when more executions may start.
+     */
+    public void onLimitRaised(Runnable listener) {
+        limitRaisedListeners.add(listener);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized void started() {
+        inFlight++;
+    }
+
+    public synchronized void finished(long durationNanos) {
+        inFlight--;
+        double millis = durationNanos / 1_000_000.0;
+        serviceMillis = serviceMillis == 0 ? millis : serviceMillis + SERVICE_TIME_ALPHA * (millis - serviceMillis);
+    }
+
+    /**
+     * Rough time until a job queued behind queueDepth others would start.
+     */
+    public synchronized long estimatedWaitMillis(int queueDepth) {
+        return (long) (queueDepth * serviceMillis / Math.max(1, (int) limit));
+    }
+
+    /**
+     * Whether a job queued behind queueDepth others would still be waiting at the queue
+     * deadline, and should rather be turned away now.
+     */
+    public boolean wouldExpire(int queueDepth) {
+        return enabled && estimatedWaitMillis(queueDepth) > queueTimeout.toMillis();
+    }
+
+    public long retryAfterSeconds(int queueDepth) {
+        long seconds = (estimatedWaitMillis(queueDepth + 1) + 999) / 1000;
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+
+    public Duration getQueueTimeout() {
+        return enabled ? queueTimeout : Duration.ZERO;
+    }
+
+    public void rejected(String reason) {
+        rejections.computeIfAbsent(reason, key -> Counter.builder("execution.admission.rejected")
+            .tag("reason", key)
+            .description("Executions turned away by admission control")
+            .register(meterRegistry)).increment();
+    }
+
+    private void adjust() {
+        try {
+            double cpu = os.getCpuLoad();
+            double pressure = readMemoryPressure();
+            double available = pressure < 0 ? readAvailableMemory() : -1;
+            boolean overloaded = cpu > targetCpuLoad
+                || (pressure >= 0 && pressure > maxMemoryPressure)
+                || (available >= 0 && available < minAvailableMemory);
+
+            boolean raised = false;
+            synchronized (this) {
+                cpuLoad = cpu;
+                memoryPressure = pressure;
+                availableMemory = available;
+                double before = limit;
+                if (overloaded) {
+                    limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+                } else if (inFlight >= (int) limit) {
+                    // Only grow a limit that is actually holding work back
+                    limit = Math.min(maxLimit, limit + 1);
+                }
+                if ((int) limit != (int) before) {
+                    logger.info("Admission limit {} -> {} (cpu {}, memory pressure {}, available memory {})",
+                        (int) before, (int) limit, format(cpu), format(pressure), format(available));
+                }
+                raised = (int) limit > (int) before;
+            }
+            if (raised) {
+                limitRaisedListeners.forEach(Runnable::run);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Admission limit update failed", e);
+        }
+    }
+
+    private void track() {
+        try {
+            int available = Math.max(1, capacity.getAsInt());
+            boolean raised;
+            synchronized (this) {
+                int before = (int) limit;
+                maxLimit = available;
+                limit = available;
+                if (available != before) {
+                    logger.info("Admission limit {} -> {} following remote capacity", before, available);
+                }
+                raised = available > before;
+            }
+            if (raised) {
+                limitRaisedListeners.forEach(Runnable::run);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Admission limit update failed", e);
+        }
+    }
+
+    // PSI "some avg10" in percent, or -1 without PSI support
+    private static double readMemoryPressure() {
+        try {
+            for (String line : Files.readAllLines(MEMORY_PRESSURE)) {
+                if (line.startsWith("some")) {
+                    for (String field : line.split(" ")) {
+                        if (field.startsWith("avg10=")) {
+                            return Double.parseDouble(field.substring("avg10=".length()));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Kernel without PSI, or not Linux
+        }
+        return -1;
+    }
+
+    // MemAvailable / MemTotal, or -1 when unknown
+    private static double readAvailableMemory() {
+        try {
+            long total = -1;
+            long available = -1;
+            for (String line : Files.readAllLines(MEMINFO)) {
+                if (line.startsWith("MemTotal:")) {
+                    total = parseKilobytes(line);
+                } else if (line.startsWith("MemAvailable:")) {
+                    available = parseKilobytes(line);
+                }
+            }
+            return total > 0 && available >= 0 ? (double) available / total : -1;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseKilobytes(String line) {
+        return Long.parseLong(line.replaceAll("[^0-9]", ""));
+    }
+
+    private static String format(double value) {
+        return value < 0 ? "n/a" : String.format("%.2f", value);
+    }
+
+    /**
+     * Current state, for the actuator endpoint.
+     */
+    public synchronized Map<String, Object> describe() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("enabled", enabled);
+        state.put("followsRemoteCapacity", capacity != null);
+        state.put("limit", (int) limit);
+        state.put("minLimit", minLimit);
+        state.put("maxLimit", maxLimit);
+        state.put("inFlight", inFlight);
+        state.put("averageServiceMillis", Math.round(serviceMillis));
+        state.put("queueTimeoutMillis", queueTimeout.toMillis());
+        state.put("cpuLoad", cpuLoad);
+        state.put("memoryPressure", memoryPressure);
+        state.put("availableMemory", availableMemory);
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        rejections.forEach((reason, counter) -> rejected.put(reason, (long) counter.count()));
+        state.put("rejected", rejected);
+        return state;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.compiler.service;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An execution turned away because the service is at capacity. Carries how long the
+ * caller should wait before retrying.
+ */
+public class AdmissionRejectedException extends RejectedExecutionException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.FileUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed, size-capped LRU cache of compiled artifacts (binaries, class
+ * files, emitted JS) on local disk. Entries are keyed by language, toolchain ID and
+ * the SHA-256 of the source, so re-running the same snippet with different stdin
+ * skips the compile step.
+ */
+@Service
+public class ArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactCache.class);
+
+    private static final String STAGING_PREFIX = ".staging-";
+
+    @Value("${app.execution.artifact-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.execution.artifact-cache.dir:}")
+    private String directory;
+
+    @Value("${app.execution.artifact-cache.max-size-mb:512}")
+    private long maxSizeMb;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private Path root;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter bytesSaved;
+
+    @PostConstruct
+    public void init() {
+        hits = Counter.builder("execution.artifact.cache.requests").tag("result", "hit")
+            .description("Compiled artifact cache lookups").register(meterRegistry);
+        misses = Counter.builder("execution.artifact.cache.requests").tag("result", "miss")
+            .description("Compiled artifact cache lookups").register(meterRegistry);
+        bytesSaved = Counter.builder("execution.artifact.cache.saved").baseUnit("bytes")
+            .description("Artifact bytes served from cache instead of being rebuilt").register(meterRegistry);
+        Gauge.builder("execution.artifact.cache.size", this, ArtifactCache::getTotalBytes).baseUnit("bytes")
+            .register(meterRegistry);
+
+        if (!enabled) {
+            return;
+        }
+        try {
+            root = directory == null || directory.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "online-compiler-artifacts")
+                : Path.of(directory);
+            Files.createDirectories(root);
+            loadExistingEntries();
+            logger.info("Artifact cache at {} holds {} entries ({} bytes)", root, entrySizes.size(), totalBytes);
+        } catch (IOException e) {
+            logger.warn("Artifact cache disabled, cannot use {}: {}", root, e.getMessage());
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String key(String language, String toolchainId, String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(language.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(toolchainId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return directory holding the cached artifacts, or null on a miss
+     */
+    public Path lookup(String key) {
+        Long size;
+        synchronized (this) {
+            size = entrySizes.get(key);
+        }
+        if (size == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        bytesSaved.increment(size);
+        return root.resolve(key);
+    }
+
+    /**
+     * Creates an empty directory for a build's artifacts; pass it to {@link #store} afterwards.
+     */
+    public Path newStagingDir() throws IOException {
+        return Files.createTempDirectory(root, STAGING_PREFIX);
+    }
+
+    public void store(String key, Path stagingDir, long bytes) {
+        Path target = root.resolve(key);
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (entrySizes.containsKey(key)) {
+                FileUtils.deleteDirectory(stagingDir.toFile());
+                return;
+            }
+            try {
+                Files.move(stagingDir, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                logger.warn("Could not store artifacts for {}: {}", key, e.getMessage());
+                FileUtils.deleteDirectory(stagingDir.toFile());
+                return;
+            }
+            entrySizes.put(key, bytes);
+            totalBytes += bytes;
+
+            long maxBytes = maxSizeMb * 1024 * 1024;
+            Iterator<Map.Entry<String, Long>> lru = entrySizes.entrySet().iterator();
+            while (totalBytes > maxBytes && lru.hasNext()) {
+                Map.Entry<String, Long> eldest = lru.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                lru.remove();
+            }
+        }
+        // Deleting outside the lock; a concurrent reader copying from an evicted entry falls back to compiling
+        for (String evictedKey : evicted) {
+            FileUtils.deleteDirectory(root.resolve(evictedKey).toFile());
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void loadExistingEntries() throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(root)) {
+            for (Path child : children) {
+                if (child.getFileName().toString().startsWith(STAGING_PREFIX)) {
+                    FileUtils.deleteDirectory(child.toFile());
+                } else if (Files.isDirectory(child)) {
+                    dirs.add(child);
+                }
+            }
+        }
+        dirs.sort(Comparator.comparingLong(dir -> dir.toFile().lastModified()));
+        for (Path dir : dirs) {
+            long size;
+            try (Stream<Path> files = Files.list(dir)) {
+                size = files.mapToLong(file -> file.toFile().length()).sum();
+            }
+            entrySizes.put(dir.getFileName().toString(), size);
+            totalBytes += size;
+        }
+    }
+}
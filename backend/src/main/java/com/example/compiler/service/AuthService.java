@@ -4,6 +4,7 @@ import com.example.compiler.model.AuthRequest;
 import com.example.compiler.model.AuthResponse;
 import com.example.compiler.model.User;
 import com.example.compiler.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -97,6 +98,10 @@ public class AuthService {
         return jwtUtil.validateToken(token);
     }
     
+    public Optional<Claims> parseToken(String token) {
+        return jwtUtil.parseAndVerify(token);
+    }
+    
     public String getUsernameFromToken(String token) {
         return jwtUtil.getUsernameFromToken(token);
     }
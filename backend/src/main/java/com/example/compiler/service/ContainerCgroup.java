@@ -0,0 +1,137 @@
+package com.example.compiler.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A container's cgroup read from the host, where the program in the container cannot
+ * touch it. Counters are keyed {@code "<file> <key>"} for keyed files such as
+ * {@code cpu.stat user_usec} and by file name for single values such as
+ * {@code memory.peak}; cgroup v1 files are prefixed with their controller, such as
+ * {@code cpuacct/cpuacct.usage_user}. Both the systemd and the cgroupfs layout Docker
+ * uses are found.
+ */
+final class ContainerCgroup {
+
+    private static final List<String> V2_FILES = List.of("cpu.stat", "memory.events", "memory.peak", "pids.peak");
+    private static final List<String> V1_FILES = List.of("cpuacct/cpuacct.usage_user", "cpuacct/cpuacct.usage_sys",
+        "memory/memory.oom_control", "memory/memory.max_usage_in_bytes");
+    // How often a container that runs a single command is sampled
+    private static final long SAMPLE_INTERVAL_MILLIS = 20;
+
+    private static final ScheduledExecutorService SAMPLER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cgroup-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path root;
+    private final String containerId;
+
+    ContainerCgroup(Path root, String containerId) {
+        this.root = root;
+        this.containerId = containerId;
+    }
+
+    /**
+     * @return the current counters; empty when the cgroup cannot be found, or is gone
+     *         because the container stopped
+     */
+    Map<String, Long> read() {
+        Map<String, Long> counters = new HashMap<>();
+        if (Files.exists(root.resolve("cgroup.controllers"))) {
+            Path dir = containerDir(root);
+            if (dir != null) {
+                V2_FILES.forEach(file -> readFile(dir.resolve(file), file, counters));
+            }
+        } else {
+            for (String file : V1_FILES) {
+                String controller = file.substring(0, file.indexOf('/'));
+                Path dir = containerDir(root.resolve(controller));
+                if (dir != null) {
+                    readFile(dir.resolve(file.substring(controller.length() + 1)), file, counters);
+                }
+            }
+        }
+        return counters;
+    }
+
+    private Path containerDir(Path hierarchy) {
+        for (Path dir : List.of(hierarchy.resolve("system.slice").resolve("docker-" + containerId + ".scope"),
+                hierarchy.resolve("docker").resolve(containerId))) {
+            if (Files.isDirectory(dir)) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+    private static void readFile(Path path, String name, Map<String, Long> counters) {
+        try {
+            for (String line : Files.readAllLines(path)) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length == 1 && fields[0].matches("\\d{1,19}")) {
+                    counters.put(name, Long.parseLong(fields[0]));
+                } else if (fields.length == 2 && fields[1].matches("\\d{1,19}")) {
+                    counters.put(name + " " + fields[0], Long.parseLong(fields[1]));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not available on this kernel, or the container just stopped
+        }
+    }
+
+    /**
+     * Keeps reading a cgroup while its container runs, since it disappears together
+     * with the container's only command.
+     */
+    static final class Sampler implements AutoCloseable {
+        private final Supplier<ContainerCgroup> cgroup;
+        private final ScheduledFuture<?> task;
+        private ContainerCgroup found;
+        private volatile Map<String, Long> last = Collections.emptyMap();
+
+        /**
+         * @param cgroup the container's cgroup, or null while the container does not exist yet
+         */
+        Sampler(Supplier<ContainerCgroup> cgroup) {
+            this.cgroup = cgroup;
+            this.task = SAMPLER.scheduleWithFixedDelay(this::sample, 0, SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        private void sample() {
+            if (found == null) {
+                found = cgroup.get();
+            }
+            if (found != null) {
+                Map<String, Long> counters = found.read();
+                if (!counters.isEmpty()) {
+                    last = counters;
+                }
+            }
+        }
+
+        /**
+         * @return the last counters read while the container was running; empty if it
+         *         ended before the first sample
+         */
+        Map<String, Long> last() {
+            return last;
+        }
+
+        @Override
+        public void close() {
+            task.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.ContainerPoolProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps a per-language pool of pre-started, network-less sandbox containers.
+ * Each container bind-mounts its own host workspace directory from the
+ * {@link WorkspaceAllocator}; code is written there and run through
+ * {@code docker exec}. Containers are wiped between runs and recycled after a
+ * number of executions or when idle too long. A pooled container serves many users, so
+ * its root filesystem is read-only and everything the sandbox user can write is a tmpfs
+ * or the workspace, all of which the wipe empties. They are started with the language's
+ * execution profile; jobs whose tier has other limits, and containers left over from
+ * before a profile change, do not use them.
+ */
+@Service
+public class ContainerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerPool.class);
+
+    private static final String WORKSPACE = "/workspace";
+    // Every writable location of a pooled container; HOME points into one of them
+    private static final List<String> WRITABLE_DIRS = List.of(WORKSPACE, "/tmp", "/var/tmp", "/dev/shm");
+    private static final String WIPE_COMMAND = wipeCommand();
+    private static final int DOCKER_COMMAND_TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private ContainerPoolProperties properties;
+
+    @Autowired
+    private WorkspaceAllocator workspaceAllocator;
+
+    @Autowired
+    private ExecutionProfiles executionProfiles;
+
+    private final Map<String, BlockingDeque<PooledContainer>> idleContainers = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> liveCounts = new ConcurrentHashMap<>();
+    private final Map<String, LanguageConfig> pooledLanguages = new ConcurrentHashMap<>();
+    private BiFunction<LanguageConfig, ExecutionProfile, List<String>> sandboxOptions;
+
+    private ExecutorService housekeeping;
+    private ScheduledExecutorService reaper;
+    private volatile boolean running = false;
+
+    /**
+     * Starts warm containers for every language with a configured pool size.
+     * Filling happens in the background so application startup is not blocked.
+     */
+    public synchronized void start(Map<String, LanguageConfig> languageConfigs,
+                                   BiFunction<LanguageConfig, ExecutionProfile, List<String>> sandboxOptions) {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        this.sandboxOptions = sandboxOptions;
+
+        for (Map.Entry<String, Integer> entry : properties.getSizes().entrySet()) {
+            LanguageConfig config = languageConfigs.get(entry.getKey());
+            if (config == null) {
+                logger.warn("Ignoring container pool size for unsupported language: {}", entry.getKey());
+                continue;
+            }
+            if (entry.getValue() > 0) {
+                pooledLanguages.put(entry.getKey(), config);
+                idleContainers.put(entry.getKey(), new LinkedBlockingDeque<>());
+                liveCounts.put(entry.getKey(), new AtomicInteger());
+            }
+        }
+        if (pooledLanguages.isEmpty()) {
+            return;
+        }
+
+        running = true;
+        housekeeping = Executors.newCachedThreadPool(daemonThreads("container-pool"));
+        reaper = Executors.newSingleThreadScheduledExecutor(daemonThreads("container-pool-reaper"));
+        pooledLanguages.keySet().forEach(this::scheduleRefill);
+
+        long reapIntervalSeconds = Math.max(5, properties.getIdleTimeout().toSeconds() / 4);
+        reaper.scheduleWithFixedDelay(this::recycleIdleContainers, reapIntervalSeconds, reapIntervalSeconds, TimeUnit.SECONDS);
+        logger.info("Container pool started for languages: {}", pooledLanguages.keySet());
+    }
+
+    public boolean isPooled(String language) {
+        return running && pooledLanguages.containsKey(language);
+    }
+
+    /**
+     * Takes a warm container for the language started with the given limits, or returns
+     * null when none is idle so the caller can fall back to a cold {@code docker run}.
+     */
+    public PooledContainer acquire(String language, ExecutionProfile profile) {
+        if (!isPooled(language)) {
+            return null;
+        }
+        BlockingDeque<PooledContainer> idle = idleContainers.get(language);
+        // Containers left over from before a profile change are discarded on the way, so one
+        // stale container at the head does not send every job to a cold start
+        List<PooledContainer> otherTiers = new ArrayList<>();
+        PooledContainer container;
+        while ((container = idle.pollFirst()) != null && !container.profile.equals(profile)) {
+            if (isCurrent(container)) {
+                // Fine for other jobs, just not this tier's
+                otherTiers.add(container);
+            } else {
+                discard(container);
+            }
+        }
+        for (int i = otherTiers.size() - 1; i >= 0; i--) {
+            idle.offerFirst(otherTiers.get(i));
+        }
+        scheduleRefill(language);
+        return container;
+    }
+
+    // Whether the container still has the limits the language's profile asks for
+    private boolean isCurrent(PooledContainer container) {
+        return container.profile.equals(executionProfiles.resolve(container.language, null));
+    }
+
+    /**
+     * Returns a container after use. Containers that timed out or failed are
+     * destroyed; the rest are wiped in the background and put back if they have
+     * uses left.
+     */
+    public void release(PooledContainer container, boolean reusable) {
+        container.uses++;
+        if (!running || !reusable || container.uses >= properties.getMaxUses() || !isCurrent(container)) {
+            discard(container);
+            return;
+        }
+        housekeeping.submit(() -> {
+            if (runDocker("exec", container.id, "sh", "-c", WIPE_COMMAND)) {
+                container.lastUsedAt = System.currentTimeMillis();
+                idleContainers.get(container.language).offerFirst(container);
+            } else {
+                discard(container);
+            }
+        });
+    }
+
+    /**
+     * Builds the {@code docker exec} command that runs a shell command inside the
+     * container's workspace with stdin attached.
+     */
+    public List<String> execCommand(PooledContainer container, String shellCommand) {
+        return new ArrayList<>(Arrays.asList(
+            "docker", "exec", "-i", "-w", WORKSPACE, container.id, "sh", "-c", shellCommand
+        ));
+    }
+
+    private void scheduleRefill(String language) {
+        if (!running) {
+            return;
+        }
+        housekeeping.submit(() -> refill(language));
+    }
+
+    private void refill(String language) {
+        AtomicInteger live = liveCounts.get(language);
+        int target = properties.getSize(language);
+        while (running && live.get() < target) {
+            if (live.incrementAndGet() > target) {
+                live.decrementAndGet();
+                return;
+            }
+            PooledContainer container = startContainer(pooledLanguages.get(language),
+                executionProfiles.resolve(language, null));
+            if (container == null) {
+                live.decrementAndGet();
+                return;
+            }
+            idleContainers.get(language).offerLast(container);
+        }
+    }
+
+    private PooledContainer startContainer(LanguageConfig config, ExecutionProfile profile) {
+        String name = "oc-pool-" + config.getLanguage() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        Path workspace;
+        try {
+            workspace = workspaceAllocator.allocate(true);
+        } catch (IOException e) {
+            logger.warn("Could not create workspace for pooled container: {}", e.getMessage());
+            return null;
+        }
+
+        List<String> args = new ArrayList<>(Arrays.asList("run", "-d", "--rm", "--name", name));
+        args.addAll(sandboxOptions.apply(config, profile));
+        args.addAll(Arrays.asList(
+            // Nothing outside the wiped directories survives from one user to the next
+            "--read-only",
+            "--tmpfs=/var/tmp",
+            "--env", "HOME=/tmp",
+            "-v", workspace + ":" + WORKSPACE,
+            "-w", WORKSPACE,
+            "--label", "online-compiler.pool=" + config.getLanguage(),
+            config.getDockerImage(),
+            "tail", "-f", "/dev/null"
+        ));
+
+        String output = docker(args.toArray(new String[0]));
+        if (output == null) {
+            logger.warn("Failed to start pooled container for {}", config.getLanguage());
+            workspaceAllocator.release(workspace);
+            return null;
+        }
+        logger.debug("Started pooled container {} for {}", name, config.getLanguage());
+        // The id is printed last, after any warnings
+        String[] lines = output.trim().split("\n");
+        return new PooledContainer(name, lines[lines.length - 1].trim(), config.getLanguage(), workspace, profile);
+    }
+
+    private void discard(PooledContainer container) {
+        liveCounts.get(container.language).decrementAndGet();
+        if (housekeeping == null) {
+            return;
+        }
+        housekeeping.submit(() -> {
+            runDocker("rm", "-f", container.id);
+            workspaceAllocator.release(container.workspace);
+            refill(container.language);
+        });
+    }
+
+    private void recycleIdleContainers() {
+        long cutoff = System.currentTimeMillis() - properties.getIdleTimeout().toMillis();
+        for (Map.Entry<String, BlockingDeque<PooledContainer>> entry : idleContainers.entrySet()) {
+            for (PooledContainer container : entry.getValue()) {
+                // Also replaces containers started before the language's limits changed
+                if ((container.lastUsedAt < cutoff || !isCurrent(container)) && entry.getValue().remove(container)) {
+                    logger.debug("Recycling idle container {}", container.id);
+                    discard(container);
+                }
+            }
+        }
+    }
+
+    // Kills what the last run left behind, empties every writable directory, then checks they are empty
+    private static String wipeCommand() {
+        StringBuilder command = new StringBuilder("kill -9 -1 2>/dev/null; ");
+        for (String dir : WRITABLE_DIRS) {
+            command.append("rm -rf ").append(dir).append("/* ").append(dir).append("/.[!.]* ")
+                .append(dir).append("/..?* 2>/dev/null; ");
+        }
+        command.append("for dir in ").append(String.join(" ", WRITABLE_DIRS))
+            .append("; do [ -z \"$(ls -A \"$dir\")\" ] || exit 1; done");
+        return command.toString();
+    }
+
+    private boolean runDocker(String... args) {
+        return docker(args) != null;
+    }
+
+    // The command's output, or null when it failed
+    private String docker(String... args) {
+        List<String> command = new ArrayList<>();
+        command.add("docker");
+        command.addAll(Arrays.asList(args));
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            process.getOutputStream().close();
+            try (InputStream output = process.getInputStream()) {
+                String text = new String(output.readAllBytes(), StandardCharsets.UTF_8);
+                if (!process.waitFor(DOCKER_COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    return null;
+                }
+                if (process.exitValue() != 0) {
+                    logger.debug("docker {} failed: {}", args[0], text.trim());
+                    return null;
+                }
+                return text;
+            }
+        } catch (IOException e) {
+            logger.debug("docker {} failed: {}", args[0], e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        reaper.shutdownNow();
+        for (BlockingDeque<PooledContainer> containers : idleContainers.values()) {
+            PooledContainer container;
+            while ((container = containers.pollFirst()) != null) {
+                runDocker("rm", "-f", container.id);
+                workspaceAllocator.release(container.workspace);
+            }
+        }
+        housekeeping.shutdownNow();
+    }
+
+    public static class PooledContainer {
+        final String id;
+        // Docker's full id, which names the container's cgroup
+        final String containerId;
+        final String language;
+        final Path workspace;
+        final ExecutionProfile profile;
+        int uses = 0;
+        volatile long lastUsedAt = System.currentTimeMillis();
+
+        PooledContainer(String id, String containerId, String language, Path workspace, ExecutionProfile profile) {
+            this.id = id;
+            this.containerId = containerId;
+            this.language = language;
+            this.workspace = workspace;
+            this.profile = profile;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getContainerId() {
+            return containerId;
+        }
+
+        public Path getWorkspace() {
+            return workspace;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.DistributedRateLimitProperties;
+import com.example.compiler.repository.RateLimitWindowRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rate limits shared by every node, counted in MongoDB per fixed window and weighted
+ * with the previous window to approximate the sliding windows of a single node. A node
+ * leases a share of the remaining quota with one atomic {@code $inc} and spends it
+ * locally; once a client's quota is used up the node refuses locally until enough of
+ * the previous window has faded to admit another hit. Leases only ever take quota that
+ * is left, so the cluster never admits more than a limit; hits leased to one node but
+ * not yet spent can make another refuse a client early.
+ *
+ * <p>Persistent policies are counted here even when distributed limits are disabled, so
+ * their counts survive restarts.
+ */
+@Service
+public class DistributedRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistributedRateLimiter.class);
+
+    @Autowired
+    private DistributedRateLimitProperties properties;
+
+    @Autowired
+    private RateLimitWindowRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private volatile long fallbackUntil;
+    private Counter leases;
+    private Counter returns;
+    private Counter reads;
+    private Counter failures;
+
+    @PostConstruct
+    public void init() {
+        leases = databaseCalls("lease");
+        returns = databaseCalls("return");
+        reads = databaseCalls("read");
+        failures = Counter.builder("ratelimit.distributed.failures")
+            .description("Database errors that made a node count rate limits on its own")
+            .register(meterRegistry);
+        try {
+            repository.ensureIndexes();
+        } catch (DataAccessException e) {
+            fallBack(e);
+        }
+        if (properties.isEnabled()) {
+            logger.info("Rate limits are shared through MongoDB collection {}, leasing {}% of remaining quota",
+                properties.getCollection(), Math.round(properties.getLeaseFraction() * 100));
+        }
+    }
+
+    private Counter databaseCalls(String operation) {
+        return Counter.builder("ratelimit.distributed.calls")
+            .description("Database round trips made for cluster-wide rate limits")
+            .tag("operation", operation)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Whether checks of a policy should go through the database now, rather than this
+     * node's counters.
+     */
+    public boolean isActive(RateLimitPolicy policy) {
+        return (properties.isEnabled() || policy.isPersistent()) && System.currentTimeMillis() >= fallbackUntil;
+    }
+
+    /**
+     * Count locally for a while after the database failed.
+     */
+    public void fallBack(DataAccessException e) {
+        long now = System.currentTimeMillis();
+        if (now >= fallbackUntil) {
+            logger.warn("Rate limit database unavailable, counting per node for {} s: {}",
+                properties.getFallbackInterval().toSeconds(), e.getMessage());
+        }
+        fallbackUntil = now + properties.getFallbackInterval().toMillis();
+        failures.increment();
+    }
+
+    /**
+     * Spends one hit of the client's quota, from this node's lease when it has any left.
+     *
+     * @return hits left across the cluster, estimated, or -1 when the quota is used up
+     * @throws DataAccessException when the database could not be reached
+     */
+    public int tryAcquire(Lease lease, RateLimitPolicy policy, String key, int limit, long windowMillis, long now) {
+        long window = now / windowMillis;
+        if (lease.window == window) {
+            int left = lease.take();
+            if (left >= 0) {
+                return lease.remaining + left;
+            }
+            if (now < lease.retryAt) {
+                return -1;
+            }
+        }
+        synchronized (lease) {
+            if (lease.window != window) {
+                lease.startWindow(window, limit);
+            }
+            // Another thread may have leased while this one waited
+            int left = lease.take();
+            if (left >= 0) {
+                return lease.remaining + left;
+            }
+            if (now < lease.retryAt) {
+                return -1;
+            }
+
+            if (lease.previousCount < 0) {
+                reads.increment();
+                lease.previousCount = repository.count(windowId(policy, key, window - 1));
+            }
+            // The part of the previous window still inside the sliding window, assuming its hits were spread evenly
+            double elapsed = (double) (now - window * windowMillis) / windowMillis;
+            int cap = limit - (int) Math.ceil(lease.previousCount * (1 - elapsed));
+
+            int wanted = (int) Math.ceil(Math.max(1, lease.remaining) * properties.getLeaseFraction());
+            // Small quotas would otherwise be leased a hit or two at a time
+            wanted = Math.max(wanted, Math.min(properties.getMinLease(), Math.max(1, limit / 4)));
+            wanted = Math.max(1, Math.min(wanted, properties.getMaxLease()));
+            String windowId = windowId(policy, key, window);
+            // Kept until the next window has stopped weighing this one
+            Date expiresAt = new Date((window + 2) * windowMillis);
+            leases.increment();
+            int before = repository.increment(windowId, wanted, expiresAt) - wanted;
+            int granted = Math.max(0, Math.min(wanted, cap - before));
+            if (granted < wanted) {
+                // Hand back what went over, so it stays available as the previous window fades
+                returns.increment();
+                repository.increment(windowId, granted - wanted, expiresAt);
+            }
+            lease.remaining = Math.max(0, cap - before - granted);
+            if (granted == 0) {
+                // Nothing frees up before then, so refuse locally until that time
+                lease.retryAt = freedAt(window, windowMillis, limit, lease.previousCount, before);
+                return -1;
+            }
+            lease.tokens.set(granted - 1);
+            return lease.remaining + granted - 1;
+        }
+    }
+
+    /**
+     * When the previous window has faded enough for a window counting used hits to take
+     * one more; the start of the next window when it never will. The current window's
+     * count only grows, so until then the quota stays used up.
+     */
+    static long freedAt(long window, long windowMillis, int limit, int previous, int used) {
+        long nextWindow = (window + 1) * windowMillis;
+        // Hits of the previous window that may still be weighed in for one more to fit
+        int room = limit - used - 1;
+        if (room < 0 || previous <= 0) {
+            return nextWindow;
+        }
+        // Once previous x (1 - elapsed) <= room, with elapsed in milliseconds rounded up
+        long elapsedMillis = Math.max(0, ((long) (previous - room) * windowMillis + previous - 1) / previous);
+        return Math.min(nextWindow, window * windowMillis + elapsedMillis);
+    }
+
+    /**
+     * Hands back a hit this node took but did not use.
+     */
+    public void release(Lease lease) {
+        lease.tokens.incrementAndGet();
+    }
+
+    /**
+     * Hits left to the client across the cluster, counting nothing.
+     *
+     * @throws DataAccessException when the database could not be reached
+     */
+    public int remaining(Lease lease, RateLimitPolicy policy, String key, int limit, long windowMillis, long now) {
+        long window = now / windowMillis;
+        reads.increment();
+        int previous = repository.count(windowId(policy, key, window - 1));
+        reads.increment();
+        int current = repository.count(windowId(policy, key, window));
+        double elapsed = (double) (now - window * windowMillis) / windowMillis;
+        int used = current + (int) Math.ceil(previous * (1 - elapsed));
+        // Leased to this node but not yet spent
+        int unspent = lease != null && lease.window == window ? Math.max(0, lease.tokens.get()) : 0;
+        return Math.max(0, limit - used + unspent);
+    }
+
+    private static String windowId(RateLimitPolicy policy, String key, long window) {
+        return policy.name() + ":" + key + ":" + window;
+    }
+
+    /**
+     * One node's share of a client's quota under one policy, for the current window.
+     */
+    public static final class Lease {
+        private final AtomicInteger tokens = new AtomicInteger();
+        private volatile long window = -1;
+        // Quota left across the cluster after the last lease, beyond this node's tokens
+        private volatile int remaining;
+        private volatile long retryAt;
+        private int previousCount = -1; // Guarded by the lease
+
+        void startWindow(long window, int limit) {
+            tokens.set(0);
+            remaining = limit;
+            retryAt = 0;
+            previousCount = -1;
+            this.window = window;
+        }
+
+        // Tokens left after taking one, or -1 when there were none
+        int take() {
+            while (true) {
+                int current = tokens.get();
+                if (current <= 0) {
+                    return -1;
+                }
+                if (tokens.compareAndSet(current, current - 1)) {
+                    return current - 1;
+                }
+            }
+        }
+    }
+}
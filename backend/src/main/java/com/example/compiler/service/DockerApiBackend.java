@@ -0,0 +1,292 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.ToolchainCacheProperties;
+import com.example.compiler.util.BoundedOutputBuffer;
+import com.example.compiler.util.OutputListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs code in Docker containers by talking to the Engine API directly over the
+ * daemon's Unix socket: create, attach, start, wait and remove, with the attach
+ * stream demultiplexed straight into the output buffers. No process is forked.
+ */
+@Component
+public class DockerApiBackend implements ExecutionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerApiBackend.class);
+
+    private static final long IMAGE_ID_TTL_MILLIS = 60_000;
+    private static final long DRAIN_GRACE_MILLIS = 2000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final ExecutorService IO_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "docker-api-io-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    private DockerEngineClient docker;
+
+    @Autowired
+    private WorkspaceAllocator workspaceAllocator;
+
+    @Autowired
+    private ToolchainCacheProperties toolchainCaches;
+
+    // Where the host's cgroup hierarchy is mounted, to measure containers from outside
+    @Value("${app.execution.cgroup-root:/sys/fs/cgroup}")
+    private Path cgroupRoot;
+
+    private final Map<String, ImageId> imageIds = new ConcurrentHashMap<>();
+
+    @Override
+    public String getMode() {
+        return "docker-api";
+    }
+
+    @Override
+    public void start(Map<String, LanguageConfig> languageConfigs) {
+        // Reject malformed cache mounts now rather than on the first run of the language
+        languageConfigs.keySet().forEach(toolchainCaches::getReadOnlyBinds);
+    }
+
+    @Override
+    public String getToolchainId(LanguageConfig config) {
+        ImageId cached = imageIds.get(config.getDockerImage());
+        if (cached != null && System.currentTimeMillis() - cached.resolvedAt < IMAGE_ID_TTL_MILLIS) {
+            return cached.id;
+        }
+        try {
+            String id = docker.inspectImageId(config.getDockerImage());
+            if (id != null) {
+                imageIds.put(config.getDockerImage(), new ImageId(id, System.currentTimeMillis()));
+            }
+            return id;
+        } catch (IOException e) {
+            logger.warn("Could not inspect image {}: {}", config.getDockerImage(), e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public Sandbox openSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        return new ApiContainerSandbox(config, profile);
+    }
+
+    /**
+     * Bind-mounts a host temp dir and creates a container through the API for every command.
+     */
+    private class ApiContainerSandbox extends HostDirectorySandbox {
+        private final LanguageConfig config;
+        private final ExecutionProfile profile;
+
+        ApiContainerSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+            // The sandbox user inside the container must be able to write build output here
+            super(workspaceAllocator.allocate(true));
+            this.config = config;
+            this.profile = profile;
+        }
+
+        @Override
+        protected boolean isContainerPerStep() {
+            return true;
+        }
+
+        @Override
+        protected ProcessResult execute(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                        int maxOutputBytes, StepUsage usage) throws IOException, InterruptedException {
+            String name = "oc-run-" + UUID.randomUUID();
+            logger.info("Executing in container {} via Docker API: {}", name, command);
+            String id = docker.createContainer(name, containerConfig(command));
+            ContainerCgroup cgroup = new ContainerCgroup(cgroupRoot, id);
+            // The cgroup goes away with the container's only command, so it is sampled while that runs
+            try (DockerEngineClient.Attachment attachment = docker.attach(id);
+                 ContainerCgroup.Sampler sampler = usage != null ? new ContainerCgroup.Sampler(() -> cgroup) : null) {
+                docker.startContainer(id);
+                ProcessResult result = collect(id, attachment, stdin, listener, timeoutSeconds, maxOutputBytes);
+                if (usage != null) {
+                    usage.fromCounters(Map.of(), sampler.last(), true);
+                    usage.oomKilled |= wasOomKilled(id);
+                }
+                return result;
+            } finally {
+                docker.removeContainer(id);
+            }
+        }
+
+        private Map<String, Object> containerConfig(String command) {
+            Map<String, Object> hostConfig = new HashMap<>();
+            List<String> binds = new ArrayList<>();
+            binds.add(workDir + ":/workspace");
+            binds.addAll(toolchainCaches.getReadOnlyBinds(this.config.getLanguage()));
+            hostConfig.put("Binds", binds);
+            hostConfig.put("Memory", profile.getMemoryBytes());
+            hostConfig.put("NanoCpus", (long) (profile.getCpuLimit() * 1_000_000_000L));
+            hostConfig.put("PidsLimit", profile.getPidsLimit());
+            hostConfig.put("NetworkMode", "none");
+            hostConfig.put("Tmpfs", Map.of("/tmp", "exec"));
+
+            Map<String, Object> config = new HashMap<>();
+            config.put("Image", this.config.getDockerImage());
+            config.put("Cmd", List.of("sh", "-c", command));
+            config.put("WorkingDir", "/workspace");
+            config.put("NetworkDisabled", true);
+            config.put("Tty", false);
+            // stdin closes for the program as soon as our side of the attach stream is shut down
+            config.put("OpenStdin", true);
+            config.put("StdinOnce", true);
+            config.put("AttachStdin", true);
+            config.put("AttachStdout", true);
+            config.put("AttachStderr", true);
+            config.put("HostConfig", hostConfig);
+            return config;
+        }
+
+        @Override
+        public void close() {
+            workspaceAllocator.release(workDir);
+        }
+    }
+
+    // Asked from the host, so the program cannot make it up; false when unknown
+    private boolean wasOomKilled(String id) {
+        try {
+            return docker.wasOomKilled(id);
+        } catch (IOException e) {
+            logger.debug("Could not inspect container {}: {}", id, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Feeds stdin and demultiplexes output until the container exits, the timeout
+     * passes or the output cap is exceeded. Killing means removing the container.
+     */
+    private ProcessResult collect(String id, DockerEngineClient.Attachment attachment, InputStream stdin,
+                                  OutputListener listener, int timeoutSeconds, int maxOutputBytes)
+            throws IOException, InterruptedException {
+        BoundedOutputBuffer stdout = listener == null
+            ? new BoundedOutputBuffer(maxOutputBytes) : BoundedOutputBuffer.counting(maxOutputBytes);
+        BoundedOutputBuffer stderr = listener == null
+            ? new BoundedOutputBuffer(maxOutputBytes) : BoundedOutputBuffer.counting(maxOutputBytes);
+        AtomicBoolean killed = new AtomicBoolean(false);
+        Runnable killOnce = () -> {
+            if (killed.compareAndSet(false, true)) {
+                docker.removeContainer(id);
+            }
+        };
+
+        Future<?> stdinFeed = IO_THREADS.submit(() -> feed(attachment, stdin));
+        Future<?> drain = IO_THREADS.submit(() -> demultiplex(attachment, stdout, stderr, listener, killOnce));
+        try {
+            boolean timedOut = false;
+            try {
+                drain.get(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                timedOut = !killed.get();
+                killOnce.run();
+                awaitDrain(drain);
+            }
+
+            int exitCode = killed.get() ? -1 : docker.waitContainer(id);
+            boolean outputLimitExceeded = stdout.isTruncated() || stderr.isTruncated();
+            return new ProcessResult(stdout.toString(), stderr.toString(), exitCode, timedOut,
+                outputLimitExceeded, stdout.getDroppedBytes(), stderr.getDroppedBytes());
+        } catch (InterruptedException e) {
+            killOnce.run();
+            throw e;
+        } catch (ExecutionException e) {
+            killOnce.run();
+            throw new IOException("Reading container output failed", e.getCause());
+        } finally {
+            drain.cancel(true);
+            stdinFeed.cancel(true);
+        }
+    }
+
+    private void demultiplex(DockerEngineClient.Attachment attachment, BoundedOutputBuffer stdout,
+                             BoundedOutputBuffer stderr, OutputListener listener, Runnable kill) {
+        byte[] chunk = new byte[8192];
+        try {
+            int read;
+            while ((read = attachment.read(chunk)) != -1) {
+                boolean isStderr = attachment.getStream() == DockerEngineClient.Attachment.STDERR;
+                BoundedOutputBuffer buffer = isStderr ? stderr : stdout;
+                int before = buffer.size();
+                boolean withinCap = buffer.write(chunk, 0, read);
+                int accepted = buffer.size() - before;
+                if (listener != null && accepted > 0) {
+                    listener.onOutput(isStderr, chunk, 0, accepted);
+                }
+                if (!withinCap) {
+                    kill.run();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // Attach stream closed because the container was removed, or nobody is listening
+            logger.debug("Container output ended: {}", e.getMessage());
+            kill.run();
+        }
+    }
+
+    private static void feed(DockerEngineClient.Attachment attachment, InputStream stdin) {
+        try {
+            if (stdin != null) {
+                OutputStream containerInput = attachment.getStdin();
+                byte[] chunk = new byte[8192];
+                int read;
+                while ((read = stdin.read(chunk)) != -1) {
+                    containerInput.write(chunk, 0, read);
+                }
+            }
+            attachment.closeStdin();
+        } catch (IOException e) {
+            // The program exited or closed stdin before reading all input
+            logger.debug("Could not write all stdin: {}", e.getMessage());
+        }
+    }
+
+    private static void awaitDrain(Future<?> drain) throws InterruptedException {
+        try {
+            drain.get(DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            logger.debug("Container output drain did not finish: {}", e.getMessage());
+        }
+    }
+
+    private static class ImageId {
+        final String id;
+        final long resolvedAt;
+
+        ImageId(String id, long resolvedAt) {
+            this.id = id;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
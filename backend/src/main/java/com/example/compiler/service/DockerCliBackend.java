@@ -0,0 +1,403 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.ToolchainCacheProperties;
+import com.example.compiler.util.OutputListener;
+import com.example.compiler.util.ProcessRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs code in Docker containers through the {@code docker} CLI, using a warm
+ * pooled container when one is idle and a cold {@code docker run} otherwise.
+ */
+@Component
+public class DockerCliBackend implements ExecutionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerCliBackend.class);
+
+    private static final long IMAGE_ID_TTL_MILLIS = 60_000;
+
+    @Autowired
+    private ContainerPool containerPool;
+
+    @Autowired
+    private WorkspaceAllocator workspaceAllocator;
+
+    @Autowired
+    private ToolchainCacheProperties toolchainCaches;
+
+    // Where the host's cgroup hierarchy is mounted, to measure containers from outside
+    @Value("${app.execution.cgroup-root:/sys/fs/cgroup}")
+    private Path cgroupRoot;
+
+    private final Map<String, ImageId> imageIds = new ConcurrentHashMap<>();
+
+    @Override
+    public String getMode() {
+        return "docker";
+    }
+
+    @Override
+    public void start(Map<String, LanguageConfig> languageConfigs) {
+        // Reject malformed cache mounts now rather than on the first run of the language
+        languageConfigs.keySet().forEach(toolchainCaches::getReadOnlyBinds);
+        containerPool.start(languageConfigs, this::sandboxOptions);
+    }
+
+    /**
+     * Image ID of the language's toolchain image, so rebuilt images never reuse stale
+     * artifacts. Looked up once per image and refreshed periodically.
+     */
+    @Override
+    public String getToolchainId(LanguageConfig config) {
+        ImageId cached = imageIds.get(config.getDockerImage());
+        if (cached != null && System.currentTimeMillis() - cached.resolvedAt < IMAGE_ID_TTL_MILLIS) {
+            return cached.id;
+        }
+        try {
+            ProcessResult result = ProcessRunner.run(
+                new ProcessBuilder("docker", "image", "inspect", "--format", "{{.Id}}", config.getDockerImage()),
+                null, 30, 4096);
+            if (result.isTimedOut() || result.getExitCode() != 0) {
+                return null;
+            }
+            String id = result.getStdout().trim();
+            imageIds.put(config.getDockerImage(), new ImageId(id, System.currentTimeMillis()));
+            return id;
+        } catch (IOException e) {
+            logger.warn("Could not inspect image {}: {}", config.getDockerImage(), e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    @Override
+    public Sandbox openSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        // Prefer a warm container when one with the same limits is idle for this language
+        ContainerPool.PooledContainer container = containerPool.acquire(config.getLanguage(), profile);
+        if (container != null) {
+            return new PooledContainerSandbox(container, profile);
+        }
+        return new ColdContainerSandbox(config, profile);
+    }
+
+    @Override
+    public Sandbox openBatchSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        ContainerPool.PooledContainer container = containerPool.acquire(config.getLanguage(), profile);
+        if (container != null) {
+            return new PooledContainerSandbox(container, profile);
+        }
+        return new DetachedContainerSandbox(config, profile);
+    }
+
+    @Override
+    public Sandbox openWorkerSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        // Never a pooled container: a worker keeps its container for many jobs
+        return new DetachedContainerSandbox(config, profile);
+    }
+
+    @Override
+    public boolean isWorkerUserDedicated() {
+        return true;
+    }
+
+    private void removeContainer(String containerName) {
+        try {
+            new ProcessBuilder("docker", "rm", "-f", containerName)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        } catch (IOException e) {
+            logger.warn("Could not remove container {}: {}", containerName, e.getMessage());
+        }
+    }
+
+    private ContainerCgroup cgroupFromIdFile(Path idFile) {
+        try {
+            String id = Files.exists(idFile) ? Files.readString(idFile).trim() : "";
+            return id.isEmpty() ? null : new ContainerCgroup(cgroupRoot, id);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // docker exec starts the shell as a session leader, so its pid is the group of everything the command starts
+    private static String recordProcessGroup(String groupFile, String command) {
+        return "echo $$ > " + groupFile + "; " + command;
+    }
+
+    /**
+     * Kills a command started through {@code docker exec} with everything it started.
+     * Killing the local CLI client alone leaves the program running in the container.
+     */
+    private void killProcessGroup(String container, String groupFile) {
+        String kill = "g=$(cat " + groupFile + " 2>/dev/null) && { kill -9 -$g 2>/dev/null || kill -9 $g; }; "
+            + "rm -f " + groupFile;
+        try {
+            ProcessResult result = ProcessRunner.run(new ProcessBuilder("docker", "exec", container, "sh", "-c", kill),
+                null, 30, 4096);
+            if (result.isTimedOut() || result.getExitCode() != 0) {
+                logger.warn("Could not kill command in container {}: {}", container, result.getStderr().trim());
+            }
+        } catch (IOException e) {
+            logger.warn("Could not kill command in container {}: {}", container, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String newGroupFile() {
+        return "/tmp/.oc-exec-" + UUID.randomUUID();
+    }
+
+    // Resource and isolation flags, plus the language's shared caches, for cold and pooled containers
+    private List<String> sandboxOptions(LanguageConfig config, ExecutionProfile profile) {
+        List<String> options = new ArrayList<>(Arrays.asList(
+            "--memory=" + profile.getMemoryLimit(),
+            "--cpus=" + profile.getCpuLimit(),
+            "--network=none",
+            "--pids-limit=" + profile.getPidsLimit(),
+            "--tmpfs=/tmp:exec"
+        ));
+        for (String bind : toolchainCaches.getReadOnlyBinds(config.getLanguage())) {
+            options.addAll(Arrays.asList("-v", bind));
+        }
+        return options;
+    }
+
+    /**
+     * Bind-mounts a host temp dir and starts a new container for every command.
+     */
+    private class ColdContainerSandbox extends HostDirectorySandbox {
+        private final LanguageConfig config;
+        private final ExecutionProfile profile;
+
+        ColdContainerSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+            // The sandbox user inside the container must be able to write build output here
+            super(workspaceAllocator.allocate(true));
+            this.config = config;
+            this.profile = profile;
+            logger.info("Using workspace directory: {}", workDir);
+        }
+
+        @Override
+        protected boolean isContainerPerStep() {
+            return true;
+        }
+
+        @Override
+        protected ProcessResult execute(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                        int maxOutputBytes, StepUsage usage) throws IOException, InterruptedException {
+            // Named so the container itself can be removed when the CLI client is killed
+            String containerName = "oc-run-" + UUID.randomUUID();
+            List<String> dockerCommand = new ArrayList<>(Arrays.asList("docker", "run", "--rm", "--name", containerName));
+            // A measured container's id is written out so its cgroup can be found while it runs
+            Path idFile = workDir.resolveSibling(workDir.getFileName() + "-" + containerName + ".id");
+            if (usage != null) {
+                dockerCommand.addAll(Arrays.asList("--cidfile", idFile.toString()));
+            }
+            dockerCommand.addAll(sandboxOptions(config, profile));
+            dockerCommand.addAll(Arrays.asList(
+                "-v", workDir.toString() + ":/workspace",
+                "-w", "/workspace"
+            ));
+            if (stdin != null) {
+                dockerCommand.add("--interactive");
+            }
+            dockerCommand.add(config.getDockerImage());
+            dockerCommand.addAll(Arrays.asList("sh", "-c", command));
+
+            logger.info("Executing Docker command: {}", String.join(" ", dockerCommand));
+
+            ProcessBuilder pb = new ProcessBuilder(dockerCommand);
+            pb.directory(workDir.toFile());
+            if (usage == null) {
+                return ProcessRunner.run(pb, stdin, listener, timeoutSeconds, maxOutputBytes,
+                    () -> removeContainer(containerName));
+            }
+            // The cgroup goes away with the container's only command, so it is sampled while that runs
+            try (ContainerCgroup.Sampler sampler = new ContainerCgroup.Sampler(() -> cgroupFromIdFile(idFile))) {
+                ProcessResult result = ProcessRunner.run(pb, stdin, listener, timeoutSeconds, maxOutputBytes,
+                    () -> removeContainer(containerName));
+                usage.fromCounters(Map.of(), sampler.last(), true);
+                // The oom_kill count is missed when the container is gone before the next sample, so a
+                // SIGKILL outside a timeout with memory near the limit when last sampled is taken as one
+                if (!usage.oomKilled && !result.isTimedOut() && result.getExitCode() == 137
+                        && profile.getMemoryBytes() > 0 && usage.peakMemoryBytes >= profile.getMemoryBytes() * 9 / 10) {
+                    usage.oomKilled = true;
+                }
+                return result;
+            } finally {
+                Files.deleteIfExists(idFile);
+            }
+        }
+
+        @Override
+        public void close() {
+            workspaceAllocator.release(workDir);
+        }
+    }
+
+    /**
+     * Starts one long-lived container for the sandbox and runs every command in it
+     * through {@code docker exec}, so a batch pays for a single container start.
+     */
+    private class DetachedContainerSandbox extends HostDirectorySandbox {
+        private final String containerName = "oc-batch-" + UUID.randomUUID();
+        private final ExecutionProfile profile;
+        private ContainerCgroup cgroup;
+
+        DetachedContainerSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+            super(workspaceAllocator.allocate(true));
+            this.profile = profile;
+
+            List<String> dockerCommand = new ArrayList<>(Arrays.asList("docker", "run", "-d", "--rm", "--name", containerName));
+            dockerCommand.addAll(sandboxOptions(config, profile));
+            dockerCommand.addAll(Arrays.asList(
+                "-v", workDir.toString() + ":/workspace",
+                "-w", "/workspace",
+                config.getDockerImage(),
+                "tail", "-f", "/dev/null"
+            ));
+            try {
+                ProcessResult started = ProcessRunner.run(new ProcessBuilder(dockerCommand), null, 30, 4096);
+                if (started.isTimedOut() || started.getExitCode() != 0) {
+                    throw new IOException("Could not start container: " + started.getStderr().trim());
+                }
+                cgroup = new ContainerCgroup(cgroupRoot, started.getStdout().trim());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IOException("Interrupted while starting container", e);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        protected boolean isInContainer() {
+            return true;
+        }
+
+        @Override
+        protected ContainerCgroup sharedCgroup() {
+            return cgroup;
+        }
+
+        @Override
+        protected ProcessResult execute(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                        int maxOutputBytes, StepUsage usage) throws IOException, InterruptedException {
+            logger.info("Executing in container {}: {}", containerName, command);
+            // Other test cases share the container, so a killed case must not keep using its CPU quota
+            String groupFile = newGroupFile();
+            ProcessBuilder pb = new ProcessBuilder("docker", "exec", "-i", "-w", "/workspace", containerName, "sh", "-c",
+                recordProcessGroup(groupFile, command));
+            return ProcessRunner.run(pb, stdin, listener, timeoutSeconds, maxOutputBytes,
+                () -> killProcessGroup(containerName, groupFile));
+        }
+
+        @Override
+        public Process spawn(String command) throws IOException {
+            logger.info("Starting in container {}: {}", containerName, command);
+            return new ProcessBuilder("docker", "exec", "-i", "-w", "/workspace", containerName, "sh", "-c", command)
+                .start();
+        }
+
+        @Override
+        public int getParallelism() {
+            return profile.getCpuCount();
+        }
+
+        @Override
+        public void close() {
+            removeContainer(containerName);
+            workspaceAllocator.release(workDir);
+        }
+    }
+
+    /**
+     * Runs commands through {@code docker exec} in a warm container whose workspace
+     * is a bind-mounted host directory. A container
+     * whose command timed out or failed is not handed back to the pool.
+     */
+    private class PooledContainerSandbox extends HostDirectorySandbox {
+        private final ContainerPool.PooledContainer container;
+        private final ExecutionProfile profile;
+        // Set once any command failed or was killed; commands may run concurrently
+        private volatile boolean broken = false;
+
+        PooledContainerSandbox(ContainerPool.PooledContainer container, ExecutionProfile profile) {
+            super(container.getWorkspace());
+            this.container = container;
+            this.profile = profile;
+        }
+
+        @Override
+        protected boolean isInContainer() {
+            return true;
+        }
+
+        @Override
+        protected ContainerCgroup sharedCgroup() {
+            return new ContainerCgroup(cgroupRoot, container.getContainerId());
+        }
+
+        @Override
+        protected ProcessResult execute(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                        int maxOutputBytes, StepUsage usage) throws IOException, InterruptedException {
+            logger.info("Executing in pooled container {}: {}", container.getId(), command);
+            boolean clean = false;
+            String groupFile = newGroupFile();
+            try {
+                ProcessResult result = ProcessRunner.run(
+                    new ProcessBuilder(containerPool.execCommand(container, recordProcessGroup(groupFile, command))),
+                    stdin, listener, timeoutSeconds, maxOutputBytes,
+                    () -> killProcessGroup(container.getId(), groupFile));
+                // A killed program may still be running inside the container
+                clean = !result.isTimedOut() && !result.isOutputLimitExceeded();
+                return result;
+            } finally {
+                if (!clean) {
+                    broken = true;
+                }
+            }
+        }
+
+        @Override
+        public int getParallelism() {
+            return profile.getCpuCount();
+        }
+
+        @Override
+        public void close() {
+            containerPool.release(container, !broken);
+        }
+    }
+
+    private static class ImageId {
+        final String id;
+        final long resolvedAt;
+
+        ImageId(String id, long resolvedAt) {
+            this.id = id;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+}
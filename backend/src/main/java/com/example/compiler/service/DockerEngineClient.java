@@ -0,0 +1,441 @@
+package com.example.compiler.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Minimal Docker Engine API client speaking HTTP/1.1 over the daemon's Unix socket.
+ * Keep-alive connections are pooled; attach requests take a connection of their own,
+ * which the daemon then uses as a raw stream for the container's stdio.
+ */
+@Component
+public class DockerEngineClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerEngineClient.class);
+
+    private static final int MAX_HEADER_LINE = 8192;
+
+    @Value("${app.execution.docker-api.socket:/var/run/docker.sock}")
+    private String socketPath;
+
+    @Value("${app.execution.docker-api.version:v1.41}")
+    private String apiVersion;
+
+    private final BlockingQueue<Connection> idleConnections;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public DockerEngineClient(@Value("${app.execution.docker-api.max-idle-connections:16}") int maxIdleConnections) {
+        this.idleConnections = new ArrayBlockingQueue<>(Math.max(1, maxIdleConnections));
+    }
+
+    /**
+     * @return the new container's id
+     */
+    public String createContainer(String name, Map<String, Object> config) throws IOException {
+        Response response = request("POST", "/containers/create?name=" + encode(name), objectMapper.writeValueAsBytes(config));
+        expect(response, 201);
+        return objectMapper.readTree(response.body).path("Id").asText();
+    }
+
+    public void startContainer(String id) throws IOException {
+        Response response = request("POST", "/containers/" + id + "/start", null);
+        expect(response, 204, 304);
+    }
+
+    /**
+     * Blocks until the container stops.
+     *
+     * @return the container's exit code
+     */
+    public int waitContainer(String id) throws IOException {
+        Response response = request("POST", "/containers/" + id + "/wait", null);
+        expect(response, 200);
+        return objectMapper.readTree(response.body).path("StatusCode").asInt(-1);
+    }
+
+    /**
+     * Whether the kernel's OOM killer ended a process of the container, which is still
+     * known after it stopped until it is removed.
+     */
+    public boolean wasOomKilled(String id) throws IOException {
+        Response response = request("GET", "/containers/" + id + "/json", null);
+        expect(response, 200);
+        return objectMapper.readTree(response.body).path("State").path("OOMKilled").asBoolean(false);
+    }
+
+    // Kills the container if it is still running
+    public void removeContainer(String id) {
+        try {
+            Response response = request("DELETE", "/containers/" + id + "?force=true", null);
+            if (response.status != 204 && response.status != 404) {
+                logger.warn("Could not remove container {}: HTTP {}", id, response.status);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not remove container {}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the image id, or null when the image does not exist
+     */
+    public String inspectImageId(String image) throws IOException {
+        Response response = request("GET", "/images/" + image + "/json", null);
+        if (response.status == 404) {
+            return null;
+        }
+        expect(response, 200);
+        JsonNode id = objectMapper.readTree(response.body).path("Id");
+        return id.isMissingNode() ? null : id.asText();
+    }
+
+    /**
+     * Attaches to a created container's stdin, stdout and stderr. Attach before starting
+     * the container so no early output is missed.
+     */
+    public Attachment attach(String id) throws IOException {
+        Connection connection = openConnection();
+        try {
+            String path = "/containers/" + id + "/attach?stream=1&stdin=1&stdout=1&stderr=1";
+            connection.writeRequest("POST", versioned(path), null, Map.of("Connection", "Upgrade", "Upgrade", "tcp"));
+            Response response = connection.readResponseHead();
+            if (response.status != 101 && response.status != 200) {
+                throw new IOException("Attach failed with HTTP " + response.status);
+            }
+            return new Attachment(connection);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private Response request(String method, String path, byte[] body) throws IOException {
+        Connection connection = idleConnections.poll();
+        boolean reused = connection != null;
+        if (connection == null) {
+            connection = openConnection();
+        }
+        boolean sent = false;
+        try {
+            connection.writeRequest(method, versioned(path), body, Map.of());
+            sent = true;
+            Response response = connection.readResponse();
+            if (response.keepAlive) {
+                release(connection);
+            } else {
+                connection.close();
+            }
+            return response;
+        } catch (IOException e) {
+            connection.close();
+            // The daemon may have closed an idle connection. Retry on a fresh one only when the request
+            // never left or repeating it is harmless; a create or start may already have happened
+            if (reused && (!sent || isIdempotent(method))) {
+                return request(method, path, body);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isIdempotent(String method) {
+        return method.equals("GET") || method.equals("DELETE");
+    }
+
+    private void release(Connection connection) {
+        if (!idleConnections.offer(connection)) {
+            connection.close();
+        }
+    }
+
+    private Connection openConnection() throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new Connection(channel);
+    }
+
+    private String versioned(String path) {
+        return apiVersion.isEmpty() ? path : "/" + apiVersion + path;
+    }
+
+    private static void expect(Response response, int... statuses) throws IOException {
+        for (int status : statuses) {
+            if (response.status == status) {
+                return;
+            }
+        }
+        String message = new String(response.body, StandardCharsets.UTF_8).trim();
+        throw new IOException("Docker API returned HTTP " + response.status + ": " + message);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Connection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Raw stdio stream of an attached container. Output is multiplexed: every frame
+     * starts with an 8-byte header naming the stream and the payload length.
+     */
+    public static class Attachment implements Closeable {
+        public static final int STDOUT = 1;
+        public static final int STDERR = 2;
+
+        private final Connection connection;
+        private final byte[] header = new byte[8];
+        private int remaining = 0;
+        private int stream;
+
+        Attachment(Connection connection) {
+            this.connection = connection;
+        }
+
+        public OutputStream getStdin() {
+            return connection.out;
+        }
+
+        // Signals EOF on the container's stdin
+        public void closeStdin() throws IOException {
+            connection.channel.shutdownOutput();
+        }
+
+        /**
+         * Reads the next piece of output into the buffer.
+         *
+         * @return the number of bytes read, or -1 once the container's output has ended;
+         *         {@link #getStream()} tells which stream they came from
+         */
+        public int read(byte[] buffer) throws IOException {
+            while (remaining == 0) {
+                if (!readFully(header)) {
+                    return -1;
+                }
+                stream = header[0];
+                remaining = ((header[4] & 0xff) << 24) | ((header[5] & 0xff) << 16)
+                    | ((header[6] & 0xff) << 8) | (header[7] & 0xff);
+            }
+            int read = connection.in.read(buffer, 0, Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Output stream ended inside a frame");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        public int getStream() {
+            return stream;
+        }
+
+        private boolean readFully(byte[] target) throws IOException {
+            int offset = 0;
+            while (offset < target.length) {
+                int read = connection.in.read(target, offset, target.length - offset);
+                if (read == -1) {
+                    if (offset == 0) {
+                        return false;
+                    }
+                    throw new EOFException("Output stream ended inside a frame header");
+                }
+                offset += read;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            connection.close();
+        }
+    }
+
+    private static class Response {
+        int status;
+        boolean keepAlive = true;
+        Map<String, String> headers = new HashMap<>();
+        byte[] body = new byte[0];
+    }
+
+    /**
+     * One socket to the daemon. Reads and writes go straight to the channel so that a
+     * thread feeding stdin never waits on a thread blocked reading output.
+     */
+    static class Connection implements Closeable {
+        final SocketChannel channel;
+        final InputStream in;
+        final OutputStream out;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = new BufferedInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] single = new byte[1];
+                    int read = read(single, 0, 1);
+                    return read == -1 ? -1 : single[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    return channel.read(ByteBuffer.wrap(buffer, offset, length));
+                }
+            });
+            this.out = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] buffer, int offset, int length) throws IOException {
+                    ByteBuffer data = ByteBuffer.wrap(buffer, offset, length);
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                }
+            };
+        }
+
+        void writeRequest(String method, String path, byte[] body, Map<String, String> extraHeaders) throws IOException {
+            StringBuilder head = new StringBuilder();
+            head.append(method).append(' ').append(path).append(" HTTP/1.1\r\n");
+            head.append("Host: docker\r\n");
+            for (Map.Entry<String, String> header : extraHeaders.entrySet()) {
+                head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+            }
+            if (body != null) {
+                head.append("Content-Type: application/json\r\n");
+            }
+            head.append("Content-Length: ").append(body != null ? body.length : 0).append("\r\n\r\n");
+
+            ByteArrayOutputStream request = new ByteArrayOutputStream(head.length() + (body != null ? body.length : 0));
+            request.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+            if (body != null) {
+                request.write(body);
+            }
+            out.write(request.toByteArray());
+        }
+
+        Response readResponse() throws IOException {
+            Response response = readResponseHead();
+            String transferEncoding = response.headers.getOrDefault("transfer-encoding", "");
+            String contentLength = response.headers.get("content-length");
+            if (transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                response.body = readChunked();
+            } else if (contentLength != null) {
+                response.body = readExactly(Integer.parseInt(contentLength.trim()));
+            } else if (response.status != 204 && response.status != 304) {
+                // Body runs until the daemon closes the connection
+                response.body = in.readAllBytes();
+                response.keepAlive = false;
+            }
+            return response;
+        }
+
+        Response readResponseHead() throws IOException {
+            String statusLine = readLine();
+            String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Malformed response from Docker daemon: " + statusLine);
+            }
+            Response response = new Response();
+            response.status = Integer.parseInt(parts[1]);
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    response.headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                        line.substring(colon + 1).trim());
+                }
+            }
+            if ("close".equalsIgnoreCase(response.headers.get("connection"))) {
+                response.keepAlive = false;
+            }
+            return response;
+        }
+
+        private byte[] readChunked() throws IOException {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            while (true) {
+                String sizeLine = readLine();
+                int semicolon = sizeLine.indexOf(';');
+                int size = Integer.parseInt((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+                if (size == 0) {
+                    // Skip trailers up to the blank line
+                    while (!readLine().isEmpty()) {
+                        // ignore
+                    }
+                    return body.toByteArray();
+                }
+                body.write(readExactly(size));
+                readLine();
+            }
+        }
+
+        private byte[] readExactly(int length) throws IOException {
+            byte[] data = in.readNBytes(length);
+            if (data.length < length) {
+                throw new EOFException("Docker daemon closed the connection mid-response");
+            }
+            return data;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    byte[] bytes = line.toByteArray();
+                    int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                    return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+                }
+                if (line.size() >= MAX_HEADER_LINE) {
+                    throw new IOException("Response line from Docker daemon too long");
+                }
+                line.write(b);
+            }
+            throw new EOFException("Docker daemon closed the connection");
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to release
+            }
+        }
+    }
+}
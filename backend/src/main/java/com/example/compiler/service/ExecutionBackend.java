@@ -0,0 +1,62 @@
+package com.example.compiler.service;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A place where submitted code can be compiled and run. The active backend is
+ * chosen through {@code app.execution.mode}.
+ */
+public interface ExecutionBackend {
+
+    /**
+     * Value of {@code app.execution.mode} that selects this backend.
+     */
+    String getMode();
+
+    /**
+     * Called once at startup when this backend is the active one.
+     */
+    default void start(Map<String, LanguageConfig> languageConfigs) {
+    }
+
+    /**
+     * Identifies the toolchain that compiles the language, e.g. an image digest.
+     * Compiled artifacts are only reused for the same toolchain; null disables reuse.
+     */
+    default String getToolchainId(LanguageConfig config) {
+        return null;
+    }
+
+    /**
+     * Opens a fresh, isolated workspace for one execution of the given language,
+     * limited to the profile's memory, CPU and process count.
+     */
+    Sandbox openSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException;
+
+    /**
+     * Opens a workspace in which many commands will run, possibly concurrently, such as
+     * the test cases of one batch. Backends that start a container per command should
+     * keep one running for the sandbox's lifetime instead.
+     */
+    default Sandbox openBatchSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        return openSandbox(config, profile);
+    }
+
+    /**
+     * Opens a workspace that hosts one long-lived language worker for as long as the
+     * worker lives. Language workers stay disabled when its {@link Sandbox#spawn} is
+     * unsupported.
+     */
+    default Sandbox openWorkerSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        return openBatchSandbox(config, profile);
+    }
+
+    /**
+     * Whether nothing but the worker runs as the sandbox user in a worker sandbox, so the
+     * Python and Node workers may kill every other process of that user between jobs.
+     */
+    default boolean isWorkerUserDedicated() {
+        return false;
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.compiler.service;
+
+import com.example.compiler.model.ExecuteResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution: identical requests (same language, code, stdin, output cap,
+ * execution profile and compile-only flag) that arrive while one of them is running wait for that run and share its result
+ * instead of starting their own. Requests flagged deterministic can also be answered
+ * from a short-lived result cache.
+ *
+ * <p>Jobs are matched when they are submitted, so a follower waits for its leader job
+ * without taking a queue place or worker; {@link #execute} catches identical runs that
+ * reach workers anyway, such as those sent to a fleet worker by several coordinators.
+ */
+@Service
+public class ExecutionCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionCoalescer.class);
+
+    @Value("${app.execution.coalescing.enabled:true}")
+    private boolean enabled;
+
+    // How long results of deterministic programs are reused; 0 disables the cache
+    @Value("${app.execution.coalescing.result-ttl:30s}")
+    private Duration resultTtl;
+
+    @Value("${app.execution.coalescing.max-cached-results:1000}")
+    private int maxCachedResults;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, CompletableFuture<ExecuteResponse>> inFlight = new ConcurrentHashMap<>();
+    // Queued or running jobs that identical jobs submitted since follow
+    private final Map<String, ExecutionJob> leaders = new ConcurrentHashMap<>();
+    private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+
+    private Counter executed;
+    private Counter joined;
+    private Counter cached;
+
+    @PostConstruct
+    public void registerMetrics() {
+        executed = coalesceCounter("executed");
+        joined = coalesceCounter("joined");
+        cached = coalesceCounter("cached");
+        Gauge.builder("execution.coalesce.ratio", this, ExecutionCoalescer::getCoalesceRatio)
+            .description("Share of requests answered by another request's run or the result cache")
+            .register(meterRegistry);
+    }
+
+    private Counter coalesceCounter(String outcome) {
+        return Counter.builder("execution.coalesce.requests")
+            .tag("outcome", outcome)
+            .description("Execution requests by how they were answered")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs the execution, or waits for an identical one already running.
+     *
+     * @param deterministic the caller vouches that the program's output depends only on
+     *                      its input, so results may be served from the cache
+     */
+    public ExecuteResponse execute(String language, String code, String input, int outputCap,
+                                   ExecutionProfile profile, boolean compileOnly, boolean deterministic,
+                                   Supplier<ExecuteResponse> execution) {
+        if (!enabled) {
+            return execution.get();
+        }
+        String key = key(language, code, input, outputCap, profile, compileOnly);
+        boolean cacheable = deterministic && !resultTtl.isZero();
+        if (cacheable) {
+            CachedResult hit = results.get(key);
+            if (hit != null && !hit.isExpired()) {
+                cached.increment();
+                return copy(hit.response, "cached");
+            }
+        }
+
+        CompletableFuture<ExecuteResponse> mine = new CompletableFuture<>();
+        CompletableFuture<ExecuteResponse> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            ExecuteResponse response = await(running);
+            if (response == null) {
+                // The run we waited for was cancelled; try again, possibly as the leader
+                return execute(language, code, input, outputCap, profile, compileOnly, deterministic, execution);
+            }
+            joined.increment();
+            logger.debug("Shared in-flight {} execution {}", language, key);
+            return copy(response, "joined");
+        }
+
+        executed.increment();
+        ExecuteResponse response = null;
+        try {
+            response = execution.get();
+            if (cacheable && isReusable(response)) {
+                cache(key, response);
+            }
+            // Callers add their own metadata; the shared original must stay untouched
+            return copy(response, null);
+        } finally {
+            inFlight.remove(key, mine);
+            // A run cut short by a cancel is not a valid answer for anyone else
+            mine.complete(Thread.currentThread().isInterrupted() ? null : response);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A recent result of an identical deterministic run, or null when there is none.
+     */
+    public ExecuteResponse cachedResult(String key) {
+        if (!enabled || resultTtl.isZero()) {
+            return null;
+        }
+        CachedResult hit = results.get(key);
+        if (hit == null || hit.isExpired()) {
+            return null;
+        }
+        cached.increment();
+        return copy(hit.response, "cached");
+    }
+
+    /**
+     * Makes the job the one identical jobs follow until it finishes, unless another
+     * already is.
+     *
+     * @return the job to follow, or null when this one leads
+     */
+    public ExecutionJob lead(String key, ExecutionJob job) {
+        if (!enabled) {
+            return null;
+        }
+        // A leader that has just finished may not have been removed yet
+        ExecutionJob leader = leaders.compute(key,
+            (k, current) -> current == null || current.getCompletion().isDone() ? job : current);
+        if (leader != job) {
+            return leader;
+        }
+        job.getCompletion().whenComplete((response, error) -> leaders.remove(key, job));
+        return null;
+    }
+
+    /**
+     * A follower's copy of its leader's result.
+     */
+    public ExecuteResponse joined(ExecuteResponse response) {
+        joined.increment();
+        return copy(response, "joined");
+    }
+
+    private ExecuteResponse await(CompletableFuture<ExecuteResponse> running) {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExecuteResponse.error("Execution interrupted");
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    // Only complete runs are worth replaying; errors may be transient
+    private static boolean isReusable(ExecuteResponse response) {
+        return response != null && response.getError() == null;
+    }
+
+    private void cache(String key, ExecuteResponse response) {
+        if (results.size() >= maxCachedResults) {
+            results.values().removeIf(CachedResult::isExpired);
+            if (results.size() >= maxCachedResults) {
+                return;
+            }
+        }
+        results.put(key, new CachedResult(response, System.currentTimeMillis() + resultTtl.toMillis()));
+    }
+
+    private static ExecuteResponse copy(ExecuteResponse source, String coalesced) {
+        ExecuteResponse copy = new ExecuteResponse(source.getStdout(), source.getStderr(), source.getExitCode(),
+            source.getExecutionTime());
+        copy.setError(source.getError());
+        copy.setOutputTruncated(source.isOutputTruncated());
+        copy.setStdoutTruncatedBytes(source.getStdoutTruncatedBytes());
+        copy.setStderrTruncatedBytes(source.getStderrTruncatedBytes());
+        copy.setTerminationReason(source.getTerminationReason());
+        copy.setPhases(source.getPhases());
+        copy.setMetadata(new HashMap<>(source.getMetadata()));
+        if (coalesced != null) {
+            copy.setMetadata("coalesced", coalesced);
+        }
+        return copy;
+    }
+
+    /**
+     * Hash of everything that determines the result. Line endings and trailing blank
+     * space at the end of the source do not change what a program does.
+     */
+    static String key(String language, String code, String input, int outputCap, ExecutionProfile profile,
+                      boolean compileOnly) {
+        String normalizedCode = code.replace("\r\n", "\n").stripTrailing();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{language.toLowerCase(), normalizedCode, input != null ? input : "",
+                    Integer.toString(outputCap), profile.toString(), compileOnly ? "compile-only" : "run"}) {
+                byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                // Length prefix so that parts cannot run into each other
+                digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public double getCoalesceRatio() {
+        double total = executed.count() + joined.count() + cached.count();
+        return total == 0 ? 0 : (joined.count() + cached.count()) / total;
+    }
+
+    private static class CachedResult {
+        final ExecuteResponse response;
+        final long expiresAt;
+
+        CachedResult(ExecuteResponse response, long expiresAt) {
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.compiler.service;
+
+import com.example.compiler.model.BatchExecuteResponse;
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.JobResponse;
+import com.example.compiler.model.JobStatus;
+import com.example.compiler.model.TestCase;
+import com.example.compiler.model.UserTier;
+import com.example.compiler.util.OutputListener;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * One queued or running execution. Status transitions are guarded so that a
+ * cancel racing with completion leaves the job in exactly one final state.
+ */
+public class ExecutionJob {
+    private final String id = UUID.randomUUID().toString();
+    private final String ownerKey;
+    private final String code;
+    private final String language;
+    private final String input;
+    private final String userId;
+    private final UserTier tier;
+    private final Integer maxOutputSize;
+    private final long submittedAt = System.currentTimeMillis();
+    private final CompletableFuture<ExecuteResponse> completion = new CompletableFuture<>();
+
+    private JobStatus status = JobStatus.QUEUED;
+    private Long startedAt;
+    private Long finishedAt;
+    private ExecuteResponse result;
+    private Future<?> future;
+    private boolean deterministic;
+    private boolean compileOnly;
+    // Set for streaming jobs only
+    private InputStream stdin;
+    private OutputListener outputListener;
+    // Set for batch jobs only
+    private List<TestCase> testCases;
+    private BatchExecuteResponse batchResult;
+
+    public ExecutionJob(String ownerKey, String code, String language, String input,
+                        String userId, UserTier tier, Integer maxOutputSize) {
+        this.ownerKey = ownerKey;
+        this.code = code;
+        this.language = language;
+        this.input = input;
+        this.userId = userId;
+        this.tier = tier;
+        this.maxOutputSize = maxOutputSize;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Rate-limit key of the caller that submitted the job; only they may see or cancel it
+    public String getOwnerKey() {
+        return ownerKey;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public UserTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Marks the program's output as depending only on its input, so a cached result for
+     * the same code and input may be returned.
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Only compiles the code, or checks its syntax for interpreted languages, without running it.
+     */
+    public void setCompileOnly(boolean compileOnly) {
+        this.compileOnly = compileOnly;
+    }
+
+    public boolean isCompileOnly() {
+        return compileOnly;
+    }
+
+    public Integer getMaxOutputSize() {
+        return maxOutputSize;
+    }
+
+    /**
+     * Makes this a streaming job: stdin is read while the program runs and output is
+     * passed to the listener instead of being collected in the result.
+     */
+    public void stream(InputStream stdin, OutputListener outputListener) {
+        this.stdin = stdin;
+        this.outputListener = outputListener;
+    }
+
+    public boolean isStreaming() {
+        return outputListener != null;
+    }
+
+    public InputStream getStdin() {
+        return stdin;
+    }
+
+    public OutputListener getOutputListener() {
+        return outputListener;
+    }
+
+    /**
+     * Makes this a batch job that runs the code once per test case.
+     */
+    public void batch(List<TestCase> testCases) {
+        this.testCases = List.copyOf(testCases);
+    }
+
+    public boolean isBatch() {
+        return testCases != null;
+    }
+
+    public List<TestCase> getTestCases() {
+        return testCases;
+    }
+
+    public synchronized BatchExecuteResponse getBatchResult() {
+        return batchResult;
+    }
+
+    synchronized boolean finishBatch(BatchExecuteResponse batch) {
+        // Summary for pollers; the per-case results are in the batch result
+        ExecuteResponse summary = new ExecuteResponse();
+        summary.setError(batch.getError());
+        summary.setExitCode(batch.getExitCode());
+        summary.setExecutionTime(batch.getExecutionTime());
+        if (status.isFinished()) {
+            return false;
+        }
+        batchResult = batch;
+        return finish(JobStatus.COMPLETED, summary);
+    }
+
+    public CompletableFuture<ExecuteResponse> getCompletion() {
+        return completion;
+    }
+
+    public synchronized JobStatus getStatus() {
+        return status;
+    }
+
+    public synchronized Long getFinishedAt() {
+        return finishedAt;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    synchronized boolean markRunning() {
+        if (status != JobStatus.QUEUED) {
+            return false;
+        }
+        status = JobStatus.RUNNING;
+        startedAt = System.currentTimeMillis();
+        return true;
+    }
+
+    synchronized boolean finish(JobStatus finalStatus, ExecuteResponse response) {
+        if (status.isFinished()) {
+            return false;
+        }
+        status = finalStatus;
+        result = response;
+        finishedAt = System.currentTimeMillis();
+        completion.complete(response);
+        return true;
+    }
+
+    /**
+     * Cancels the job, interrupting the worker so the running process and its
+     * container are killed.
+     */
+    boolean cancel() {
+        Future<?> running;
+        synchronized (this) {
+            if (!finish(JobStatus.CANCELLED, ExecuteResponse.error("Execution cancelled"))) {
+                return false;
+            }
+            running = future;
+        }
+        if (running != null) {
+            running.cancel(true);
+        }
+        return true;
+    }
+
+    public synchronized JobResponse toResponse() {
+        JobResponse response = new JobResponse();
+        response.setId(id);
+        response.setStatus(status);
+        response.setLanguage(language);
+        response.setSubmittedAt(submittedAt);
+        response.setStartedAt(startedAt);
+        response.setFinishedAt(finishedAt);
+        response.setResult(result);
+        response.setBatchResult(batchResult);
+        return response;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.compiler.service;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resource limits that apply to one execution, resolved from configuration for its
+ * language and user tier by {@link ExecutionProfiles}.
+ */
+public final class ExecutionProfile {
+
+    private static final Pattern SIZE = Pattern.compile("(\\d{1,15})([kmg]?)b?");
+
+    private final int compileTimeoutSeconds;
+    private final int runTimeoutSeconds;
+    private final String memoryLimit;
+    private final long memoryBytes;
+    private final double cpuLimit;
+    private final int pidsLimit;
+    private final int outputLimit;
+
+    public ExecutionProfile(int compileTimeoutSeconds, int runTimeoutSeconds, String memoryLimit, double cpuLimit,
+                            int pidsLimit, int outputLimit) {
+        if (compileTimeoutSeconds <= 0 || runTimeoutSeconds <= 0) {
+            throw new IllegalArgumentException("Timeouts must be at least one second");
+        }
+        if (cpuLimit <= 0 || pidsLimit <= 0 || outputLimit <= 0) {
+            throw new IllegalArgumentException("CPU, pids and output limits must be positive");
+        }
+        this.compileTimeoutSeconds = compileTimeoutSeconds;
+        this.runTimeoutSeconds = runTimeoutSeconds;
+        this.memoryLimit = memoryLimit;
+        this.memoryBytes = parseSize(memoryLimit);
+        this.cpuLimit = cpuLimit;
+        this.pidsLimit = pidsLimit;
+        this.outputLimit = outputLimit;
+    }
+
+    public int getCompileTimeoutSeconds() {
+        return compileTimeoutSeconds;
+    }
+
+    public int getRunTimeoutSeconds() {
+        return runTimeoutSeconds;
+    }
+
+    /**
+     * Time for a single step that both compiles and runs.
+     */
+    public int getTotalTimeoutSeconds(LanguageConfig config) {
+        return config.isCompiled() ? compileTimeoutSeconds + runTimeoutSeconds : runTimeoutSeconds;
+    }
+
+    /**
+     * Memory limit as configured, in Docker's notation such as {@code 128m}.
+     */
+    public String getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public double getCpuLimit() {
+        return cpuLimit;
+    }
+
+    /**
+     * Whole CPUs a sandbox may use, at least one.
+     */
+    public int getCpuCount() {
+        return Math.max(1, (int) Math.floor(cpuLimit));
+    }
+
+    public int getPidsLimit() {
+        return pidsLimit;
+    }
+
+    /**
+     * Largest output cap, in bytes per stream, a user may ask for.
+     */
+    public int getOutputLimit() {
+        return outputLimit;
+    }
+
+    // Docker's size notation: a number with an optional b, k, m or g suffix
+    static long parseSize(String size) {
+        Matcher matcher = SIZE.matcher(size == null ? "" : size.trim().toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid memory limit: " + size);
+        }
+        long bytes = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "k" -> bytes *= 1024L;
+            case "m" -> bytes *= 1024L * 1024;
+            case "g" -> bytes *= 1024L * 1024 * 1024;
+            default -> { }
+        }
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Memory limit must be positive: " + size);
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ExecutionProfile)) {
+            return false;
+        }
+        ExecutionProfile that = (ExecutionProfile) other;
+        return compileTimeoutSeconds == that.compileTimeoutSeconds
+            && runTimeoutSeconds == that.runTimeoutSeconds
+            && memoryBytes == that.memoryBytes
+            && Double.compare(cpuLimit, that.cpuLimit) == 0
+            && pidsLimit == that.pidsLimit
+            && outputLimit == that.outputLimit;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(compileTimeoutSeconds, runTimeoutSeconds, memoryBytes, cpuLimit, pidsLimit, outputLimit);
+    }
+
+    @Override
+    public String toString() {
+        return "compile " + compileTimeoutSeconds + "s, run " + runTimeoutSeconds + "s, memory " + memoryLimit
+            + ", cpus " + cpuLimit + ", pids " + pidsLimit + ", output " + outputLimit;
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.ExecutionProperties;
+import com.example.compiler.model.UserTier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the {@link ExecutionProfile} for a language and user tier from
+ * {@link ExecutionProperties}. When {@code app.execution.profiles.file} is set, that
+ * YAML file is layered over the application config and re-read whenever it changes,
+ * so limits can be tuned without a restart. A file that does not resolve to valid
+ * limits is rejected and the previous profiles stay in effect.
+ */
+@Service
+public class ExecutionProfiles {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionProfiles.class);
+
+    private static final String PREFIX = "app.execution";
+
+    @Autowired
+    private ExecutionProperties properties;
+
+    @Autowired
+    private ConfigurableEnvironment environment;
+
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService watcher;
+    private Path file;
+    private long fileStamp = -1;
+
+    @PostConstruct
+    public void init() {
+        String configured = properties.getProfiles().getFile();
+        if (configured == null || configured.isBlank()) {
+            snapshot = new Snapshot(properties);
+            logger.info("Execution profile defaults: {}", resolve("", null));
+            return;
+        }
+        file = Path.of(configured);
+        try {
+            fileStamp = stamp(file);
+            snapshot = new Snapshot(load());
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalStateException("Invalid execution profiles in " + file + ": " + e.getMessage(), e);
+        }
+        logger.info("Execution profile defaults: {}", resolve("", null));
+
+        Duration interval = properties.getProfiles().getReloadInterval();
+        long millis = Math.max(1000, interval.toMillis());
+        watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "execution-profiles");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watcher.scheduleWithFixedDelay(this::reloadIfChanged, millis, millis, TimeUnit.MILLISECONDS);
+        logger.info("Watching {} for execution profile changes", file);
+    }
+
+    /**
+     * Limits for a job. A null tier gives the language's own limits, which is what
+     * sandboxes shared by jobs of every tier, such as pooled containers, are started with.
+     */
+    public ExecutionProfile resolve(String language, UserTier tier) {
+        return snapshot.resolve(language, tier);
+    }
+
+    private void reloadIfChanged() {
+        try {
+            long current = stamp(file);
+            if (current == fileStamp) {
+                return;
+            }
+            fileStamp = current;
+            Snapshot reloaded = new Snapshot(load());
+            snapshot = reloaded;
+            logger.info("Reloaded execution profiles from {}; defaults now {}", file, resolve("", null));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring execution profiles in {}, keeping the previous ones: {}", file, e.getMessage());
+        }
+    }
+
+    // Modification time and size, or -1 while the file does not exist
+    private static long stamp(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return -1;
+        }
+        return Files.getLastModifiedTime(path).toMillis() * 31 + Files.size(path);
+    }
+
+    private ExecutionProperties load() throws IOException {
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        if (Files.exists(file)) {
+            for (PropertySource<?> source : new YamlPropertySourceLoader().load("execution-profiles",
+                    new FileSystemResource(file))) {
+                sources.add(ConfigurationPropertySource.from(source));
+            }
+        }
+        // The application config supplies everything the file leaves out
+        ConfigurationPropertySources.get(environment).forEach(sources::add);
+        ExecutionProperties loaded = new Binder(sources).bind(PREFIX, ExecutionProperties.class)
+            .orElseGet(ExecutionProperties::new);
+        // The file cannot move itself
+        loaded.getProfiles().setFile(properties.getProfiles().getFile());
+        return loaded;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watcher != null) {
+            watcher.shutdownNow();
+        }
+    }
+
+    /**
+     * One consistent version of the configuration, with the profiles resolved from it so far.
+     */
+    private static class Snapshot {
+        final ExecutionProperties properties;
+        final Map<String, ExecutionProfile> resolved = new ConcurrentHashMap<>();
+
+        Snapshot(ExecutionProperties properties) {
+            this.properties = properties;
+            // Fail on bad values now rather than on the first job that hits them
+            resolve("", null);
+            for (UserTier tier : UserTier.values()) {
+                resolve("", tier);
+                properties.getProfiles().getLanguages().keySet().forEach(language -> resolve(language, tier));
+            }
+        }
+
+        ExecutionProfile resolve(String language, UserTier tier) {
+            return resolved.computeIfAbsent(language + "/" + tier, key -> build(language, tier));
+        }
+
+        private ExecutionProfile build(String language, UserTier tier) {
+            Resolution resolution = new Resolution(properties);
+            ExecutionProperties.LanguageLimits languageLimits = properties.getProfiles().getLanguages().get(language);
+            resolution.apply(languageLimits);
+            if (tier != null) {
+                resolution.apply(properties.getProfiles().getTiers().get(tier));
+                if (languageLimits != null) {
+                    resolution.apply(languageLimits.getTiers().get(tier));
+                }
+            }
+            return resolution.toProfile();
+        }
+    }
+
+    private static class Resolution {
+        Duration compileTimeout;
+        Duration runTimeout;
+        String memoryLimit;
+        double cpuLimit;
+        int pidsLimit;
+        int outputLimit;
+
+        Resolution(ExecutionProperties defaults) {
+            runTimeout = defaults.getTimeout();
+            compileTimeout = defaults.getCompileTimeout() != null ? defaults.getCompileTimeout() : runTimeout;
+            memoryLimit = defaults.getMemoryLimit();
+            cpuLimit = defaults.getCpuLimit();
+            pidsLimit = defaults.getPidsLimit();
+            outputLimit = defaults.getMaxOutputSizeLimit();
+        }
+
+        void apply(ExecutionProperties.Limits limits) {
+            if (limits == null) {
+                return;
+            }
+            if (limits.getCompileTimeout() != null) {
+                compileTimeout = limits.getCompileTimeout();
+            }
+            if (limits.getRunTimeout() != null) {
+                runTimeout = limits.getRunTimeout();
+            }
+            if (limits.getMemoryLimit() != null) {
+                memoryLimit = limits.getMemoryLimit();
+            }
+            if (limits.getCpuLimit() != null) {
+                cpuLimit = limits.getCpuLimit();
+            }
+            if (limits.getPidsLimit() != null) {
+                pidsLimit = limits.getPidsLimit();
+            }
+            if (limits.getOutputLimit() != null) {
+                outputLimit = limits.getOutputLimit();
+            }
+        }
+
+        ExecutionProfile toProfile() {
+            return new ExecutionProfile((int) compileTimeout.toSeconds(), (int) runTimeout.toSeconds(), memoryLimit,
+                cpuLimit, pidsLimit, outputLimit);
+        }
+    }
+}
@@ -1,267 +1,631 @@
 package com.example.compiler.service;
 
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.BatchExecuteResponse;
 import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.ExecutionPhase;
+import com.example.compiler.model.TestCase;
+import com.example.compiler.model.TerminationReason;
+import com.example.compiler.model.TestCaseResult;
+import com.example.compiler.model.UserTier;
+import com.example.compiler.model.WorkerExecuteRequest;
+import com.example.compiler.util.FileUtils;
+import com.example.compiler.util.OutputListener;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
-import java.nio.file.Files;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 @Service
 public class ExecutionService {
-    
-    private static final Logger logger = LoggerFactory.getLogger(ExecutionService.class);    
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionService.class);
     @Value("${app.execution.mode:docker}")
     private String executionMode;
+
+    @Autowired
+    private List<ExecutionBackend> backends;
+
+    @Autowired
+    private ArtifactCache artifactCache;
+
+    @Autowired
+    private LanguageWorkerPool languageWorkers;
+
+    @Autowired
+    private ExecutionCoalescer coalescer;
+
+    @Autowired
+    private ExecutionProfiles executionProfiles;
+
+    @Autowired
+    private ResourceUsageMetrics resourceUsageMetrics;
+
+    @Autowired
+    private FleetProperties fleetProperties;
+
+    @Autowired
+    private FleetRouter fleetRouter;
+
+    private ExecutionBackend backend;
+
+    // Output cap when the user has no setting of their own; the profile's output limit is the ceiling
+    @Value("${app.execution.max-output-size:10240}")
+    private int defaultMaxOutputSize;
       // Supported languages and their Docker configurations
     private static final Map<String, LanguageConfig> LANGUAGE_CONFIGS;
-    
+
     static {
         Map<String, LanguageConfig> configs = new HashMap<>();
-        configs.put("python", new LanguageConfig("online-compiler/python:latest", "python3 main.py", "main.py"));
-        configs.put("java", new LanguageConfig("online-compiler/java:latest", "javac Main.java && java Main", "Main.java"));        configs.put("cpp", new LanguageConfig("online-compiler/cpp:latest", "g++ -o main main.cpp && ./main", "main.cpp"));
-        configs.put("c", new LanguageConfig("online-compiler/cpp:latest", "gcc -o main main.c && ./main", "main.c"));
-        configs.put("javascript", new LanguageConfig("online-compiler/javascript:latest", "node main.js", "main.js"));
-        configs.put("typescript", new LanguageConfig("online-compiler/typescript:latest", "tsc main.ts && node main.js", "main.ts"));
-        configs.put("rust", new LanguageConfig("online-compiler/rust:latest", "rustc main.rs && ./main", "main.rs"));        configs.put("ruby", new LanguageConfig("online-compiler/ruby:latest", "ruby main.rb", "main.rb"));        configs.put("r", new LanguageConfig("online-compiler/r:latest", "Rscript main.R", "main.R"));
-        configs.put("csharp", new LanguageConfig("online-compiler/csharp:latest", "mcs Program.cs && mono Program.exe", "Program.cs"));
-        configs.put("go", new LanguageConfig("online-compiler/go:latest", "go run main.go", "main.go"));
+        configs.put("python", new LanguageConfig("python", "online-compiler/python:latest", "python3 main.py", "main.py",
+            "python3 -m py_compile main.py"));
+        configs.put("java", new LanguageConfig("java", "online-compiler/java:latest", "Main.java",
+            "javac Main.java", "java Main", List.of("*.class")));
+        configs.put("cpp", new LanguageConfig("cpp", "online-compiler/cpp:latest", "main.cpp",
+            "g++ -o main main.cpp", "./main", List.of("main")));
+        configs.put("c", new LanguageConfig("c", "online-compiler/cpp:latest", "main.c",
+            "gcc -o main main.c", "./main", List.of("main")));
+        configs.put("javascript", new LanguageConfig("javascript", "online-compiler/javascript:latest", "node main.js", "main.js",
+            "node --check main.js"));
+        configs.put("typescript", new LanguageConfig("typescript", "online-compiler/typescript:latest", "main.ts",
+            "tsc main.ts", "node main.js", List.of("main.js")));
+        // std linked dynamically, found through an rpath to the toolchain, to skip its static link
+        configs.put("rust", new LanguageConfig("rust", "online-compiler/rust:latest", "main.rs",
+            "rustc -C prefer-dynamic -C link-arg=-Wl,-rpath,$(rustc --print sysroot)/lib main.rs", "./main",
+            List.of("main")));
+        configs.put("ruby", new LanguageConfig("ruby", "online-compiler/ruby:latest", "ruby main.rb", "main.rb",
+            "ruby -c main.rb"));
+        configs.put("r", new LanguageConfig("r", "online-compiler/r:latest", "Rscript main.R", "main.R",
+            "Rscript -e \"invisible(parse('main.R'))\""));
+        configs.put("csharp", new LanguageConfig("csharp", "online-compiler/csharp:latest", "Program.cs",
+            "mcs Program.cs", "mono Program.exe", List.of("Program.exe")));
+        // go build instead of go run so the binary can be cached
+        configs.put("go", new LanguageConfig("go", "online-compiler/go:latest", "main.go",
+            "go build -o main main.go", "./main", List.of("main")));
         LANGUAGE_CONFIGS = Collections.unmodifiableMap(configs);    }
-    
-    private static final int TIMEOUT_SECONDS = 10;
-    private static final String MEMORY_LIMIT = "128m";
-    private static final String CPU_LIMIT = "0.5";
-    
-    // Get timeout for specific language
-    private int getTimeoutForLanguage(String language) {
-        // Go needs more time for compilation and initialization
-        if ("go".equals(language.toLowerCase())) {
-            return 20; // 20 seconds for Go
+
+    private static final AtomicInteger BATCH_THREAD_COUNTER = new AtomicInteger();
+
+    // Extra threads for test cases that run alongside the job's own worker thread
+    private static final ExecutorService BATCH_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "batch-case-" + BATCH_THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void selectBackend() {
+        backend = backends.stream()
+            .filter(candidate -> candidate.getMode().equals(executionMode))
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Unknown app.execution.mode: " + executionMode));
+        if (fleetProperties.isCoordinator()) {
+            // Worker nodes run everything; nothing is executed here
+            logger.info("Coordinating execution across fleet workers");
+            return;
         }
-        return TIMEOUT_SECONDS; // 10 seconds for others
+        backend.start(LANGUAGE_CONFIGS);
+        languageWorkers.start(backend, LANGUAGE_CONFIGS);
+        logger.info("Using {} execution backend", backend.getMode());
+    }
+
+    // Limits for the language and tier; unknown languages get the defaults
+    private ExecutionProfile profileFor(String language, UserTier tier) {
+        String key = language.toLowerCase();
+        return executionProfiles.resolve(LANGUAGE_CONFIGS.containsKey(key) ? key : "", tier);
     }
-    
+
     public ExecuteResponse executeCode(String code, String language, String input) {
         return executeCode(code, language, input, null);
     }
-    
+
     public ExecuteResponse executeCode(String code, String language, String input, String userId) {
-        long startTime = System.currentTimeMillis();
-        
+        return executeCode(code, language, input, userId, null);
+    }
+
+    public ExecuteResponse executeCode(String code, String language, String input, String userId, Integer maxOutputSize) {
+        return executeCode(code, language, input, userId, null, maxOutputSize, false, false);
+    }
+
+    /**
+     * Runs code under the limits of the user's tier, sharing the run with identical
+     * requests in flight.
+     *
+     * @param tier          selects the execution profile; null for the language's own limits
+     * @param deterministic the program's output depends only on its input, so a recent
+     *                      result for the same code and input may be returned
+     * @param compileOnly   only compile, or syntax-check an interpreted language, and report diagnostics
+     */
+    public ExecuteResponse executeCode(String code, String language, String input, String userId, UserTier tier,
+                                       Integer maxOutputSize, boolean deterministic, boolean compileOnly) {
+        ExecutionProfile profile = profileFor(language, tier);
+        return coalescer.execute(language, code, input, resolveMaxOutputSize(maxOutputSize, profile), profile,
+            compileOnly, deterministic, () -> runCode(code, language, input, userId, tier, profile, maxOutputSize, deterministic, compileOnly));
+    }
+
+    /**
+     * The key under which a run of this job is shared with identical ones.
+     */
+    String coalescingKey(ExecutionJob job) {
+        ExecutionProfile profile = profileFor(job.getLanguage(), job.getTier());
+        return ExecutionCoalescer.key(job.getLanguage(), job.getCode(), job.getInput(),
+            resolveMaxOutputSize(job.getMaxOutputSize(), profile), profile, job.isCompileOnly());
+    }
+
+    private ExecuteResponse runCode(String code, String language, String input, String userId, UserTier tier,
+                                    ExecutionProfile profile, Integer maxOutputSize, boolean deterministic,
+                                    boolean compileOnly) {
+        if (fleetProperties.isCoordinator()) {
+            WorkerExecuteRequest request = workerRequest(code, language, userId, tier, maxOutputSize);
+            request.setInput(input);
+            request.setDeterministic(deterministic);
+            request.setCompileOnly(compileOnly);
+            return fleetRouter.execute(request, affinityKey(language, code));
+        }
+        if (!compileOnly) {
+            ExecuteResponse fromWorker = executeInWorker(code, language, input, userId, profile, maxOutputSize);
+            if (fromWorker != null) {
+                return fromWorker;
+            }
+        }
+        InputStream stdin = input != null && !input.isEmpty() ? new ByteArrayInputStream(input.getBytes()) : null;
+        return execute(code, language, stdin, null, userId, profile, maxOutputSize, compileOnly);
+    }
+
+    /**
+     * Compiles and runs a warm-up program in a fresh sandbox under the language's own
+     * limits, bypassing language workers and shared results.
+     */
+    ExecuteResponse runCanary(String language, String code) {
+        return execute(code, language, null, null, null, profileFor(language, null), null, false);
+    }
+
+    /**
+     * Runs code with interactive stdin, passing output to the listener as it is produced.
+     * The returned response carries exit code, timing and truncation info but no output.
+     */
+    public ExecuteResponse streamCode(String code, String language, InputStream stdin, OutputListener listener,
+                                      String userId, UserTier tier, Integer maxOutputSize, boolean compileOnly) {
+        if (fleetProperties.isCoordinator()) {
+            return ExecuteResponse.error("Interactive execution is not available on a coordinator node");
+        }
+        return execute(code, language, stdin, listener, userId, profileFor(language, tier), maxOutputSize, compileOnly);
+    }
+
+    /**
+     * Runs the compile phase, if the language has one or only diagnostics are wanted,
+     * and then the run phase, each within its own time limit and measured on its own.
+     * The reported execution time covers those steps, not sandbox setup.
+     */
+    private ExecuteResponse execute(String code, String language, InputStream stdin, OutputListener listener,
+                                    String userId, ExecutionProfile profile, Integer maxOutputSize,
+                                    boolean compileOnly) {
         // Log execution with user info
         if (userId != null) {
             logger.info("Executing {} code for user: {}", language, userId);
         } else {
             logger.info("Executing {} code for anonymous user", language);
         }
-        
+
         try {
-            // Check execution mode
-            if ("mock".equals(executionMode)) {
-                return executeMockCode(code, language, input, startTime);
-            }
-            
             // Validate language
             LanguageConfig config = LANGUAGE_CONFIGS.get(language.toLowerCase());
             if (config == null) {
                 return ExecuteResponse.error("Unsupported language: " + language);
             }
-            
-            // Create temporary directory for execution
-            Path tempDir = Files.createTempDirectory("code_execution_");
-            logger.info("Created temporary directory: {}", tempDir);
-            
-            try {
-                // Write code to file
-                Path codeFile = tempDir.resolve(config.fileName);
-                Files.write(codeFile, code.getBytes(), StandardOpenOption.CREATE);
-                
-                // Write input to file if provided
-                Path inputFile = null;
-                if (input != null && !input.isEmpty()) {
-                    inputFile = tempDir.resolve("input.txt");
-                    Files.write(inputFile, input.getBytes(), StandardOpenOption.CREATE);
+            if (compileOnly && config.getCheckCommand() == null) {
+                return ExecuteResponse.error("Compile-only requests are not supported for " + language);
+            }
+
+            try (Sandbox sandbox = backend.openSandbox(config, profile)) {
+                sandbox.writeFile(config.getFileName(), code.getBytes());
+
+                int outputCap = resolveMaxOutputSize(maxOutputSize, profile);
+                List<ExecutionPhase> phases = new ArrayList<>();
+
+                ProcessResult compile = null;
+                String cacheKey = artifactCacheKey(config, code);
+                if (config.isCompiled() || compileOnly) {
+                    int compileTimeout = profile.getCompileTimeoutSeconds();
+                    if (cacheKey != null) {
+                        compile = compileWithArtifactCache(sandbox, config, cacheKey, listener, compileTimeout, outputCap);
+                    } else {
+                        compile = sandbox.runStep(config.getCheckCommand(), null, listener, compileTimeout, outputCap);
+                    }
+                    phases.add(compile != null ? toPhase("compile", config, compile, profile) : cachedCompilePhase());
+                    if (compile != null && compile.getTerminationReason() == TerminationReason.TIMEOUT) {
+                        return timeoutResponse("Compilation timeout after " + compileTimeout + " seconds", phases);
+                    }
+                    if (compileOnly || (compile != null && !isSuccessful(compile))) {
+                        ProcessResult diagnostics = compile != null ? compile : new ProcessResult("", "", 0, false);
+                        ExecuteResponse response = toResponse(diagnostics, outputCap, 0);
+                        setMeasurements(response, phases, profile);
+                        setArtifactCacheMetadata(response, cacheKey, compile);
+                        return response;
+                    }
                 }
-                
-                // Execute in Docker container
-                ExecuteResponse response = runInDockerContainer(tempDir, config, inputFile != null, language);
-                response.setExecutionTime(System.currentTimeMillis() - startTime);
-                
+
+                int runTimeout = profile.getRunTimeoutSeconds();
+                ProcessResult run = sandbox.runStep(config.getRunCommand(), stdin, listener, runTimeout, outputCap);
+                phases.add(toPhase("run", config, run, profile));
+                if (run.getTerminationReason() == TerminationReason.TIMEOUT) {
+                    return timeoutResponse("Execution timeout after " + runTimeout + " seconds", phases);
+                }
+
+                logger.info("Execution completed with exit code: {} ({})", run.getExitCode(), run.getTerminationReason());
+
+                ExecuteResponse response = toResponse(compile != null ? compile.followedBy(run) : run, outputCap, 0);
+                setMeasurements(response, phases, profile);
+                setArtifactCacheMetadata(response, cacheKey, compile);
                 return response;
-                
-            } finally {
-                // Clean up temporary directory
-                deleteDirectory(tempDir.toFile());
             }
-            
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ExecuteResponse.error("Execution interrupted");
         } catch (Exception e) {
             logger.error("Error executing code", e);
             return ExecuteResponse.error("Internal server error: " + e.getMessage());
         }
     }
-    
-    private ExecuteResponse executeMockCode(String code, String language, String input, long startTime) {
-        logger.info("Executing code in mock mode for language: {}", language);
-        
-        // Simulate execution delay
+
+    /**
+     * Runs code in an idle language worker, which compiles and runs it in-process.
+     *
+     * @return null when the language has no worker or none is idle
+     */
+    private ExecuteResponse executeInWorker(String code, String language, String input, String userId,
+                                            ExecutionProfile profile, Integer maxOutputSize) {
+        String key = language.toLowerCase();
+        if (!languageWorkers.supports(key)) {
+            return null;
+        }
+        long startTime = System.currentTimeMillis();
+        // Workers compile and run in one go
+        int timeout = profile.getTotalTimeoutSeconds(LANGUAGE_CONFIGS.get(key));
+        int outputCap = resolveMaxOutputSize(maxOutputSize, profile);
         try {
-            Thread.sleep(500 + (long)(Math.random() * 1000)); // 0.5-1.5 seconds
+            byte[] stdin = input != null ? input.getBytes(StandardCharsets.UTF_8) : null;
+            ProcessResult result = languageWorkers.execute(key, code, stdin, timeout, outputCap);
+            if (result == null) {
+                return null;
+            }
+            logger.info("Executed {} code in a language worker for {} with exit code: {}", language,
+                userId != null ? "user: " + userId : "anonymous user", result.getExitCode());
+            if (result.isTimedOut()) {
+                ExecuteResponse response = ExecuteResponse.error("Execution timeout after " + timeout + " seconds");
+                response.setTerminationReason(TerminationReason.TIMEOUT);
+                return response;
+            }
+            ExecuteResponse response = toResponse(result, outputCap, System.currentTimeMillis() - startTime);
+            response.setTerminationReason(result.getTerminationReason());
+            response.setMetadata("languageWorker", true);
+            return response;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+            return ExecuteResponse.error("Execution interrupted");
         }
-        
-        // Generate mock output based on language and code
-        String mockOutput = generateMockOutput(code, language, input);
-        long executionTime = System.currentTimeMillis() - startTime;
-        
-        return new ExecuteResponse(mockOutput, "", 0, executionTime);
     }
-    
-    private String generateMockOutput(String code, String language, String input) {
-        // Simple mock output generation
-        if (code.toLowerCase().contains("hello")) {
-            return "Hello, World!";
+
+    private WorkerExecuteRequest workerRequest(String code, String language, String userId, UserTier tier,
+                                               Integer maxOutputSize) {
+        WorkerExecuteRequest request = new WorkerExecuteRequest();
+        request.setCode(code);
+        request.setLanguage(language);
+        request.setUserId(userId);
+        request.setTier(tier);
+        request.setMaxOutputSize(maxOutputSize);
+        return request;
+    }
+
+    // Compiled code goes back to the worker that may have its artifact cached
+    private static String affinityKey(String language, String code) {
+        LanguageConfig config = LANGUAGE_CONFIGS.get(language.toLowerCase());
+        return config != null && config.isCompiled() ? config.getLanguage() + ":" + code : null;
+    }
+
+    private String artifactCacheKey(LanguageConfig config, String code) {
+        if (!config.isCompiled() || !artifactCache.isEnabled()) {
+            return null;
         }
-        
-        switch (language.toLowerCase()) {
-            case "python":
-                if (code.contains("print")) {
-                    return "Mock Python output: Code executed successfully!";
-                }
-                break;
-            case "java":
-                if (code.contains("System.out.println")) {
-                    return "Mock Java output: Code compiled and executed!";
-                }
-                break;
-            case "cpp":
-            case "c":
-                if (code.contains("cout") || code.contains("printf")) {
-                    return "Mock C/C++ output: Code compiled and executed!";
-                }
-                break;
-            case "javascript":
-                if (code.contains("console.log")) {
-                    return "Mock JavaScript output: Code executed successfully!";
-                }
-                break;
-            default:
-                return "Mock " + language + " output: Code executed successfully!";
+        String toolchainId = backend.getToolchainId(config);
+        return toolchainId != null ? artifactCache.key(config.getLanguage(), toolchainId, code) : null;
+    }
+
+    private ExecutionPhase toPhase(String name, LanguageConfig config, ProcessResult result, ExecutionProfile profile) {
+        resourceUsageMetrics.record(config.getLanguage(), name, result, profile);
+        ExecutionPhase phase = new ExecutionPhase(name);
+        phase.setWallTime(Math.max(0, result.getWallTimeMillis()));
+        phase.setCpuTime(measuredOrNull(result.getCpuTimeMillis()));
+        phase.setUserCpuTime(measuredOrNull(result.getUserCpuMillis()));
+        phase.setSystemCpuTime(measuredOrNull(result.getSystemCpuMillis()));
+        phase.setPeakMemoryBytes(measuredOrNull(result.getPeakMemoryBytes()));
+        phase.setPeakPids(measuredOrNull(result.getPeakPids()));
+        phase.setExitCode(result.getExitCode());
+        phase.setTimedOut(result.isTimedOut());
+        phase.setTerminationReason(result.getTerminationReason());
+        return phase;
+    }
+
+    private static Long measuredOrNull(long value) {
+        return value >= 0 ? value : null;
+    }
+
+    private static ExecutionPhase cachedCompilePhase() {
+        ExecutionPhase phase = new ExecutionPhase("compile");
+        phase.setCached(true);
+        return phase;
+    }
+
+    private static ExecuteResponse timeoutResponse(String error, List<ExecutionPhase> phases) {
+        ExecuteResponse response = ExecuteResponse.error(error);
+        response.setPhases(phases);
+        response.setExecutionTime(phases.stream().mapToLong(ExecutionPhase::getWallTime).sum());
+        response.setTerminationReason(TerminationReason.TIMEOUT);
+        return response;
+    }
+
+    // Execution time and termination reason from the measured steps
+    private static void setMeasurements(ExecuteResponse response, List<ExecutionPhase> phases,
+                                        ExecutionProfile profile) {
+        response.setPhases(phases);
+        response.setExecutionTime(phases.stream().mapToLong(ExecutionPhase::getWallTime).sum());
+        TerminationReason reason = phases.get(phases.size() - 1).getTerminationReason();
+        response.setTerminationReason(reason);
+        if (reason == TerminationReason.MEMORY_LIMIT && response.getError() == null) {
+            response.setError("Memory limit of " + profile.getMemoryLimit() + " exceeded");
+        }
+    }
+
+    private static void setArtifactCacheMetadata(ExecuteResponse response, String cacheKey, ProcessResult compile) {
+        if (cacheKey != null) {
+            response.setMetadata("artifactCache", compile == null ? "hit" : "miss");
+        }
+    }
+
+    /**
+     * Puts compiled artifacts into the sandbox, from the cache when possible.
+     *
+     * @return the compile result, or null when cached artifacts were used
+     */
+    private ProcessResult compileWithArtifactCache(Sandbox sandbox, LanguageConfig config, String cacheKey,
+                                                   OutputListener listener, int timeout, int outputCap)
+            throws IOException, InterruptedException {
+        Path cached = artifactCache.lookup(cacheKey);
+        if (cached != null) {
+            try {
+                sandbox.importFiles(cached);
+                return null;
+            } catch (IOException e) {
+                // Entry was evicted while copying; build it again
+                logger.debug("Cached artifacts for {} unavailable: {}", cacheKey, e.getMessage());
+            }
+        }
+
+        ProcessResult compile = sandbox.runStep(config.getCompileCommand(), null, listener, timeout, outputCap);
+        if (!isSuccessful(compile)) {
+            return compile;
         }
-          return "Mock execution completed. Docker mode disabled for development.";
+
+        Path staging = artifactCache.newStagingDir();
+        long bytes = sandbox.exportFiles(config.getArtifacts(), staging);
+        if (bytes > 0) {
+            artifactCache.store(cacheKey, staging, bytes);
+        } else {
+            FileUtils.deleteDirectory(staging.toFile());
+        }
+        return compile;
     }
-    
-    private ExecuteResponse runInDockerContainer(Path workDir, LanguageConfig config, boolean hasInput, String language) {
+
+    private static boolean isSuccessful(ProcessResult result) {
+        return !result.isTimedOut() && !result.isOutputLimitExceeded() && result.getExitCode() == 0;
+    }
+
+    /**
+     * Compiles once and runs every test case in the same sandbox, as many at a time as
+     * the sandbox's CPU quota allows. Each case gets the profile's full run time limit.
+     */
+    public BatchExecuteResponse executeBatch(String code, String language, List<TestCase> testCases,
+                                             String userId, UserTier tier, Integer maxOutputSize) {
+        long startTime = System.currentTimeMillis();
+        logger.info("Executing {} code with {} test cases for {}", language, testCases.size(),
+            userId != null ? "user: " + userId : "anonymous user");
+
+        if (fleetProperties.isCoordinator()) {
+            WorkerExecuteRequest request = workerRequest(code, language, userId, tier, maxOutputSize);
+            request.setTestCases(testCases);
+            return fleetRouter.executeBatch(request, affinityKey(language, code));
+        }
+
         try {
-            List<String> dockerCommand = new ArrayList<>();
-            dockerCommand.addAll(Arrays.asList(
-                "docker", "run",
-                "--rm",
-                "--memory=" + MEMORY_LIMIT,                "--cpus=" + CPU_LIMIT,
-                "--network=none"            ));
-            
-            // Add process limits
-            dockerCommand.add("--pids-limit=50");
-            
-            dockerCommand.addAll(Arrays.asList(
-                "--tmpfs=/tmp:exec",
-                "-v", workDir.toString() + ":/workspace",
-                "-w", "/workspace"
-            ));
-            
-            if (hasInput) {
-                dockerCommand.addAll(Arrays.asList("--interactive"));
+            LanguageConfig config = LANGUAGE_CONFIGS.get(language.toLowerCase());
+            if (config == null) {
+                return BatchExecuteResponse.error("Unsupported language: " + language);
             }
-            
-            dockerCommand.add(config.dockerImage);
-            dockerCommand.addAll(Arrays.asList("sh", "-c", config.command));
-            
-            logger.info("Executing Docker command: {}", String.join(" ", dockerCommand));
-            
-            ProcessBuilder pb = new ProcessBuilder(dockerCommand);
-            pb.directory(workDir.toFile());
-            
-            Process process = pb.start();
-            
-            // Handle input if provided
-            if (hasInput) {
-                try (PrintWriter writer = new PrintWriter(process.getOutputStream())) {
-                    Path inputFile = workDir.resolve("input.txt");
-                    if (Files.exists(inputFile)) {
-                        String inputContent = Files.readString(inputFile);
-                        writer.print(inputContent);
-                        writer.flush();
+
+            ExecutionProfile profile = profileFor(language, tier);
+            try (Sandbox sandbox = backend.openBatchSandbox(config, profile)) {
+                sandbox.writeFile(config.getFileName(), code.getBytes());
+
+                int compileTimeout = profile.getCompileTimeoutSeconds();
+                int timeout = profile.getRunTimeoutSeconds();
+                int outputCap = resolveMaxOutputSize(maxOutputSize, profile);
+                BatchExecuteResponse response = new BatchExecuteResponse();
+
+                String runCommand = config.getCommand();
+                if (config.isCompiled()) {
+                    String cacheKey = artifactCacheKey(config, code);
+                    ProcessResult compile;
+                    if (cacheKey != null) {
+                        compile = compileWithArtifactCache(sandbox, config, cacheKey, null, compileTimeout, outputCap);
+                        response.setMetadata("artifactCache", compile == null ? "hit" : "miss");
+                    } else {
+                        compile = sandbox.run(config.getCompileCommand(), null, null, compileTimeout, outputCap);
                     }
+                    if (compile != null) {
+                        response.setCompileOutput(compile.getStdout() + compile.getStderr());
+                        if (!isSuccessful(compile)) {
+                            response.setError(compile.isTimedOut()
+                                ? "Compilation timeout after " + compileTimeout + " seconds" : "Compilation failed");
+                            response.setExitCode(compile.isTimedOut() ? -1 : compile.getExitCode());
+                            response.setExecutionTime(System.currentTimeMillis() - startTime);
+                            return response;
+                        }
+                    }
+                    runCommand = config.getRunCommand();
                 }
-            }            
-            // Wait for completion with timeout
-            int timeout = getTimeoutForLanguage(language);
-            boolean finished = process.waitFor(timeout, TimeUnit.SECONDS);
-            
-            if (!finished) {
-                process.destroyForcibly();
-                return ExecuteResponse.error("Execution timeout after " + timeout + " seconds");
+
+                int parallelism = Math.max(1, Math.min(sandbox.getParallelism(), testCases.size()));
+                List<TestCaseResult> results = runTestCases(sandbox, runCommand, testCases, parallelism, timeout, outputCap);
+                response.setResults(results);
+                for (TestCaseResult result : results) {
+                    if (Boolean.TRUE.equals(result.getPassed())) {
+                        response.setPassed(response.getPassed() + 1);
+                    } else if (Boolean.FALSE.equals(result.getPassed())) {
+                        response.setFailed(response.getFailed() + 1);
+                    }
+                }
+                response.setExecutionTime(System.currentTimeMillis() - startTime);
+                response.setMetadata("parallelism", parallelism);
+                logger.info("Batch completed: {} passed, {} failed", response.getPassed(), response.getFailed());
+                return response;
             }
-            
-            // Read output
-            String stdout = readStream(process.getInputStream());
-            String stderr = readStream(process.getErrorStream());
-            int exitCode = process.exitValue();
-            
-            logger.info("Execution completed with exit code: {}", exitCode);
-            
-            return new ExecuteResponse(stdout, stderr, exitCode);
-            
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchExecuteResponse.error("Execution interrupted");
         } catch (Exception e) {
-            logger.error("Error running Docker container", e);
-            return ExecuteResponse.error("Docker execution error: " + e.getMessage());
+            logger.error("Error executing batch", e);
+            return BatchExecuteResponse.error("Internal server error: " + e.getMessage());
         }
     }
-    
-    private String readStream(InputStream stream) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append("\n");
+
+    private List<TestCaseResult> runTestCases(Sandbox sandbox, String command, List<TestCase> testCases,
+                                              int parallelism, int timeout, int outputCap)
+            throws InterruptedException {
+        TestCaseResult[] results = new TestCaseResult[testCases.size()];
+        AtomicInteger nextCase = new AtomicInteger();
+        Callable<Void> runner = () -> {
+            int index;
+            while ((index = nextCase.getAndIncrement()) < results.length) {
+                results[index] = runTestCase(sandbox, command, index, testCases.get(index), timeout, outputCap);
+            }
+            return null;
+        };
+
+        // This thread is one of the runners; the rest borrow batch threads
+        List<Future<Void>> helpers = new ArrayList<>();
+        for (int i = 1; i < parallelism; i++) {
+            helpers.add(BATCH_THREADS.submit(runner));
+        }
+        try {
+            runner.call();
+            for (Future<Void> helper : helpers) {
+                helper.get();
             }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            // Kills cases still running when this thread was interrupted
+            helpers.forEach(helper -> helper.cancel(true));
         }
-        return sb.toString();
+        return Arrays.asList(results);
     }
-    
-    private void deleteDirectory(File dir) {
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleteDirectory(file);
-                } else {
-                    file.delete();
-                }
+
+    private TestCaseResult runTestCase(Sandbox sandbox, String command, int index, TestCase testCase,
+                                       int timeout, int outputCap) throws InterruptedException {
+        TestCaseResult result = new TestCaseResult();
+        result.setIndex(index);
+        try {
+            byte[] stdin = testCase.getInput() != null ? testCase.getInput().getBytes(StandardCharsets.UTF_8) : null;
+            ProcessResult run = sandbox.runStep(command, stdin != null && stdin.length > 0
+                ? new ByteArrayInputStream(stdin) : null, null, timeout, outputCap);
+            result.setExecutionTime(run.getWallTimeMillis());
+            result.setCpuTime(measuredOrNull(run.getCpuTimeMillis()));
+            result.setPeakMemoryBytes(measuredOrNull(run.getPeakMemoryBytes()));
+            result.setStdout(run.getStdoutTruncatedBytes() > 0 ? run.getStdout() + truncationMarker(outputCap) : run.getStdout());
+            result.setStderr(run.getStderrTruncatedBytes() > 0 ? run.getStderr() + truncationMarker(outputCap) : run.getStderr());
+            result.setExitCode(run.getExitCode());
+            result.setTimedOut(run.isTimedOut());
+            result.setTerminationReason(run.getTerminationReason());
+            result.setOutputTruncated(run.isOutputLimitExceeded());
+            if (run.isTimedOut()) {
+                result.setError("Execution timeout after " + timeout + " seconds");
+            }
+            if (testCase.getExpectedOutput() != null) {
+                result.setPassed(isSuccessful(run)
+                    && normalizeOutput(run.getStdout()).equals(normalizeOutput(testCase.getExpectedOutput())));
+            }
+        } catch (IOException e) {
+            result.setExitCode(-1);
+            result.setError("Internal server error: " + e.getMessage());
+            if (testCase.getExpectedOutput() != null) {
+                result.setPassed(false);
             }
         }
-        dir.delete();
+        return result;
     }
-    
-    public Set<String> getSupportedLanguages() {
-        return LANGUAGE_CONFIGS.keySet();
+
+    // Trailing whitespace on each line and trailing blank lines are not significant
+    private static String normalizeOutput(String output) {
+        return output.lines()
+            .map(String::stripTrailing)
+            .collect(Collectors.joining("\n"))
+            .stripTrailing();
     }
-    
-    private static class LanguageConfig {
-        final String dockerImage;
-        final String command;
-        final String fileName;
-        
-        LanguageConfig(String dockerImage, String command, String fileName) {
-            this.dockerImage = dockerImage;
-            this.command = command;
-            this.fileName = fileName;
+
+    private int resolveMaxOutputSize(Integer requested, ExecutionProfile profile) {
+        if (requested == null || requested <= 0) {
+            return Math.min(defaultMaxOutputSize, profile.getOutputLimit());
+        }
+        return Math.min(requested, profile.getOutputLimit());
+    }
+
+    private ExecuteResponse toResponse(ProcessResult result, int outputCap, long executionTime) {
+        String stdout = result.getStdout();
+        String stderr = result.getStderr();
+        if (result.getStdoutTruncatedBytes() > 0) {
+            stdout += truncationMarker(outputCap);
+        }
+        if (result.getStderrTruncatedBytes() > 0) {
+            stderr += truncationMarker(outputCap);
         }
+
+        ExecuteResponse response = new ExecuteResponse(stdout, stderr, result.getExitCode(), executionTime);
+        if (result.isOutputLimitExceeded()) {
+            logger.info("Output exceeded {} bytes, program was stopped", outputCap);
+            response.setOutputTruncated(true);
+            response.setStdoutTruncatedBytes(result.getStdoutTruncatedBytes());
+            response.setStderrTruncatedBytes(result.getStderrTruncatedBytes());
+        }
+        return response;
+    }
+
+    private static String truncationMarker(int outputCap) {
+        return "\n... [output truncated: limit of " + outputCap + " bytes reached, program stopped]\n";
+    }
+
+    public Set<String> getSupportedLanguages() {
+        return LANGUAGE_CONFIGS.keySet();
     }
 }
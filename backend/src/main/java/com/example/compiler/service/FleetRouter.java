@@ -0,0 +1,133 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.BatchExecuteResponse;
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.WorkerExecuteRequest;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Sends executions from the coordinator to worker nodes. A worker that cannot be
+ * connected to, or answers 503 because it is full, is skipped and the execution is
+ * retried on another one, up to {@code app.execution.fleet.max-attempts} workers. Once a
+ * worker has the request it may be running it, so any later failure ends the execution
+ * instead of running it a second time elsewhere.
+ */
+@Service
+public class FleetRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetRouter.class);
+
+    public static final String TOKEN_HEADER = "X-Fleet-Token";
+
+    @Autowired
+    private FleetProperties properties;
+
+    @Autowired
+    private WorkerRegistry registry;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void init() {
+        restTemplate = restTemplateBuilder
+            .setConnectTimeout(properties.getConnectTimeout())
+            .setReadTimeout(properties.getRequestTimeout())
+            .build();
+    }
+
+    /**
+     * @param affinityKey identifies code whose compiled artifact a worker may have cached, or null
+     */
+    public ExecuteResponse execute(WorkerExecuteRequest request, String affinityKey) {
+        return send("/internal/worker/execute", request, affinityKey, ExecuteResponse.class, ExecuteResponse::error);
+    }
+
+    public BatchExecuteResponse executeBatch(WorkerExecuteRequest request, String affinityKey) {
+        return send("/internal/worker/batch", request, affinityKey, BatchExecuteResponse.class,
+            BatchExecuteResponse::error);
+    }
+
+    private <T> T send(String path, WorkerExecuteRequest request, String affinityKey, Class<T> responseType,
+                       Function<String, T> error) {
+        String language = request.getLanguage().toLowerCase();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(TOKEN_HEADER, properties.getToken());
+        HttpEntity<WorkerExecuteRequest> entity = new HttpEntity<>(request, headers);
+
+        Set<String> tried = new HashSet<>();
+        for (int attempt = 1; attempt <= Math.max(1, properties.getMaxAttempts()); attempt++) {
+            WorkerRegistry.WorkerNode worker = registry.choose(language, affinityKey, tried);
+            if (worker == null) {
+                break;
+            }
+            tried.add(worker.getId());
+            worker.started();
+            try {
+                T response = restTemplate.postForObject(worker.getUrl() + path, entity, responseType);
+                if (response instanceof ExecuteResponse single) {
+                    single.setMetadata("worker", worker.getId());
+                } else if (response instanceof BatchExecuteResponse batch) {
+                    batch.setMetadata("worker", worker.getId());
+                }
+                return response;
+            } catch (ResourceAccessException e) {
+                if (!isConnectFailure(e)) {
+                    // Read timeout or a dropped connection: the worker may still be running it
+                    logger.warn("Worker {} did not answer a {} execution: {}", worker.getId(), language, e.getMessage());
+                    return error.apply("Execution worker did not answer in time, please retry later");
+                }
+                logger.warn("Worker {} unreachable on attempt {} of a {} execution: {}", worker.getId(), attempt,
+                    language, e.getMessage());
+                registry.markFailed(worker);
+            } catch (HttpStatusCodeException e) {
+                if (e.getStatusCode().value() != HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                    logger.warn("Worker {} answered {} to a {} execution", worker.getId(), e.getStatusCode().value(),
+                        language);
+                    return error.apply("Execution worker failed with status " + e.getStatusCode().value());
+                }
+                // Full; the slots it reported lag behind, so another node may have room
+                logger.debug("Worker {} full on attempt {} of a {} execution", worker.getId(), attempt, language);
+            } finally {
+                worker.finished();
+            }
+        }
+        return error.apply(noWorkerError(language));
+    }
+
+    // The request never reached the worker, so it is safe to send elsewhere
+    private static boolean isConnectFailure(ResourceAccessException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof ConnectException || cause instanceof NoRouteToHostException
+            || cause instanceof UnknownHostException
+            || (cause instanceof SocketTimeoutException && String.valueOf(cause.getMessage()).regionMatches(true, 0, "connect", 0, 7));
+    }
+
+    private static String noWorkerError(String language) {
+        return "No execution worker available for " + language + ", please retry later";
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.WorkerHeartbeat;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The worker side of the fleet: bounds the executions this node runs at once and
+ * reports its free slots to the coordinator on every heartbeat. Only languages whose
+ * warm-up canary passed are reported, so the coordinator never routes to a cold one.
+ */
+@Service
+public class FleetWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(FleetWorker.class);
+
+    @Autowired
+    private FleetProperties properties;
+
+    @Autowired
+    private LanguageWarmup warmup;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    @Value("${server.port:8080}")
+    private int serverPort;
+
+    private final String workerId = UUID.randomUUID().toString();
+    private Semaphore slots;
+    private int slotCount;
+    private String url;
+    private RestTemplate restTemplate;
+    private ScheduledExecutorService heartbeats;
+    private volatile boolean registered;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isWorker()) {
+            return;
+        }
+        if (properties.getCoordinatorUrl().isBlank()) {
+            throw new IllegalStateException("app.execution.fleet.coordinator-url is required for the worker role");
+        }
+        if (properties.getToken().isEmpty()) {
+            throw new IllegalStateException("app.execution.fleet.token is required for the worker role");
+        }
+        slotCount = properties.getSlots() > 0 ? properties.getSlots() : Runtime.getRuntime().availableProcessors();
+        slots = new Semaphore(slotCount);
+        url = !properties.getAdvertisedUrl().isBlank() ? properties.getAdvertisedUrl()
+            : "http://" + hostname() + ":" + serverPort;
+        restTemplate = restTemplateBuilder
+            .setConnectTimeout(properties.getConnectTimeout())
+            .setReadTimeout(properties.getConnectTimeout())
+            .build();
+
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fleet-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(100, properties.getHeartbeatInterval().toMillis());
+        heartbeats.scheduleWithFixedDelay(this::sendHeartbeat, 0, interval, TimeUnit.MILLISECONDS);
+        logger.info("Fleet worker {} at {} with {} slots, reporting to {}", workerId, url, slotCount,
+            properties.getCoordinatorUrl());
+    }
+
+    /**
+     * Takes an execution slot without waiting.
+     *
+     * @return false when every slot is busy
+     */
+    public boolean tryAcquire() {
+        return slots != null && slots.tryAcquire();
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    private void sendHeartbeat() {
+        WorkerHeartbeat heartbeat = new WorkerHeartbeat();
+        heartbeat.setWorkerId(workerId);
+        heartbeat.setUrl(url);
+        heartbeat.setSlots(slotCount);
+        // Executions run in separate sandboxes, so every warm language shares the same slots
+        int free = slots.availablePermits();
+        Map<String, Integer> freeSlots = new HashMap<>();
+        for (String language : executionService.getSupportedLanguages()) {
+            if (warmup.isReady(language)) {
+                freeSlots.put(language, free);
+            }
+        }
+        heartbeat.setFreeSlots(freeSlots);
+        try {
+            restTemplate.postForObject(properties.getCoordinatorUrl() + "/internal/fleet/heartbeat",
+                new HttpEntity<>(heartbeat, headers()), Void.class);
+            if (!registered) {
+                registered = true;
+                logger.info("Registered with coordinator {}", properties.getCoordinatorUrl());
+            }
+        } catch (RestClientException e) {
+            if (registered) {
+                registered = false;
+                logger.warn("Lost coordinator {}: {}", properties.getCoordinatorUrl(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (heartbeats == null) {
+            return;
+        }
+        heartbeats.shutdownNow();
+        // Leave promptly instead of waiting for the coordinator to expire this node
+        try {
+            restTemplate.postForObject(properties.getCoordinatorUrl() + "/internal/fleet/deregister",
+                new HttpEntity<>(Map.of("workerId", workerId), headers()), Void.class);
+        } catch (RestClientException e) {
+            logger.debug("Could not deregister from coordinator: {}", e.getMessage());
+        }
+    }
+
+    private HttpHeaders headers() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(FleetRouter.TOKEN_HEADER, properties.getToken());
+        return headers;
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.OutputListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sandbox whose workspace is a directory on the host, either used directly or
+ * bind-mounted into a container. File transfer is plain local copying. Steps in a
+ * container are measured from the host by reading the container's cgroup, which
+ * nothing in the container can forge; without a container the shell that runs a step
+ * writes its {@code times} into the workspace.
+ */
+abstract class HostDirectorySandbox implements Sandbox {
+
+    // One "XmY.Zs" per figure printed by the shell's times builtin: self user/system, then children's
+    private static final Pattern SHELL_TIME = Pattern.compile("(\\d+)m\\s*(\\d+(?:[.,]\\d+)?)s");
+    // A real stats file is well under 1 KB; anything longer was written by the program
+    private static final int MAX_STATS_BYTES = 8192;
+
+    protected final Path workDir;
+
+    protected HostDirectorySandbox(Path workDir) {
+        this.workDir = workDir;
+    }
+
+    /**
+     * Whether every step runs in a fresh container, which then measures the step itself
+     * when {@link #execute} is given a {@link StepUsage}.
+     */
+    protected boolean isContainerPerStep() {
+        return false;
+    }
+
+    /**
+     * Whether steps run inside a container, so the shell running them cannot be trusted
+     * to report their usage.
+     */
+    protected boolean isInContainer() {
+        return isContainerPerStep();
+    }
+
+    /**
+     * The cgroup of the container every step runs in; null when there is none or each
+     * step gets its own. Steps are measured by the change in its counters, so steps
+     * running at the same time in it are counted together.
+     */
+    protected ContainerCgroup sharedCgroup() {
+        return null;
+    }
+
+    @Override
+    public ProcessResult run(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                             int maxOutputBytes) throws IOException, InterruptedException {
+        return execute(command, stdin, listener, timeoutSeconds, maxOutputBytes, null);
+    }
+
+    /**
+     * Runs a command like {@link #run}.
+     *
+     * @param usage where a sandbox with a container per step records what the container
+     *              used; null when nobody asked
+     */
+    protected abstract ProcessResult execute(String command, InputStream stdin, OutputListener listener,
+                                             int timeoutSeconds, int maxOutputBytes, StepUsage usage)
+        throws IOException, InterruptedException;
+
+    @Override
+    public ProcessResult runStep(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                 int maxOutputBytes) throws IOException, InterruptedException {
+        StepUsage usage = new StepUsage();
+        long start = System.nanoTime();
+        ProcessResult result;
+        if (isContainerPerStep()) {
+            result = execute(command, stdin, listener, timeoutSeconds, maxOutputBytes, usage);
+        } else if (isInContainer()) {
+            ContainerCgroup cgroup = sharedCgroup();
+            Map<String, Long> before = cgroup != null ? cgroup.read() : Map.of();
+            result = execute(command, stdin, listener, timeoutSeconds, maxOutputBytes, null);
+            if (cgroup != null) {
+                usage.fromCounters(before, cgroup.read(), false);
+            }
+        } else {
+            String statsFile = ".oc-step-" + UUID.randomUUID();
+            String measured = "{ " + command + "\n}; oc_status=$?; { echo after; times; } >> " + statsFile
+                + " 2>/dev/null; exit $oc_status";
+            result = execute(measured, stdin, listener, timeoutSeconds, maxOutputBytes, null);
+            // Missing when the step was killed before it finished
+            try {
+                String stats = takeStatsFile(statsFile);
+                if (stats != null) {
+                    usage.parseShellTimes(stats);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Usage is informational; the result itself stands
+            }
+        }
+        long wallTimeMillis = (System.nanoTime() - start) / 1_000_000;
+        return result.measured(wallTimeMillis, usage.userCpuMillis, usage.systemCpuMillis, usage.peakMemoryBytes,
+            usage.peakPids, usage.oomKilled);
+    }
+
+    /**
+     * Moves the stats file out of the workspace and reads at most {@link #MAX_STATS_BYTES}
+     * of it. The program can write the workspace, so the file may have been replaced by a
+     * link or a FIFO; once moved next to the workspace nothing in the sandbox can touch
+     * it, and it is only read if it is a regular file.
+     *
+     * @return the file's content, or null if the step left none
+     */
+    private String takeStatsFile(String statsFile) throws IOException {
+        Path taken = workDir.resolveSibling(workDir.getFileName() + statsFile);
+        try {
+            Files.move(workDir.resolve(statsFile), taken, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        try {
+            if (!Files.readAttributes(taken, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isRegularFile()) {
+                return null;
+            }
+            try (InputStream in = Files.newInputStream(taken, LinkOption.NOFOLLOW_LINKS)) {
+                return new String(in.readNBytes(MAX_STATS_BYTES), StandardCharsets.UTF_8);
+            }
+        } finally {
+            Files.deleteIfExists(taken);
+        }
+    }
+
+    /**
+     * Usage of one step, from cgroup counters read on the host or from the shell's times.
+     */
+    protected static class StepUsage {
+        long userCpuMillis = -1;
+        long systemCpuMillis = -1;
+        long peakMemoryBytes = -1;
+        long peakPids = -1;
+        boolean oomKilled = false;
+
+        /**
+         * @param ownCgroup whether the cgroup was created for the step, so its counters
+         *                  started at zero and its peaks are the step's own
+         */
+        void fromCounters(Map<String, Long> before, Map<String, Long> after, boolean ownCgroup) {
+            Map<String, Long> start = ownCgroup ? Map.of() : before;
+            long userMicros = delta(start, after, "cpu.stat user_usec", "cpuacct/cpuacct.usage_user", 1000, ownCgroup);
+            long systemMicros = delta(start, after, "cpu.stat system_usec", "cpuacct/cpuacct.usage_sys", 1000,
+                ownCgroup);
+            if (userMicros >= 0 && systemMicros >= 0) {
+                userCpuMillis = userMicros / 1000;
+                systemCpuMillis = systemMicros / 1000;
+            }
+            long oomKills = delta(start, after, "memory.events oom_kill", "memory/memory.oom_control oom_kill", 1,
+                ownCgroup);
+            oomKilled |= oomKills > 0;
+            if (ownCgroup) {
+                peakMemoryBytes = after.getOrDefault("memory.peak",
+                    after.getOrDefault("memory/memory.max_usage_in_bytes", -1L));
+                peakPids = after.getOrDefault("pids.peak", -1L);
+            }
+        }
+
+        // Growth of a v2 counter, or of its v1 equivalent scaled down by v1Divisor; -1 if unavailable
+        private static long delta(Map<String, Long> before, Map<String, Long> after, String v2, String v1,
+                                  long v1Divisor, boolean fromZero) {
+            if ((fromZero || before.containsKey(v2)) && after.containsKey(v2)) {
+                return Math.max(0, after.get(v2) - before.getOrDefault(v2, 0L));
+            }
+            if ((fromZero || before.containsKey(v1)) && after.containsKey(v1)) {
+                return Math.max(0, after.get(v1) - before.getOrDefault(v1, 0L)) / v1Divisor;
+            }
+            return -1;
+        }
+
+        // The children's user and system times, the third and fourth figures after the "after" line
+        void parseShellTimes(String stats) {
+            if (!stats.startsWith("after\n")) {
+                return;
+            }
+            Matcher matcher = SHELL_TIME.matcher(stats);
+            long[] millis = new long[4];
+            int figure = 0;
+            while (matcher.find() && figure < 4) {
+                double seconds = Long.parseLong(matcher.group(1)) * 60
+                    + Double.parseDouble(matcher.group(2).replace(',', '.'));
+                millis[figure++] = Math.round(seconds * 1000);
+            }
+            if (figure == 4) {
+                userCpuMillis = millis[2];
+                systemCpuMillis = millis[3];
+            }
+        }
+    }
+
+    @Override
+    public void writeFile(String fileName, byte[] content) throws IOException {
+        Files.write(workDir.resolve(fileName), content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public long exportFiles(List<String> patterns, Path targetDir) throws IOException {
+        long copied = 0;
+        for (String pattern : patterns) {
+            try (DirectoryStream<Path> matches = Files.newDirectoryStream(workDir, pattern)) {
+                for (Path file : matches) {
+                    if (Files.isRegularFile(file)) {
+                        Files.copy(file, targetDir.resolve(file.getFileName()), StandardCopyOption.COPY_ATTRIBUTES,
+                            StandardCopyOption.REPLACE_EXISTING);
+                        copied += Files.size(file);
+                    }
+                }
+            }
+        }
+        return copied;
+    }
+
+    @Override
+    public void importFiles(Path sourceDir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(sourceDir)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    Files.copy(file, workDir.resolve(file.getFileName()), StandardCopyOption.COPY_ATTRIBUTES,
+                        StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+}
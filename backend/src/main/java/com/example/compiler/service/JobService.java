@@ -0,0 +1,314 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.JobStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs executions as jobs on a bounded, tier-scheduled queue and a worker pool sized
+ * to the host, so HTTP concurrency is decoupled from sandbox concurrency. On a fleet
+ * coordinator, where a job only waits for a worker node, the pool is sized by the slots
+ * the workers report instead. Jobs can be polled and cancelled by id; finished jobs are
+ * kept for a retention period.
+ */
+@Service
+public class JobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private ExecutionCoalescer coalescer;
+
+    @Autowired
+    private TierScheduler scheduler;
+
+    @Autowired
+    private AdmissionLimiter admission;
+
+    @Autowired
+    private FleetProperties fleetProperties;
+
+    @Autowired
+    private WorkerRegistry workerRegistry;
+
+    // 0 means one worker per available processor
+    @Value("${app.execution.jobs.workers:0}")
+    private int workers;
+
+    @Value("${app.execution.jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${app.execution.jobs.retention:10m}")
+    private Duration retention;
+
+    private final Map<String, ExecutionJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private ScheduledExecutorService sweeper;
+    private int poolSize;
+    private int busyWorkers = 0;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threads = runnable -> {
+            Thread thread = new Thread(runnable, "execution-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        if (fleetProperties.isCoordinator()) {
+            // Threads only wait for worker nodes; admission keeps them to the fleet's slots
+            poolSize = Integer.MAX_VALUE;
+            executor = Executors.newCachedThreadPool(threads);
+        } else {
+            poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+            // Never holds more tasks than workers; queuing happens in the tier scheduler
+            executor = Executors.newFixedThreadPool(poolSize, threads);
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "execution-jobs-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepSeconds = Math.max(10, retention.toSeconds() / 2);
+        sweeper.scheduleWithFixedDelay(this::removeExpiredJobs, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+
+        if (fleetProperties.isCoordinator()) {
+            admission.follow(workerRegistry::getTotalSlots);
+        } else {
+            admission.start(poolSize);
+        }
+        admission.onLimitRaised(this::dispatch);
+        if (!admission.getQueueTimeout().isZero()) {
+            sweeper.scheduleWithFixedDelay(this::shedOverdueJobs, 1, 1, TimeUnit.SECONDS);
+        }
+        if (fleetProperties.isCoordinator()) {
+            logger.info("Execution job queue started with capacity {}, running as many jobs as fleet workers have slots",
+                queueCapacity);
+        } else {
+            logger.info("Execution job queue started with {} workers and capacity {}", poolSize, queueCapacity);
+        }
+    }
+
+    /**
+     * Queues a job behind the tier scheduler. Jobs start as soon as admission control
+     * lets another execution run. A job identical to one queued or running waits for
+     * that one's result instead, and a deterministic one may be answered from the
+     * result cache; neither takes a queue place.
+     *
+     * @throws AdmissionRejectedException when the queue is full or the job would not
+     *                                    start before the queue timeout
+     */
+    public ExecutionJob submit(ExecutionJob job) {
+        if (coalesce(job)) {
+            return job;
+        }
+        int queueDepth = scheduler.getQueueDepth();
+        if (admission.wouldExpire(queueDepth)) {
+            admission.rejected("predicted-wait");
+            throw new AdmissionRejectedException("Server is busy, please retry later",
+                admission.retryAfterSeconds(queueDepth));
+        }
+        try {
+            scheduler.offer(job, queueCapacity);
+        } catch (RejectedExecutionException e) {
+            admission.rejected("queue-full");
+            throw new AdmissionRejectedException("Execution queue is full, please retry later",
+                admission.retryAfterSeconds(queueDepth));
+        }
+        jobs.put(job.getId(), job);
+        dispatch();
+        return job;
+    }
+
+    // Answers the job from the cache or attaches it to an identical leader; false when it must be queued
+    private boolean coalesce(ExecutionJob job) {
+        if (!coalescer.isEnabled() || job.isStreaming() || job.isBatch()) {
+            return false;
+        }
+        String key = executionService.coalescingKey(job);
+        ExecuteResponse cached = job.isDeterministic() ? coalescer.cachedResult(key) : null;
+        if (cached != null) {
+            jobs.put(job.getId(), job);
+            job.markRunning();
+            job.finish(JobStatus.COMPLETED, cached);
+            return true;
+        }
+        ExecutionJob leader = coalescer.lead(key, job);
+        // A queued leader of another tier would hand this job that tier's place in the queue
+        if (leader == null || (leader.getTier() != job.getTier() && leader.getStatus() == JobStatus.QUEUED)) {
+            return false;
+        }
+        jobs.put(job.getId(), job);
+        // Asynchronously, so the leader's lock is not held while this job is queued again
+        leader.getCompletion().whenCompleteAsync((response, error) -> {
+            if (leader.getStatus() == JobStatus.COMPLETED) {
+                if (job.markRunning()) {
+                    job.finish(JobStatus.COMPLETED, coalescer.joined(response));
+                }
+                return;
+            }
+            if (job.getStatus() != JobStatus.QUEUED) {
+                return; // Cancelled while following
+            }
+            // The leader was cancelled, shed or failed, which says nothing about this job
+            try {
+                submit(job);
+            } catch (AdmissionRejectedException e) {
+                job.finish(JobStatus.REJECTED, ExecuteResponse.error(e.getMessage()));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Runs a job and waits for its result. Used by the synchronous /api/execute endpoint.
+     */
+    public ExecuteResponse execute(ExecutionJob job) throws InterruptedException {
+        submit(job);
+        try {
+            ExecuteResponse response = job.getCompletion().get();
+            if (job.getStatus() == JobStatus.REJECTED) {
+                throw new AdmissionRejectedException(response.getError(),
+                    admission.retryAfterSeconds(scheduler.getQueueDepth()));
+            }
+            return response;
+        } catch (InterruptedException e) {
+            cancel(job);
+            throw e;
+        } catch (ExecutionException e) {
+            return ExecuteResponse.error("Internal server error: " + e.getCause().getMessage());
+        } finally {
+            // Synchronous callers never poll, so there is nothing to retain
+            jobs.remove(job.getId());
+        }
+    }
+
+    public ExecutionJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public boolean cancel(ExecutionJob job) {
+        boolean cancelled = job.cancel();
+        if (cancelled) {
+            scheduler.remove(job);
+            logger.info("Cancelled execution job {}", job.getId());
+        }
+        return cancelled;
+    }
+
+    public int getQueueDepth() {
+        return scheduler.getQueueDepth();
+    }
+
+    // Hands queued jobs to idle workers in the order the tier scheduler picks,
+    // as long as admission control allows another execution
+    private synchronized void dispatch() {
+        while (busyWorkers < Math.min(poolSize, admission.getLimit())) {
+            ExecutionJob job = scheduler.poll();
+            if (job == null) {
+                return;
+            }
+            busyWorkers++;
+            // The FutureTask is what a cancel interrupts; the wrapper frees the worker
+            // slot even when the task was cancelled before it started
+            FutureTask<Void> task = new FutureTask<>(() -> run(job), null);
+            job.setFuture(task);
+            admission.started();
+            executor.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    admission.finished(System.nanoTime() - start);
+                    scheduler.complete(job);
+                    workerFinished();
+                }
+            });
+        }
+    }
+
+    private void workerFinished() {
+        synchronized (this) {
+            busyWorkers--;
+        }
+        dispatch();
+    }
+
+    private void run(ExecutionJob job) {
+        if (!job.markRunning()) {
+            return; // Cancelled while queued
+        }
+        try {
+            if (job.isBatch()) {
+                job.finishBatch(executionService.executeBatch(job.getCode(), job.getLanguage(),
+                    job.getTestCases(), job.getUserId(), job.getTier(), job.getMaxOutputSize()));
+                return;
+            }
+            ExecuteResponse response;
+            if (job.isStreaming()) {
+                response = executionService.streamCode(job.getCode(), job.getLanguage(), job.getStdin(),
+                    job.getOutputListener(), job.getUserId(), job.getTier(), job.getMaxOutputSize(), job.isCompileOnly());
+            } else {
+                response = executionService.executeCode(job.getCode(), job.getLanguage(),
+                    job.getInput(), job.getUserId(), job.getTier(), job.getMaxOutputSize(), job.isDeterministic(),
+                    job.isCompileOnly());
+            }
+            job.finish(JobStatus.COMPLETED, response);
+        } catch (RuntimeException e) {
+            logger.error("Execution job {} failed", job.getId(), e);
+            job.finish(JobStatus.FAILED, ExecuteResponse.error("Internal server error: " + e.getMessage()));
+        } finally {
+            // Clear a cancel interrupt so it does not leak into the next job on this worker
+            Thread.interrupted();
+        }
+    }
+
+    // Turns away jobs that waited past the queue timeout; they would likely time out anyway
+    private void shedOverdueJobs() {
+        long cutoff = System.nanoTime() - admission.getQueueTimeout().toNanos();
+        for (ExecutionJob job : scheduler.removeQueuedBefore(cutoff)) {
+            if (job.finish(JobStatus.REJECTED, ExecuteResponse.error("Server is busy, please retry later"))) {
+                admission.rejected("queue-timeout");
+                logger.info("Shed execution job {} after waiting {}", job.getId(), admission.getQueueTimeout());
+            }
+        }
+    }
+
+    private void removeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retention.toMillis();
+        jobs.values().removeIf(job -> {
+            Long finishedAt = job.getFinishedAt();
+            return finishedAt != null && finishedAt < cutoff;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.compiler.service;
+
+import java.util.List;
+
+/**
+ * Docker image, commands and source file name used to run one language.
+ * Compiled languages also name their compile step and the files it produces,
+ * so a cached build can be reused and only the run step executed. Interpreted
+ * languages may name a syntax check that stands in for the compile step when
+ * only diagnostics are wanted.
+ */
+public class LanguageConfig {
+    private final String language;
+    private final String dockerImage;
+    private final String fileName;
+    private final String compileCommand;
+    private final String runCommand;
+    private final List<String> artifacts;
+    private final String checkCommand;
+
+    public LanguageConfig(String language, String dockerImage, String command, String fileName) {
+        this(language, dockerImage, command, fileName, null);
+    }
+
+    public LanguageConfig(String language, String dockerImage, String command, String fileName, String checkCommand) {
+        this(language, dockerImage, fileName, null, command, List.of(), checkCommand);
+    }
+
+    public LanguageConfig(String language, String dockerImage, String fileName,
+                          String compileCommand, String runCommand, List<String> artifacts) {
+        this(language, dockerImage, fileName, compileCommand, runCommand, artifacts, compileCommand);
+    }
+
+    private LanguageConfig(String language, String dockerImage, String fileName, String compileCommand,
+                           String runCommand, List<String> artifacts, String checkCommand) {
+        this.language = language;
+        this.dockerImage = dockerImage;
+        this.fileName = fileName;
+        this.compileCommand = compileCommand;
+        this.runCommand = runCommand;
+        this.artifacts = List.copyOf(artifacts);
+        this.checkCommand = checkCommand;
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public String getDockerImage() {
+        return dockerImage;
+    }
+
+    /**
+     * Single shell command that compiles (if needed) and runs the program.
+     */
+    public String getCommand() {
+        return isCompiled() ? compileCommand + " && " + runCommand : runCommand;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public boolean isCompiled() {
+        return compileCommand != null;
+    }
+
+    public String getCompileCommand() {
+        return compileCommand;
+    }
+
+    public String getRunCommand() {
+        return runCommand;
+    }
+
+    /**
+     * Command that reports compile errors without running the program: the compile
+     * step itself for compiled languages. Null when the language has none.
+     */
+    public String getCheckCommand() {
+        return checkCommand;
+    }
+
+    /**
+     * Glob patterns, relative to the workspace, of the files the compile step produces.
+     */
+    public List<String> getArtifacts() {
+        return artifacts;
+    }
+}
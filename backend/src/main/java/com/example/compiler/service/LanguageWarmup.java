@@ -0,0 +1,241 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.config.WarmupProperties;
+import com.example.compiler.model.ExecuteResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms every language's toolchain at startup by compiling and running a tiny canary
+ * program in a real sandbox, which pulls or loads the image and pages in the toolchain.
+ * Canaries run in parallel; a language is ready once its canary printed the expected
+ * output, and failed canaries are retried until they pass. A fleet coordinator runs no
+ * canaries; there a language is ready while some registered worker reports it warm.
+ */
+@Service
+public class LanguageWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(LanguageWarmup.class);
+
+    private static final String EXPECTED_OUTPUT = "Hello, World!";
+
+    // Each prints EXPECTED_OUTPUT; C++ includes bits/stdc++.h so its precompiled header is read too
+    private static final Map<String, String> CANARIES = Map.ofEntries(
+        Map.entry("python", "print(\"Hello, World!\")\n"),
+        Map.entry("java", "public class Main {\n    public static void main(String[] args) {\n"
+            + "        System.out.println(\"Hello, World!\");\n    }\n}\n"),
+        Map.entry("cpp", "#include <bits/stdc++.h>\nint main() {\n    std::cout << \"Hello, World!\" << std::endl;\n}\n"),
+        Map.entry("c", "#include <stdio.h>\nint main(void) {\n    puts(\"Hello, World!\");\n    return 0;\n}\n"),
+        Map.entry("javascript", "console.log(\"Hello, World!\");\n"),
+        Map.entry("typescript", "const greeting: string = \"Hello, World!\";\nconsole.log(greeting);\n"),
+        Map.entry("rust", "fn main() {\n    println!(\"Hello, World!\");\n}\n"),
+        Map.entry("ruby", "puts \"Hello, World!\"\n"),
+        Map.entry("r", "cat(\"Hello, World!\\n\")\n"),
+        Map.entry("csharp", "using System;\nclass Program {\n    static void Main() {\n"
+            + "        Console.WriteLine(\"Hello, World!\");\n    }\n}\n"),
+        Map.entry("go", "package main\n\nimport \"fmt\"\n\nfunc main() {\n    fmt.Println(\"Hello, World!\")\n}\n")
+    );
+
+    public enum Status {
+        PENDING, WARMING, READY, FAILED
+    }
+
+    @Autowired
+    private WarmupProperties properties;
+
+    @Autowired
+    private ExecutionService executionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private FleetProperties fleetProperties;
+
+    @Autowired
+    private WorkerRegistry workerRegistry;
+
+    private final Map<String, LanguageState> states = new ConcurrentHashMap<>();
+    private final AtomicBoolean announcedReady = new AtomicBoolean();
+    private ScheduledExecutorService canaryThreads;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (String language : executionService.getSupportedLanguages()) {
+            states.put(language, new LanguageState());
+        }
+        for (String language : properties.getRequiredLanguages()) {
+            if (!states.containsKey(language)) {
+                logger.warn("Ignoring unsupported language in app.execution.warmup.required-languages: {}", language);
+            }
+        }
+        if (fleetProperties.isCoordinator()) {
+            return;
+        }
+        if (!properties.isEnabled()) {
+            states.values().forEach(state -> state.status = Status.READY);
+            return;
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        canaryThreads = Executors.newScheduledThreadPool(Math.max(1, properties.getParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "warmup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Warming up {} languages, {} at a time", states.size(), Math.max(1, properties.getParallelism()));
+        states.keySet().forEach(language -> canaryThreads.execute(() -> warmUp(language)));
+    }
+
+    private void warmUp(String language) {
+        LanguageState state = states.get(language);
+        state.status = Status.WARMING;
+        state.attempts++;
+        long start = System.nanoTime();
+        String failure;
+        try {
+            String canary = CANARIES.get(language);
+            failure = canary != null ? checkCanary(executionService.runCanary(language, canary))
+                : "No warm-up canary for " + language;
+        } catch (RuntimeException e) {
+            failure = e.getMessage();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        Timer.builder("execution.warmup")
+            .description("Time to compile and run a language's warm-up canary")
+            .tags("language", language, "result", failure == null ? "ready" : "failed")
+            .register(meterRegistry)
+            .record(millis, TimeUnit.MILLISECONDS);
+
+        state.latencyMillis = millis;
+        state.error = failure;
+        if (failure == null) {
+            state.status = Status.READY;
+            logger.info("Language {} is warm after {} ms", language, millis);
+            if (isReady() && announcedReady.compareAndSet(false, true)) {
+                logger.info("Required languages are warm; ready for traffic");
+            }
+            return;
+        }
+        state.status = Status.FAILED;
+        long retryMillis = Math.max(1000, properties.getRetryInterval().toMillis());
+        logger.warn("Warm-up canary for {} failed after {} ms, retrying in {} ms: {}", language, millis, retryMillis,
+            failure);
+        if (!canaryThreads.isShutdown()) {
+            canaryThreads.schedule(() -> warmUp(language), retryMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Null when the canary compiled, ran and printed what it should
+    private static String checkCanary(ExecuteResponse response) {
+        if (response.getError() != null) {
+            return response.getError();
+        }
+        if (response.getExitCode() != 0) {
+            // Some compilers print their diagnostics to stdout
+            String output = response.getStderr() != null && !response.getStderr().isBlank()
+                ? response.getStderr().trim() : response.getStdout() != null ? response.getStdout().trim() : "";
+            return "Exit code " + response.getExitCode() + (output.isEmpty() ? "" : ": " + abbreviate(output));
+        }
+        String stdout = response.getStdout() != null ? response.getStdout().trim() : "";
+        return stdout.equals(EXPECTED_OUTPUT) ? null : "Unexpected output: " + abbreviate(stdout);
+    }
+
+    private static String abbreviate(String text) {
+        return text.length() > 200 ? text.substring(0, 200) + "..." : text;
+    }
+
+    /**
+     * Whether every required language, or every language when none are configured, is warm.
+     */
+    public boolean isReady() {
+        List<String> required = properties.getRequiredLanguages();
+        if (states.isEmpty()) {
+            return false;
+        }
+        if (required.isEmpty()) {
+            return states.keySet().stream().allMatch(this::isReady);
+        }
+        return required.stream().filter(states::containsKey).allMatch(this::isReady);
+    }
+
+    public boolean isReady(String language) {
+        if (fleetProperties.isCoordinator()) {
+            return workerRegistry.serves(language);
+        }
+        LanguageState state = states.get(language);
+        return state != null && state.status == Status.READY;
+    }
+
+    public boolean isSupported(String language) {
+        return executionService.getSupportedLanguages().contains(language);
+    }
+
+    /**
+     * Warm-up state of every language, for health details and the warmup endpoint.
+     *
+     * @param full whether to add attempts and the last canary error, which only
+     *             authenticated callers may see
+     */
+    public Map<String, Object> describe(boolean full) {
+        Map<String, Object> languages = new TreeMap<>();
+        states.forEach((language, state) -> languages.put(language, describe(language, full)));
+        return languages;
+    }
+
+    public Map<String, Object> describe(String language, boolean full) {
+        LanguageState state = states.get(language);
+        Map<String, Object> details = new LinkedHashMap<>();
+        if (fleetProperties.isCoordinator()) {
+            details.put("status", isReady(language) ? Status.READY : Status.PENDING);
+            return details;
+        }
+        details.put("status", state != null ? state.status : Status.PENDING);
+        if (state != null) {
+            if (state.latencyMillis >= 0) {
+                details.put("latencyMillis", state.latencyMillis);
+            }
+            if (full) {
+                details.put("attempts", state.attempts);
+                if (state.error != null) {
+                    details.put("error", state.error);
+                }
+            }
+        }
+        return details;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (canaryThreads != null) {
+            canaryThreads.shutdownNow();
+        }
+    }
+
+    // Written by one canary thread at a time, read by health checks
+    private static class LanguageState {
+        volatile Status status = Status.PENDING;
+        volatile int attempts;
+        volatile long latencyMillis = -1;
+        volatile String error;
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.ProcessRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One long-lived worker process in its own sandbox that compiles and runs submitted
+ * programs for a single language, one job at a time. Talks the length-prefixed
+ * protocol described in the worker sources under {@code resources/workers}.
+ */
+class LanguageWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LanguageWorker.class);
+
+    static final int MAGIC = 0x4F435752;
+    // Sent instead of MAGIC by a worker that cannot run on the runtime in its sandbox
+    static final int UNSUPPORTED = 0x4F435755;
+    private static final int FLAG_TIMED_OUT = 1;
+    private static final int FLAG_OUTPUT_LIMIT = 2;
+    private static final int FLAG_RECYCLE = 4;
+
+    // How long past the job timeout to wait for the worker's own verdict before killing it
+    private static final long RESPONSE_GRACE_MILLIS = 3000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final ExecutorService IO_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "language-worker-io-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String language;
+    private final Sandbox sandbox;
+    private final Process process;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final int maxJobs;
+    private int jobs = 0;
+    private volatile boolean healthy = true;
+    private boolean destroyed = false;
+
+    private LanguageWorker(String language, Sandbox sandbox, Process process, int maxJobs) {
+        this.language = language;
+        this.sandbox = sandbox;
+        this.process = process;
+        this.in = new DataInputStream(process.getInputStream());
+        this.out = new DataOutputStream(process.getOutputStream());
+        this.maxJobs = maxJobs;
+    }
+
+    /**
+     * Starts the worker in the sandbox and waits until it reports ready. The sandbox
+     * is owned by the worker from here on, also when starting fails.
+     *
+     * @throws UnsupportedOperationException when the worker reports that it cannot run
+     *                                       on the runtime in its sandbox
+     */
+    static LanguageWorker start(String language, Sandbox sandbox, String command, int maxJobs, int readyTimeoutSeconds)
+            throws IOException, InterruptedException {
+        Process process;
+        try {
+            process = sandbox.spawn(command);
+        } catch (IOException | RuntimeException e) {
+            sandbox.close();
+            throw e;
+        }
+        LanguageWorker worker = new LanguageWorker(language, sandbox, process, maxJobs);
+        IO_THREADS.submit(worker::logStderr);
+
+        Future<Integer> ready = IO_THREADS.submit(worker.in::readInt);
+        try {
+            int magic = ready.get(readyTimeoutSeconds, TimeUnit.SECONDS);
+            if (magic == UNSUPPORTED) {
+                worker.destroy();
+                throw new UnsupportedOperationException(language + " worker cannot run on the runtime in its sandbox");
+            }
+            if (magic != MAGIC) {
+                throw new IOException("Unexpected handshake from " + language + " worker");
+            }
+            return worker;
+        } catch (TimeoutException e) {
+            worker.destroy();
+            throw new IOException(language + " worker did not start within " + readyTimeoutSeconds + " seconds");
+        } catch (ExecutionException e) {
+            worker.destroy();
+            throw new IOException(language + " worker exited during startup", e.getCause());
+        } catch (InterruptedException | IOException e) {
+            worker.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Compiles and runs one program. The worker enforces the limits itself; it is only
+     * killed from here when it does not answer in time.
+     */
+    ProcessResult execute(byte[] source, byte[] stdin, int timeoutSeconds, int maxOutputBytes)
+            throws IOException, InterruptedException {
+        jobs++;
+        Future<ProcessResult> response = IO_THREADS.submit(() -> exchange(source, stdin, timeoutSeconds, maxOutputBytes));
+        try {
+            return response.get(timeoutSeconds * 1000L + RESPONSE_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("{} worker did not answer within the time limit, killing it", language);
+            destroy();
+            return new ProcessResult("", "", -1, true);
+        } catch (InterruptedException e) {
+            destroy();
+            throw e;
+        } catch (ExecutionException e) {
+            destroy();
+            throw new IOException(language + " worker failed", e.getCause());
+        }
+    }
+
+    private ProcessResult exchange(byte[] source, byte[] stdin, int timeoutSeconds, int maxOutputBytes)
+            throws IOException {
+        out.writeInt(source.length);
+        out.write(source);
+        out.writeInt(stdin.length);
+        out.write(stdin);
+        out.writeInt(timeoutSeconds * 1000);
+        out.writeInt(maxOutputBytes);
+        out.flush();
+
+        int exitCode = in.readInt();
+        int flags = in.readInt();
+        String stdout = new String(readBlock(maxOutputBytes), StandardCharsets.UTF_8);
+        long stdoutDropped = in.readLong();
+        String stderr = new String(readBlock(maxOutputBytes), StandardCharsets.UTF_8);
+        long stderrDropped = in.readLong();
+
+        if ((flags & FLAG_RECYCLE) != 0) {
+            healthy = false;
+        }
+        return new ProcessResult(stdout, stderr, exitCode, (flags & FLAG_TIMED_OUT) != 0,
+            (flags & FLAG_OUTPUT_LIMIT) != 0, stdoutDropped, stderrDropped);
+    }
+
+    // Jobs run inside the worker, so a reply is untrusted: never allocate more than the worker may send
+    private byte[] readBlock(int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException(language + " worker sent a block of " + length + " bytes, limit " + maxLength);
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    private void logStderr() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.debug("{} worker: {}", language, line);
+            }
+        } catch (IOException e) {
+            // Worker is gone
+        }
+    }
+
+    /**
+     * Whether the worker can take another job, or has served its share or asked to be replaced.
+     */
+    boolean isReusable() {
+        return healthy && jobs < maxJobs && process.isAlive();
+    }
+
+    String getLanguage() {
+        return language;
+    }
+
+    synchronized void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        healthy = false;
+        ProcessRunner.kill(process);
+        sandbox.close();
+    }
+}
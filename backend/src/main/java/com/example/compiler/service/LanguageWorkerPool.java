@@ -0,0 +1,249 @@
+package com.example.compiler.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps long-lived language workers running so that a job skips interpreter, JVM or
+ * javac startup. The Java worker compiles and runs programs in-process; the Python and
+ * Node workers start each program from a pre-initialized process. Workers are replaced
+ * after {@code max-jobs} jobs. When no worker is idle the caller falls back to
+ * a regular sandbox, so workers only ever make runs faster. The Python and Node workers
+ * clean up after a job by killing every other process of the sandbox user, so they only
+ * run on backends that give each worker a user of its own.
+ */
+@Service
+public class LanguageWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(LanguageWorkerPool.class);
+
+    private static final int READY_TIMEOUT_SECONDS = 60;
+    private static final long RETRY_DELAY_SECONDS = 30;
+
+    @Value("${app.execution.language-workers.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.execution.language-workers.languages:java}")
+    private List<String> languages;
+
+    // Workers kept per language
+    @Value("${app.execution.language-workers.size:2}")
+    private int size;
+
+    @Value("${app.execution.language-workers.max-jobs:100}")
+    private int maxJobs;
+
+    @Value("${app.execution.language-workers.java-options:-XX:+UseSerialGC -Xmx64m}")
+    private String javaOptions;
+
+    @Autowired
+    private ExecutionProfiles executionProfiles;
+
+    private final Map<String, BlockingQueue<LanguageWorker>> idle = new ConcurrentHashMap<>();
+    // Workers running or starting, per language
+    private final Map<String, AtomicInteger> live = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> workerSources = new HashMap<>();
+    private final ScheduledExecutorService housekeeping = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "language-worker-pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ExecutionBackend backend;
+    private Map<String, LanguageConfig> languageConfigs;
+    private volatile boolean running = false;
+
+    /**
+     * Starts workers for the configured languages in the background.
+     */
+    public synchronized void start(ExecutionBackend backend, Map<String, LanguageConfig> languageConfigs) {
+        if (!enabled || size <= 0) {
+            logger.info("Language workers are disabled");
+            return;
+        }
+        this.backend = backend;
+        this.languageConfigs = languageConfigs;
+        for (String language : languages) {
+            WorkerSpec spec = specFor(language);
+            if (spec == null || !languageConfigs.containsKey(language)) {
+                logger.warn("No language worker available for {}", language);
+                continue;
+            }
+            if (spec.needsDedicatedUser && !backend.isWorkerUserDedicated()) {
+                logger.info("{} backend cannot host {} workers: they need a sandbox user of their own",
+                    backend.getMode(), language);
+                continue;
+            }
+            try (InputStream source = new ClassPathResource("workers/" + spec.fileName).getInputStream()) {
+                workerSources.put(language, source.readAllBytes());
+            } catch (IOException e) {
+                logger.warn("Cannot load {} worker source: {}", language, e.getMessage());
+                continue;
+            }
+            idle.put(language, new LinkedBlockingQueue<>());
+            live.put(language, new AtomicInteger());
+        }
+        running = true;
+        idle.keySet().forEach(this::scheduleRefill);
+        logger.info("Language workers enabled for {}", idle.keySet());
+    }
+
+    public boolean supports(String language) {
+        return running && idle.containsKey(language);
+    }
+
+    /**
+     * Runs a program in an idle worker.
+     *
+     * @return the result, or null when no worker is idle and the caller should use a sandbox
+     */
+    public ProcessResult execute(String language, String code, byte[] stdin, int timeoutSeconds, int maxOutputBytes)
+            throws InterruptedException {
+        BlockingQueue<LanguageWorker> workers = idle.get(language);
+        LanguageWorker worker = workers != null && running ? workers.poll() : null;
+        if (worker == null) {
+            return null;
+        }
+        try {
+            return worker.execute(code.getBytes(StandardCharsets.UTF_8), stdin != null ? stdin : new byte[0],
+                timeoutSeconds, maxOutputBytes);
+        } catch (IOException e) {
+            // Whatever broke the worker, a regular sandbox can still answer
+            logger.warn("{} worker failed, falling back to a sandbox: {}", language, e.getMessage());
+            return null;
+        } finally {
+            if (running && worker.isReusable()) {
+                workers.offer(worker);
+            } else {
+                retire(worker);
+            }
+        }
+    }
+
+    private void retire(LanguageWorker worker) {
+        worker.destroy();
+        live.get(worker.getLanguage()).decrementAndGet();
+        scheduleRefill(worker.getLanguage());
+    }
+
+    private void scheduleRefill(String language) {
+        if (running) {
+            housekeeping.submit(() -> refill(language));
+        }
+    }
+
+    private void refill(String language) {
+        AtomicInteger count = live.get(language);
+        while (running && idle.containsKey(language)) {
+            int current = count.get();
+            if (current >= size) {
+                return;
+            }
+            if (count.compareAndSet(current, current + 1) && !launch(language)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false when no worker could be started; a retry is scheduled if it may help
+     */
+    private boolean launch(String language) {
+        WorkerSpec spec = specFor(language);
+        LanguageConfig config = languageConfigs.get(language);
+        try {
+            // Jobs of every tier share the worker, so it gets the language's own limits
+            Sandbox sandbox = backend.openWorkerSandbox(config, executionProfiles.resolve(language, null));
+            try {
+                sandbox.writeFile(spec.fileName, workerSources.get(language));
+            } catch (IOException e) {
+                sandbox.close();
+                throw e;
+            }
+            LanguageWorker worker = LanguageWorker.start(language, sandbox, spec.command, maxJobs, READY_TIMEOUT_SECONDS);
+            if (!running) {
+                worker.destroy();
+                return false;
+            }
+            idle.get(language).offer(worker);
+            logger.info("Started {} worker", language);
+            return true;
+        } catch (UnsupportedOperationException e) {
+            live.get(language).decrementAndGet();
+            if (idle.remove(language) != null) {
+                logger.info("{} backend cannot host {} workers: {}", backend.getMode(), language, e.getMessage());
+            }
+            return false;
+        } catch (IOException e) {
+            live.get(language).decrementAndGet();
+            logger.warn("Could not start {} worker, retrying in {}s: {}", language, RETRY_DELAY_SECONDS, e.getMessage());
+            housekeeping.schedule(() -> refill(language), RETRY_DELAY_SECONDS, TimeUnit.SECONDS);
+            return false;
+        } catch (InterruptedException e) {
+            live.get(language).decrementAndGet();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private WorkerSpec specFor(String language) {
+        switch (language) {
+            case "java":
+                // The source launcher compiles the worker itself once at startup
+                return new WorkerSpec("JavaWorker.java", "java " + javaOptions
+                    + " -Dfile.encoding=UTF-8 -Djava.security.manager=allow JavaWorker.java " + maxJobs, false);
+            case "python":
+                // Forks a warm interpreter per job
+                return new WorkerSpec("python_worker.py", "python3 python_worker.py " + maxJobs, true);
+            case "javascript":
+                // Keeps a booted node process on standby for the next job
+                return new WorkerSpec("node_worker.js", "node node_worker.js " + maxJobs, true);
+            default:
+                return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        housekeeping.shutdownNow();
+        for (BlockingQueue<LanguageWorker> workers : idle.values()) {
+            LanguageWorker worker;
+            while ((worker = workers.poll()) != null) {
+                worker.destroy();
+            }
+        }
+    }
+
+    private static class WorkerSpec {
+        final String fileName;
+        final String command;
+        // Kills every other process of the sandbox user between jobs
+        final boolean needsDedicatedUser;
+
+        WorkerSpec(String fileName, String command, boolean needsDedicatedUser) {
+            this.fileName = fileName;
+            this.command = command;
+            this.needsDedicatedUser = needsDedicatedUser;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.OutputListener;
+import com.example.compiler.util.ProcessRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs interpreters and compilers directly on the host under rlimits, in a private
+ * temp dir, with a wall-clock kill. Only meant for build machines without a Docker
+ * daemon and for trusted internal deployments: there is no filesystem or network
+ * isolation beyond what the limits provide.
+ */
+@Component
+public class LocalSandboxBackend implements ExecutionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalSandboxBackend.class);
+
+    @Autowired
+    private WorkspaceAllocator workspaceAllocator;
+
+    // Address-space limit; JVM, Mono and Go toolchains need far more than the container memory limit
+    @Value("${app.execution.local.max-memory-mb:2048}")
+    private int maxMemoryMb;
+
+    @Value("${app.execution.local.max-file-size-mb:16}")
+    private int maxFileSizeMb;
+
+    @Value("${app.execution.local.max-open-files:256}")
+    private int maxOpenFiles;
+
+    private boolean prlimitAvailable;
+
+    @Override
+    public String getMode() {
+        return "local";
+    }
+
+    @Override
+    public void start(Map<String, LanguageConfig> languageConfigs) {
+        prlimitAvailable = isOnPath("prlimit");
+        logger.info("Local sandbox backend using {} for resource limits", prlimitAvailable ? "prlimit" : "ulimit");
+    }
+
+    @Override
+    public String getToolchainId(LanguageConfig config) {
+        // Host toolchains are not versioned here; clear the artifact cache after upgrading them
+        return "local";
+    }
+
+    /**
+     * Timeouts from the profile apply; memory is limited by address space through
+     * {@code app.execution.local.max-memory-mb} instead, since the toolchains reserve far
+     * more than they use, and CPU and process limits need containers.
+     */
+    @Override
+    public Sandbox openSandbox(LanguageConfig config, ExecutionProfile profile) throws IOException {
+        return new LocalSandbox();
+    }
+
+    private class LocalSandbox extends HostDirectorySandbox {
+        private final Path tmpDir;
+
+        LocalSandbox() throws IOException {
+            super(workspaceAllocator.allocate(false));
+            this.tmpDir = Files.createDirectory(workDir.resolve(".tmp"));
+        }
+
+        @Override
+        protected ProcessResult execute(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                        int maxOutputBytes, StepUsage usage) throws IOException, InterruptedException {
+            logger.info("Executing locally in {}: {}", workDir, command);
+            return ProcessRunner.run(limited(command, timeoutSeconds), stdin, listener, timeoutSeconds,
+                maxOutputBytes, null);
+        }
+
+        @Override
+        public Process spawn(String command) throws IOException {
+            logger.info("Starting locally in {}: {}", workDir, command);
+            // Long-lived processes get no CPU time limit; they enforce their own per job
+            return limited(command, 0).start();
+        }
+
+        /**
+         * @param cpuSeconds CPU time limit, 0 for none
+         */
+        private ProcessBuilder limited(String command, int cpuSeconds) {
+            ProcessBuilder pb;
+            if (prlimitAvailable) {
+                List<String> prlimit = new ArrayList<>(List.of("prlimit",
+                    "--as=" + (long) maxMemoryMb * 1024 * 1024,
+                    "--fsize=" + (long) maxFileSizeMb * 1024 * 1024,
+                    "--nofile=" + maxOpenFiles,
+                    "--core=0"));
+                if (cpuSeconds > 0) {
+                    prlimit.add("--cpu=" + cpuSeconds);
+                }
+                prlimit.addAll(List.of("--", "sh", "-c", command));
+                pb = new ProcessBuilder(prlimit);
+            } else {
+                String limits = "ulimit -v " + (long) maxMemoryMb * 1024
+                    + (cpuSeconds > 0 ? " -t " + cpuSeconds : "")
+                    + " -f " + (long) maxFileSizeMb * 2048
+                    + " -n " + maxOpenFiles
+                    + " -c 0 && ";
+                pb = new ProcessBuilder("sh", "-c", limits + command);
+            }
+            pb.directory(workDir.toFile());
+
+            // Keep compilers and programs out of the service's home and temp dirs
+            Map<String, String> env = pb.environment();
+            env.put("HOME", workDir.toString());
+            env.put("TMPDIR", tmpDir.toString());
+            return pb;
+        }
+
+        @Override
+        public int getParallelism() {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        @Override
+        public void close() {
+            workspaceAllocator.release(workDir);
+        }
+    }
+
+    private static boolean isOnPath(String executable) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (Files.isExecutable(Path.of(dir, executable))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
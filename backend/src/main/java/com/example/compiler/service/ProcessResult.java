@@ -0,0 +1,142 @@
+package com.example.compiler.service;
+
+import com.example.compiler.model.TerminationReason;
+
+/**
+ * Outcome of a command run inside a {@link Sandbox}.
+ */
+public class ProcessResult {
+    private final String stdout;
+    private final String stderr;
+    private final int exitCode;
+    private final boolean timedOut;
+    private final boolean outputLimitExceeded;
+    private final long stdoutTruncatedBytes;
+    private final long stderrTruncatedBytes;
+    // Set by Sandbox#runStep; -1 when not measured
+    private long wallTimeMillis = -1;
+    private long userCpuMillis = -1;
+    private long systemCpuMillis = -1;
+    private long peakMemoryBytes = -1;
+    private long peakPids = -1;
+    private boolean oomKilled = false;
+
+    public ProcessResult(String stdout, String stderr, int exitCode, boolean timedOut) {
+        this(stdout, stderr, exitCode, timedOut, false, 0, 0);
+    }
+
+    public ProcessResult(String stdout, String stderr, int exitCode, boolean timedOut,
+                         boolean outputLimitExceeded, long stdoutTruncatedBytes, long stderrTruncatedBytes) {
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.exitCode = exitCode;
+        this.timedOut = timedOut;
+        this.outputLimitExceeded = outputLimitExceeded;
+        this.stdoutTruncatedBytes = stdoutTruncatedBytes;
+        this.stderrTruncatedBytes = stderrTruncatedBytes;
+    }
+
+    public String getStdout() {
+        return stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /**
+     * True when the process was killed because it produced more output than allowed.
+     */
+    public boolean isOutputLimitExceeded() {
+        return outputLimitExceeded;
+    }
+
+    // Bytes read past the output cap before the process was killed
+    public long getStdoutTruncatedBytes() {
+        return stdoutTruncatedBytes;
+    }
+
+    public long getStderrTruncatedBytes() {
+        return stderrTruncatedBytes;
+    }
+
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    // User plus system CPU time of the command and the processes it started
+    public long getCpuTimeMillis() {
+        return userCpuMillis >= 0 && systemCpuMillis >= 0 ? userCpuMillis + systemCpuMillis : -1;
+    }
+
+    public long getUserCpuMillis() {
+        return userCpuMillis;
+    }
+
+    public long getSystemCpuMillis() {
+        return systemCpuMillis;
+    }
+
+    public long getPeakMemoryBytes() {
+        return peakMemoryBytes;
+    }
+
+    // Most processes and threads alive at once
+    public long getPeakPids() {
+        return peakPids;
+    }
+
+    /**
+     * True when the OOM killer ended a process of the command at the memory limit.
+     */
+    public boolean isOomKilled() {
+        return oomKilled;
+    }
+
+    public TerminationReason getTerminationReason() {
+        if (oomKilled) {
+            return TerminationReason.MEMORY_LIMIT;
+        }
+        if (timedOut) {
+            return TerminationReason.TIMEOUT;
+        }
+        if (outputLimitExceeded) {
+            return TerminationReason.OUTPUT_LIMIT;
+        }
+        // Shells and ProcessRunner both report death by signal N as 128 + N
+        return exitCode > 128 && exitCode <= 128 + 64 ? TerminationReason.SIGNALED : TerminationReason.EXITED;
+    }
+
+    ProcessResult measured(long wallTimeMillis) {
+        this.wallTimeMillis = wallTimeMillis;
+        return this;
+    }
+
+    ProcessResult measured(long wallTimeMillis, long userCpuMillis, long systemCpuMillis, long peakMemoryBytes,
+                           long peakPids, boolean oomKilled) {
+        this.wallTimeMillis = wallTimeMillis;
+        this.userCpuMillis = userCpuMillis;
+        this.systemCpuMillis = systemCpuMillis;
+        this.peakMemoryBytes = peakMemoryBytes;
+        this.peakPids = peakPids;
+        this.oomKilled = oomKilled;
+        return this;
+    }
+
+    /**
+     * Combines a compile step with the run step that followed it: output is
+     * concatenated, status comes from the run.
+     */
+    ProcessResult followedBy(ProcessResult run) {
+        return new ProcessResult(stdout + run.stdout, stderr + run.stderr, run.exitCode, run.timedOut,
+            run.outputLimitExceeded, run.stdoutTruncatedBytes, run.stderrTruncatedBytes);
+    }
+}
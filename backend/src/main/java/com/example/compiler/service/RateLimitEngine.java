@@ -0,0 +1,376 @@
+package com.example.compiler.service;
+
+import com.example.compiler.model.UserTier;
+import com.example.compiler.util.ExpiringStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Every request, execution, AI insight and share limit, counted per client key. Each
+ * policy counts in a sliding window of time buckets updated by compare-and-set; a hit
+ * stops counting between one window and one window plus one bucket after it was made.
+ * Each policy keeps its clients in its own store, dropped once idle for that policy's
+ * window, so a client only sending requests never holds a day-long share entry.
+ *
+ * <p>With distributed limits enabled the counts are shared by every node through
+ * {@link DistributedRateLimiter}, as are those of persistent policies at all times; the
+ * per-node windows take over while the database is unreachable.
+ */
+@Service
+public class RateLimitEngine {
+
+    private static final RateLimitPolicy[] POLICIES = RateLimitPolicy.values();
+
+    // Returned by acquireShared when the database did not count the hit
+    private static final int NOT_SHARED = Integer.MIN_VALUE;
+
+    @Value("${app.rate-limit.requests-per-minute:10}")
+    private int requestsPerMinute;
+
+    @Value("${app.rate-limit.burst-capacity:20}")
+    private int burstCapacity;
+
+    @Value("${app.rate-limit.max-clients:100000}")
+    private int maxClients;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DistributedRateLimiter distributed;
+
+    private final long[] windowMillis = new long[POLICIES.length];
+    private final long[] bucketMillis = new long[POLICIES.length];
+    private final int[] bucketCounts = new int[POLICIES.length];
+    private final Counter[] allowed = new Counter[POLICIES.length];
+    private final Counter[] rejected = new Counter[POLICIES.length];
+    @SuppressWarnings("unchecked")
+    private final ExpiringStore<String, ClientLimit>[] clients = new ExpiringStore[POLICIES.length];
+
+    @PostConstruct
+    public void init() {
+        // Burst-capacity hits per the minutes a drained token bucket took to refill, in 12 buckets
+        long refillMinutes = Math.max(1, (burstCapacity + requestsPerMinute - 1) / Math.max(1, requestsPerMinute));
+        window(RateLimitPolicy.REQUESTS, Duration.ofMinutes(refillMinutes), 12);
+        window(RateLimitPolicy.AI_INSIGHTS, Duration.ofMinutes(refillMinutes), 12);
+        window(RateLimitPolicy.EXECUTIONS, Duration.ofHours(1), 60);
+        window(RateLimitPolicy.SHARES, Duration.ofDays(1), 24);
+
+        for (RateLimitPolicy policy : POLICIES) {
+            int index = policy.ordinal();
+            allowed[index] = decisions(policy, "allowed");
+            rejected[index] = decisions(policy, "rejected");
+            // Idle this long, the client's window is empty, so dropping it loses nothing
+            Duration idleTimeout = Duration.ofMillis(bucketMillis[index] * bucketCounts[index]);
+            clients[index] = new ExpiringStore<>("rate-limits-" + policy.name().toLowerCase(), idleTimeout,
+                maxClients, key -> new ClientLimit(bucketCounts[index]), meterRegistry);
+        }
+    }
+
+    private void window(RateLimitPolicy policy, Duration length, int buckets) {
+        bucketMillis[policy.ordinal()] = Math.max(1, length.toMillis() / buckets);
+        windowMillis[policy.ordinal()] = bucketMillis[policy.ordinal()] * buckets;
+        // One more than the window holds, so a hit is never dropped early
+        bucketCounts[policy.ordinal()] = buckets + 1;
+    }
+
+    private Counter decisions(RateLimitPolicy policy, String result) {
+        return Counter.builder("ratelimit.decisions")
+            .description("Rate limit checks by policy and outcome")
+            .tags("policy", policy.name(), "result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Counts a hit against one policy unless the client has used up its limit.
+     *
+     * @param tier selects tiered limits; ignored by REQUESTS and AI_INSIGHTS
+     */
+    public Decision check(String key, UserTier tier, RateLimitPolicy policy) {
+        int remaining = tryAcquire(key, tier, policy);
+        if (remaining == Integer.MAX_VALUE) {
+            return Decision.unlimited(policy);
+        }
+        return new Decision(policy, remaining >= 0, limitFor(policy, tier), Math.max(0, remaining));
+    }
+
+    /**
+     * {@link #check(String, UserTier, RateLimitPolicy)} without the decision object, for
+     * callers on every request.
+     *
+     * @return hits left after this one, -1 when refused, or Integer.MAX_VALUE when the
+     *         policy does not limit the client
+     */
+    public int tryAcquire(String key, UserTier tier, RateLimitPolicy policy) {
+        int limit = limitFor(policy, tier);
+        if (limit == UserTier.UNLIMITED) {
+            allowed[policy.ordinal()].increment();
+            return Integer.MAX_VALUE;
+        }
+        ClientLimit client = clients[policy.ordinal()].get(key);
+        long now = System.currentTimeMillis();
+        int remaining = acquireShared(client, key, policy, limit, now);
+        if (remaining == NOT_SHARED) {
+            remaining = client.window.tryAcquire(now / bucketMillis[policy.ordinal()], limit);
+        }
+        (remaining < 0 ? rejected : allowed)[policy.ordinal()].increment();
+        return remaining;
+    }
+
+    /**
+     * Counts several hits against one policy, or none of them when the client has fewer
+     * left.
+     *
+     * @return the decision, with the hits the client had left when refused
+     */
+    public Decision check(String key, UserTier tier, RateLimitPolicy policy, int hits) {
+        int limit = limitFor(policy, tier);
+        if (limit == UserTier.UNLIMITED) {
+            allowed[policy.ordinal()].increment(hits);
+            return Decision.unlimited(policy);
+        }
+        ClientLimit client = clients[policy.ordinal()].get(key);
+        long now = System.currentTimeMillis();
+        long slot = now / bucketMillis[policy.ordinal()];
+        int remaining = limit;
+        // Hits the database counted, so each is given back where it was taken
+        int shared = 0;
+        for (int i = 0; i < hits; i++) {
+            int left = acquireShared(client, key, policy, limit, now);
+            if (left != NOT_SHARED) {
+                shared++;
+            } else {
+                left = client.window.tryAcquire(slot, limit);
+            }
+            if (left < 0) {
+                for (int j = 0; j < i; j++) {
+                    if (j < shared) {
+                        distributed.release(client.lease);
+                    } else {
+                        client.window.release(slot);
+                    }
+                }
+                rejected[policy.ordinal()].increment();
+                return new Decision(policy, false, limit, i);
+            }
+            remaining = left;
+        }
+        allowed[policy.ordinal()].increment(hits);
+        return new Decision(policy, true, limit, remaining);
+    }
+
+    /**
+     * Counts a hit against every given policy, or against none when any of them is used up.
+     *
+     * @return the rejecting policy's decision, or else the one with the least left
+     */
+    public Decision check(String key, UserTier tier, RateLimitPolicy... policies) {
+        long now = System.currentTimeMillis();
+        Decision tightest = null;
+        // Policies whose hit the database counted, as bits by position, so each is given back where it was taken
+        long shared = 0;
+        for (int i = 0; i < policies.length; i++) {
+            RateLimitPolicy policy = policies[i];
+            int limit = limitFor(policy, tier);
+            if (limit == UserTier.UNLIMITED) {
+                allowed[policy.ordinal()].increment();
+                tightest = tightest != null ? tightest : Decision.unlimited(policy);
+                continue;
+            }
+            ClientLimit client = clients[policy.ordinal()].get(key);
+            int remaining = acquireShared(client, key, policy, limit, now);
+            if (remaining != NOT_SHARED) {
+                shared |= 1L << i;
+            } else {
+                remaining = client.window.tryAcquire(now / bucketMillis[policy.ordinal()], limit);
+            }
+            Decision decision = decide(policy, limit, remaining);
+            if (!decision.isAllowed()) {
+                // Give back what the earlier policies counted
+                for (int j = 0; j < i; j++) {
+                    if (limitFor(policies[j], tier) == UserTier.UNLIMITED) {
+                        continue;
+                    }
+                    ClientLimit earlier = clients[policies[j].ordinal()].get(key);
+                    if ((shared & (1L << j)) != 0) {
+                        distributed.release(earlier.lease);
+                    } else {
+                        earlier.window.release(now / bucketMillis[policies[j].ordinal()]);
+                    }
+                }
+                return decision;
+            }
+            if (tightest == null || tightest.isUnlimited() || decision.getRemaining() < tightest.getRemaining()) {
+                tightest = decision;
+            }
+        }
+        return tightest;
+    }
+
+    /**
+     * What the client has left under a policy, counting nothing.
+     */
+    public Decision peek(String key, UserTier tier, RateLimitPolicy policy) {
+        int limit = limitFor(policy, tier);
+        if (limit == UserTier.UNLIMITED) {
+            return Decision.unlimited(policy);
+        }
+        ClientLimit client = clients[policy.ordinal()].getIfPresent(key);
+        long now = System.currentTimeMillis();
+        if (distributed.isActive(policy)) {
+            try {
+                int remaining = distributed.remaining(client != null ? client.lease : null,
+                    policy, key, limit, windowMillis[policy.ordinal()], now);
+                return new Decision(policy, remaining > 0, limit, remaining);
+            } catch (DataAccessException e) {
+                distributed.fallBack(e);
+            }
+        }
+        int used = client != null ? client.window.count(now / bucketMillis[policy.ordinal()]) : 0;
+        return new Decision(policy, used < limit, limit, Math.max(0, limit - used));
+    }
+
+    // Hits left after this one or -1 when refused, counted in the database; NOT_SHARED when it is not in use
+    private int acquireShared(ClientLimit client, String key, RateLimitPolicy policy, int limit, long now) {
+        if (distributed.isActive(policy)) {
+            try {
+                return distributed.tryAcquire(client.lease, policy, key, limit, windowMillis[policy.ordinal()], now);
+            } catch (DataAccessException e) {
+                distributed.fallBack(e);
+            }
+        }
+        return NOT_SHARED;
+    }
+
+    private Decision decide(RateLimitPolicy policy, int limit, int remaining) {
+        if (remaining < 0) {
+            rejected[policy.ordinal()].increment();
+            return new Decision(policy, false, limit, 0);
+        }
+        allowed[policy.ordinal()].increment();
+        return new Decision(policy, true, limit, remaining);
+    }
+
+    /**
+     * The client's limit under a policy, or UserTier.UNLIMITED.
+     */
+    public int limitFor(RateLimitPolicy policy, UserTier tier) {
+        UserTier effective = tier != null ? tier : UserTier.ANONYMOUS;
+        switch (policy) {
+            case REQUESTS:
+            case AI_INSIGHTS:
+                return burstCapacity;
+            case EXECUTIONS:
+                return effective.getRequestsPerHour();
+            case SHARES:
+                return effective.getSharesPerDay();
+            default:
+                throw new IllegalArgumentException("Unknown rate limit policy: " + policy);
+        }
+    }
+
+    public static class Decision {
+        private final RateLimitPolicy policy;
+        private final boolean allowed;
+        private final int limit;
+        private final int remaining;
+
+        Decision(RateLimitPolicy policy, boolean allowed, int limit, int remaining) {
+            this.policy = policy;
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+        }
+
+        static Decision unlimited(RateLimitPolicy policy) {
+            return new Decision(policy, true, UserTier.UNLIMITED, UserTier.UNLIMITED);
+        }
+
+        public RateLimitPolicy getPolicy() { return policy; }
+        public boolean isAllowed() { return allowed; }
+        public boolean isUnlimited() { return limit == UserTier.UNLIMITED; }
+        // UserTier.UNLIMITED when the policy does not limit the client
+        public int getLimit() { return limit; }
+        public int getRemaining() { return remaining; }
+    }
+
+    // One client's window and lease under one policy
+    private static final class ClientLimit {
+        private final SlidingWindow window;
+        private final DistributedRateLimiter.Lease lease = new DistributedRateLimiter.Lease();
+
+        ClientLimit(int buckets) {
+            window = new SlidingWindow(buckets);
+        }
+    }
+
+    /**
+     * A ring of buckets, each packing the time slot it counts (high 32 bits) and its
+     * count (low 32 bits). A hit is counted first and taken back when it went over the
+     * limit, so racing hits can be refused together but never let through together.
+     */
+    static final class SlidingWindow {
+        private final AtomicLongArray buckets;
+
+        SlidingWindow(int size) {
+            buckets = new AtomicLongArray(size);
+        }
+
+        int count(long slot) {
+            int total = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                long bucket = buckets.get(i);
+                int age = (int) slot - (int) (bucket >>> 32);
+                if (age >= 0 && age < buckets.length()) {
+                    total += (int) bucket;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * @return hits left after this one, or -1 when the limit was already reached
+         */
+        int tryAcquire(long slot, int limit) {
+            int index = (int) (slot % buckets.length());
+            long stamp = (slot & 0xffffffffL) << 32;
+            while (true) {
+                long bucket = buckets.get(index);
+                // A bucket left over from an earlier round starts again
+                long next = (bucket & 0xffffffff00000000L) == stamp ? bucket + 1 : stamp | 1;
+                if (buckets.compareAndSet(index, bucket, next)) {
+                    break;
+                }
+            }
+            int used = count(slot);
+            if (used > limit) {
+                release(slot);
+                return -1;
+            }
+            return limit - used;
+        }
+
+        // Takes back a hit counted in this slot; one from a slot since passed has left the window anyway
+        void release(long slot) {
+            int index = (int) (slot % buckets.length());
+            long stamp = (slot & 0xffffffffL) << 32;
+            while (true) {
+                long bucket = buckets.get(index);
+                if ((bucket & 0xffffffff00000000L) != stamp || (int) bucket == 0) {
+                    return;
+                }
+                if (buckets.compareAndSet(index, bucket, bucket - 1)) {
+                    return;
+                }
+            }
+        }
+    }
+}
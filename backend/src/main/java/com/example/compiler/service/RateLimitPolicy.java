@@ -0,0 +1,29 @@
+package com.example.compiler.service;
+
+/**
+ * The limits {@link RateLimitEngine} enforces, each counted per client key in its own
+ * sliding window.
+ */
+public enum RateLimitPolicy {
+    // Every API request, from app.rate-limit: burst-capacity per the minutes it takes to refill
+    REQUESTS(false),
+    // AI insight calls, at the same rate as REQUESTS but counted separately
+    AI_INSIGHTS(false),
+    // Executions per hour, by tier
+    EXECUTIONS(false),
+    // Share links per day, by tier; a day of counts must outlive restarts, so always kept in MongoDB
+    SHARES(true);
+
+    private final boolean persistent;
+
+    RateLimitPolicy(boolean persistent) {
+        this.persistent = persistent;
+    }
+
+    /**
+     * Whether hits are counted in MongoDB even when distributed limits are disabled.
+     */
+    public boolean isPersistent() {
+        return persistent;
+    }
+}
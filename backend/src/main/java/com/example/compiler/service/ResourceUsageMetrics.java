@@ -0,0 +1,81 @@
+package com.example.compiler.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Histograms of what measured compile and run steps actually used, per language and
+ * phase, for sizing the memory, CPU and pids limits of execution profiles from data.
+ */
+@Component
+public class ResourceUsageMetrics {
+
+    private static final long MIB = 1024L * 1024;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public void record(String language, String phase, ProcessResult result, ExecutionProfile profile) {
+        if (result.getWallTimeMillis() >= 0) {
+            timer("execution.step.wall", "Wall time of a compile or run step", language, phase, null)
+                .record(result.getWallTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (result.getCpuTimeMillis() >= 0) {
+            timer("execution.step.cpu", "CPU time of a compile or run step", language, phase, "user")
+                .record(result.getUserCpuMillis(), TimeUnit.MILLISECONDS);
+            timer("execution.step.cpu", "CPU time of a compile or run step", language, phase, "system")
+                .record(result.getSystemCpuMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (result.getPeakMemoryBytes() >= 0) {
+            DistributionSummary.builder("execution.step.memory.peak")
+                .description("Peak memory of a compile or run step")
+                .baseUnit("bytes")
+                .tags("language", language, "phase", phase)
+                .publishPercentileHistogram()
+                .minimumExpectedValue((double) MIB)
+                .maximumExpectedValue(8192.0 * MIB)
+                .register(meterRegistry)
+                .record(result.getPeakMemoryBytes());
+            // Share of the limit in effect, comparable across tiers with different limits
+            DistributionSummary.builder("execution.step.memory.limit.usage")
+                .description("Peak memory of a compile or run step as a fraction of its limit")
+                .tags("language", language, "phase", phase)
+                .serviceLevelObjectives(0.25, 0.5, 0.75, 0.9, 1.0)
+                .register(meterRegistry)
+                .record((double) result.getPeakMemoryBytes() / profile.getMemoryBytes());
+        }
+        if (result.getPeakPids() >= 0) {
+            DistributionSummary.builder("execution.step.pids.peak")
+                .description("Most processes and threads alive at once in a compile or run step")
+                .tags("language", language, "phase", phase)
+                .serviceLevelObjectives(1, 2, 4, 8, 16, 32, 64, 128)
+                .register(meterRegistry)
+                .record(result.getPeakPids());
+        }
+        Counter.builder("execution.step.terminations")
+            .description("Compile and run steps by how they ended")
+            .tags("language", language, "phase", phase, "reason", result.getTerminationReason().name())
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private Timer timer(String name, String description, String language, String phase, String mode) {
+        Timer.Builder builder = Timer.builder(name)
+            .description(description)
+            .tags("language", language, "phase", phase)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofMinutes(2));
+        if (mode != null) {
+            builder.tag("mode", mode);
+        }
+        return builder.register(meterRegistry);
+    }
+}
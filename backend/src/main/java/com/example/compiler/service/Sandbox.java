@@ -0,0 +1,78 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.OutputListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Isolated workspace opened by an {@link ExecutionBackend}. Files written here are
+ * visible to commands run in the same sandbox; everything is discarded on close.
+ */
+public interface Sandbox extends AutoCloseable {
+
+    void writeFile(String fileName, byte[] content) throws IOException;
+
+    /**
+     * Runs a shell command in the workspace, feeding it the given stdin. The command is
+     * killed after the timeout or as soon as stdout or stderr exceeds maxOutputBytes.
+     */
+    default ProcessResult run(String command, byte[] stdin, int timeoutSeconds, int maxOutputBytes)
+            throws IOException, InterruptedException {
+        InputStream input = stdin != null && stdin.length > 0 ? new ByteArrayInputStream(stdin) : null;
+        return run(command, input, null, timeoutSeconds, maxOutputBytes);
+    }
+
+    /**
+     * Runs a shell command reading stdin until EOF. When a listener is given, output is
+     * passed to it as it is produced and is not kept in the returned result.
+     */
+    ProcessResult run(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                      int maxOutputBytes) throws IOException, InterruptedException;
+
+    /**
+     * Runs one step of an execution, such as compiling or running the program, like
+     * {@link #run} and measures it. Wall time is always recorded; CPU time, peak memory
+     * and pids, and OOM kills only where the sandbox can measure them.
+     */
+    default ProcessResult runStep(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                  int maxOutputBytes) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ProcessResult result = run(command, stdin, listener, timeoutSeconds, maxOutputBytes);
+        return result.measured((System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Copies workspace files matching the glob patterns into targetDir.
+     *
+     * @return total number of bytes copied, 0 when nothing matched
+     */
+    long exportFiles(List<String> patterns, Path targetDir) throws IOException;
+
+    /**
+     * Copies every regular file in sourceDir into the workspace.
+     */
+    void importFiles(Path sourceDir) throws IOException;
+
+    /**
+     * Starts a long-lived command in the workspace, such as a language worker, and hands
+     * its process to the caller. No timeout or output cap applies; the process ends when
+     * it exits, is destroyed or the sandbox is closed.
+     */
+    default Process spawn(String command) throws IOException {
+        throw new UnsupportedOperationException("This sandbox cannot run long-lived processes");
+    }
+
+    /**
+     * How many commands may usefully run at once in this sandbox, i.e. its CPU quota.
+     */
+    default int getParallelism() {
+        return 1;
+    }
+
+    @Override
+    void close();
+}
@@ -4,6 +4,7 @@ import com.example.compiler.model.ShareRequest;
 import com.example.compiler.model.ShareResponse;
 import com.example.compiler.model.LoadResponse;
 import com.example.compiler.model.User;
+import com.example.compiler.model.UserTier;
 import com.example.compiler.repository.UserRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -33,7 +34,9 @@ public class ShareService {
     private UserRepository userRepository;
     
     @Autowired
-    private AnonymousShareService anonymousShareService;    public ShareResponse createShareUrl(ShareRequest request) {
+    private RateLimitEngine rateLimitEngine;
+    
+    public ShareResponse createShareUrl(ShareRequest request) {
         return createShareUrl(request, null, null);
     }
     
@@ -49,26 +52,22 @@ public class ShareService {
                 if (userOptional.isPresent()) {
                     User user = userOptional.get();
                     
-                    if (!user.canShare()) {
-                        int remaining = user.getRemainingShares();
-                        throw new RuntimeException("Daily share limit reached. You can create " + remaining + " more shares today. Upgrade to Advanced or Master tier for unlimited sharing.");
+                    RateLimitEngine.Decision decision = rateLimitEngine.check("user:" + userId,
+                        UserTier.fromName(user.getTier()), RateLimitPolicy.SHARES);
+                    if (!decision.isAllowed()) {
+                        throw new RuntimeException("Daily share limit reached. You can create " + decision.getRemaining() + " more shares today. Upgrade to Advanced or Master tier for unlimited sharing.");
                     }
                     
-                    // Increment share count and save
-                    user.incrementShareCount();
-                    userRepository.save(user);
-                    
-                    logger.info("User {} has used {} shares today", user.getUsername(), user.getShareCount());
+                    logger.info("User {} creating share, {} left today", user.getUsername(),
+                        decision.isUnlimited() ? "unlimited" : decision.getRemaining());
                 }            } else if (clientIp != null) {
                 // Handle anonymous users with IP-based tracking
-                if (!anonymousShareService.canShare(clientIp)) {
-                    int remaining = anonymousShareService.getRemainingShares(clientIp);
-                    throw new RuntimeException("Daily share limit reached. You can create " + remaining + " more shares today. Create an account for higher limits!");
+                RateLimitEngine.Decision decision = rateLimitEngine.check("ip:" + clientIp, UserTier.ANONYMOUS,
+                    RateLimitPolicy.SHARES);
+                if (!decision.isAllowed()) {
+                    throw new RuntimeException("Daily share limit reached. You can create " + decision.getRemaining() + " more shares today. Create an account for higher limits!");
                 }
-                
-                // Record the share for this IP
-                anonymousShareService.recordShare(clientIp);
-                logger.info("Anonymous IP {} creating share", clientIp);
+                logger.info("Anonymous IP {} creating share, {} left today", clientIp, decision.getRemaining());
             } else {
                 // Fallback case - no tracking
                 logger.info("Anonymous user creating share (no IP tracking)");
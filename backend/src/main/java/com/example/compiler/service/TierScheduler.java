@@ -0,0 +1,178 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.JobSchedulerProperties;
+import com.example.compiler.model.UserTier;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tier job queues with weighted fair queuing. MASTER jobs are taken first,
+ * the remaining tiers get worker shares proportional to their weights, and any
+ * job that has waited longer than the configured maximum is taken next.
+ * The scheduler is work-conserving: a job is never held back while a worker is free.
+ */
+@Service
+public class TierScheduler {
+
+    @Autowired
+    private JobSchedulerProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<UserTier, ArrayDeque<QueuedJob>> queues = new EnumMap<>(UserTier.class);
+    private final Map<UserTier, Integer> running = new EnumMap<>(UserTier.class);
+    // Virtual finish time per tier; the tier with the smallest value is served next
+    private final Map<UserTier, Double> virtualTimes = new EnumMap<>(UserTier.class);
+    private final Map<UserTier, Timer> waitTimers = new EnumMap<>(UserTier.class);
+    private double virtualNow = 0;
+    private int queued = 0;
+
+    @PostConstruct
+    public void init() {
+        for (UserTier tier : UserTier.values()) {
+            queues.put(tier, new ArrayDeque<>());
+            running.put(tier, 0);
+            virtualTimes.put(tier, 0.0);
+            Gauge.builder("execution.queue.depth", this, scheduler -> scheduler.getQueueDepth(tier))
+                .tag("tier", tier.name())
+                .description("Execution jobs waiting for a worker")
+                .register(meterRegistry);
+            waitTimers.put(tier, Timer.builder("execution.queue.wait")
+                .tag("tier", tier.name())
+                .description("Time execution jobs spent queued before running")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException when {@code capacity} jobs are already queued
+     */
+    public synchronized void offer(ExecutionJob job, int capacity) {
+        if (queued >= capacity) {
+            throw new RejectedExecutionException("Execution queue is full");
+        }
+        ArrayDeque<QueuedJob> queue = queues.get(job.getTier());
+        if (queue.isEmpty()) {
+            // A tier coming back from idle does not get credit for the time it was absent
+            virtualTimes.put(job.getTier(), Math.max(virtualTimes.get(job.getTier()), virtualNow));
+        }
+        queue.addLast(new QueuedJob(job, System.nanoTime()));
+        queued++;
+    }
+
+    /**
+     * Takes the next job to run, or returns null when nothing is eligible.
+     * The caller must report the job back through {@link #complete}.
+     */
+    public synchronized ExecutionJob poll() {
+        UserTier tier = selectTier();
+        if (tier == null) {
+            return null;
+        }
+        QueuedJob next = queues.get(tier).pollFirst();
+        queued--;
+        running.merge(tier, 1, Integer::sum);
+
+        double start = virtualTimes.get(tier);
+        virtualNow = Math.max(virtualNow, start);
+        virtualTimes.put(tier, start + 1.0 / properties.getWeight(tier));
+        waitTimers.get(tier).record(System.nanoTime() - next.enqueuedAt, TimeUnit.NANOSECONDS);
+        return next.job;
+    }
+
+    public synchronized void complete(ExecutionJob job) {
+        running.merge(job.getTier(), -1, Integer::sum);
+    }
+
+    // Drops a job cancelled while still queued
+    public synchronized boolean remove(ExecutionJob job) {
+        boolean removed = queues.get(job.getTier()).removeIf(queuedJob -> queuedJob.job == job);
+        if (removed) {
+            queued--;
+        }
+        return removed;
+    }
+
+    /**
+     * Removes and returns every job queued before the given {@link System#nanoTime()}.
+     */
+    public synchronized List<ExecutionJob> removeQueuedBefore(long nanoTime) {
+        List<ExecutionJob> expired = new ArrayList<>();
+        for (ArrayDeque<QueuedJob> queue : queues.values()) {
+            // Queues are in arrival order
+            while (!queue.isEmpty() && queue.peekFirst().enqueuedAt < nanoTime) {
+                expired.add(queue.pollFirst().job);
+                queued--;
+            }
+        }
+        return expired;
+    }
+
+    public synchronized int getQueueDepth() {
+        return queued;
+    }
+
+    public synchronized int getQueueDepth(UserTier tier) {
+        return queues.get(tier).size();
+    }
+
+    private UserTier selectTier() {
+        long starvedBefore = System.nanoTime() - properties.getMaxWait().toNanos();
+        UserTier oldest = null;
+        long oldestEnqueuedAt = Long.MAX_VALUE;
+        UserTier fairest = null;
+        for (UserTier tier : UserTier.values()) {
+            if (!isEligible(tier)) {
+                continue;
+            }
+            long enqueuedAt = queues.get(tier).peekFirst().enqueuedAt;
+            if (enqueuedAt < starvedBefore && enqueuedAt < oldestEnqueuedAt) {
+                oldest = tier;
+                oldestEnqueuedAt = enqueuedAt;
+            }
+            if (tier != UserTier.MASTER
+                    && (fairest == null || virtualTimes.get(tier) < virtualTimes.get(fairest))) {
+                fairest = tier;
+            }
+        }
+        if (oldest != null) {
+            return oldest;
+        }
+        if (isEligible(UserTier.MASTER)) {
+            return UserTier.MASTER;
+        }
+        return fairest;
+    }
+
+    private boolean isEligible(UserTier tier) {
+        if (queues.get(tier).isEmpty()) {
+            return false;
+        }
+        int cap = properties.getMaxConcurrent(tier);
+        return cap <= 0 || running.get(tier) < cap;
+    }
+
+    private static class QueuedJob {
+        final ExecutionJob job;
+        final long enqueuedAt;
+
+        QueuedJob(ExecutionJob job, long enqueuedAt) {
+            this.job = job;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.WorkerHeartbeat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The coordinator's view of its worker nodes, kept current by their heartbeats. Picks
+ * the worker for an execution: the least loaded one that serves the language, except
+ * that code with an affinity key goes to the same worker every time while it has room,
+ * so that worker's compiled-artifact cache keeps hitting.
+ */
+@Service
+public class WorkerRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerRegistry.class);
+
+    @Autowired
+    private FleetProperties properties;
+
+    private final Map<String, WorkerNode> workers = new ConcurrentHashMap<>();
+
+    public void heartbeat(WorkerHeartbeat heartbeat) {
+        WorkerNode existing = workers.get(heartbeat.getWorkerId());
+        if (existing == null) {
+            workers.put(heartbeat.getWorkerId(), new WorkerNode(heartbeat));
+            logger.info("Worker {} registered at {} with {} slots", heartbeat.getWorkerId(), heartbeat.getUrl(),
+                heartbeat.getSlots());
+        } else {
+            existing.update(heartbeat);
+        }
+    }
+
+    public void deregister(String workerId) {
+        if (workers.remove(workerId) != null) {
+            logger.info("Worker {} deregistered", workerId);
+        }
+    }
+
+    /**
+     * Drops a worker that could not be reached; it comes back with its next heartbeat.
+     */
+    public void markFailed(WorkerNode worker) {
+        if (workers.remove(worker.id, worker)) {
+            logger.warn("Dropped worker {} at {} after a failed request", worker.id, worker.url);
+        }
+    }
+
+    /**
+     * @param affinityKey identifies the code for cache locality, or null for none
+     * @param excluded    IDs of workers already tried for this execution
+     * @return the chosen worker, or null when no live worker serves the language
+     */
+    public WorkerNode choose(String language, String affinityKey, Set<String> excluded) {
+        long expiry = properties.getWorkerExpiry().toMillis();
+        List<WorkerNode> eligible = new ArrayList<>();
+        for (WorkerNode worker : workers.values()) {
+            if (System.currentTimeMillis() - worker.lastSeen > expiry) {
+                workers.remove(worker.id, worker);
+                logger.warn("Dropped worker {} at {}: no heartbeat for {} ms", worker.id, worker.url, expiry);
+            } else if (!excluded.contains(worker.id) && worker.serves(language)) {
+                eligible.add(worker);
+            }
+        }
+
+        if (affinityKey != null) {
+            // Rendezvous hashing: the same code maps to the same worker while the set is stable
+            WorkerNode preferred = null;
+            long bestScore = Long.MIN_VALUE;
+            for (WorkerNode worker : eligible) {
+                long score = mix(worker.id.hashCode() * 31L + affinityKey.hashCode());
+                if (worker.available(language) > 0 && score > bestScore) {
+                    preferred = worker;
+                    bestScore = score;
+                }
+            }
+            if (preferred != null) {
+                return preferred;
+            }
+        }
+
+        WorkerNode leastLoaded = null;
+        for (WorkerNode worker : eligible) {
+            if (leastLoaded == null || worker.available(language) > leastLoaded.available(language)) {
+                leastLoaded = worker;
+            }
+        }
+        return leastLoaded;
+    }
+
+    /**
+     * Whether a live worker has the language warm.
+     */
+    public boolean serves(String language) {
+        long expiry = properties.getWorkerExpiry().toMillis();
+        return workers.values().stream()
+            .anyMatch(worker -> System.currentTimeMillis() - worker.lastSeen <= expiry && worker.serves(language));
+    }
+
+    /**
+     * Executions the live workers run at once between them; what a coordinator can have
+     * in flight.
+     */
+    public int getTotalSlots() {
+        long expiry = properties.getWorkerExpiry().toMillis();
+        return workers.values().stream()
+            .filter(worker -> System.currentTimeMillis() - worker.lastSeen <= expiry)
+            .mapToInt(worker -> worker.slots)
+            .sum();
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> state = new TreeMap<>();
+        for (WorkerNode worker : workers.values()) {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("url", worker.url);
+            details.put("slots", worker.slots);
+            details.put("inFlight", worker.inFlight.get());
+            details.put("freeSlots", new TreeMap<>(worker.freeSlots));
+            details.put("lastSeenMillisAgo", System.currentTimeMillis() - worker.lastSeen);
+            state.put(worker.id, details);
+        }
+        return state;
+    }
+
+    // SplitMix64 finalizer, so scores of similar inputs are unrelated
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * A registered worker. Its reported free slots lag behind by up to one heartbeat,
+     * so executions this coordinator has in flight on it are counted as well.
+     */
+    public static class WorkerNode {
+        final String id;
+        final String url;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile int slots;
+        volatile Map<String, Integer> freeSlots;
+        volatile long lastSeen;
+
+        WorkerNode(WorkerHeartbeat heartbeat) {
+            this.id = heartbeat.getWorkerId();
+            this.url = heartbeat.getUrl();
+            update(heartbeat);
+        }
+
+        void update(WorkerHeartbeat heartbeat) {
+            slots = heartbeat.getSlots();
+            freeSlots = Map.copyOf(heartbeat.getFreeSlots());
+            lastSeen = System.currentTimeMillis();
+        }
+
+        boolean serves(String language) {
+            return freeSlots.containsKey(language);
+        }
+
+        // Slots left for the language, by the busier of the last report and our own count
+        int available(String language) {
+            int reportedBusy = slots - freeSlots.getOrDefault(language, 0);
+            return slots - Math.max(reportedBusy, inFlight.get());
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        void started() {
+            inFlight.incrementAndGet();
+        }
+
+        void finished() {
+            inFlight.decrementAndGet();
+        }
+    }
+}
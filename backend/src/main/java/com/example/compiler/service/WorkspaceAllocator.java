@@ -0,0 +1,134 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.FileUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out host directories used as sandbox workspaces. In {@code disk} mode every
+ * workspace is a fresh temp directory that is deleted afterwards. In {@code memory}
+ * mode workspaces live on a tmpfs (by default {@code /dev/shm}) and are emptied and
+ * reused, so runs cause no disk writes and no directory churn. Names are random, so a
+ * program cannot guess where other runs' workspaces are, and a workspace is only
+ * reused once it is verifiably empty.
+ */
+@Service
+public class WorkspaceAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkspaceAllocator.class);
+
+    private static final String PREFIX = "code_execution_";
+
+    @Value("${app.execution.workspace.mode:disk}")
+    private String mode;
+
+    @Value("${app.execution.workspace.memory-root:/dev/shm/online-compiler}")
+    private String memoryRoot;
+
+    // Emptied workspaces kept for reuse in memory mode
+    @Value("${app.execution.workspace.max-pooled:64}")
+    private int maxPooled;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final BlockingQueue<Path> pooled = new LinkedBlockingQueue<>();
+    private Path root;
+    private boolean inMemory;
+    private Timer setupTimer;
+
+    @PostConstruct
+    public void init() {
+        inMemory = "memory".equals(mode);
+        if (inMemory) {
+            try {
+                root = Files.createDirectories(Path.of(memoryRoot));
+                // Leftovers from a previous run of the service
+                File[] stale = root.toFile().listFiles();
+                if (stale != null) {
+                    for (File dir : stale) {
+                        FileUtils.deleteDirectory(dir);
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Cannot use {} for in-memory workspaces, falling back to disk: {}", memoryRoot, e.getMessage());
+                inMemory = false;
+            }
+        }
+        setupTimer = Timer.builder("execution.workspace.setup")
+            .tag("mode", inMemory ? "memory" : "disk")
+            .description("Time to allocate a sandbox workspace")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        logger.info("Sandbox workspaces are allocated {}", inMemory ? "in memory under " + root : "on disk");
+    }
+
+    /**
+     * @param sharedWithContainer the workspace is bind-mounted into a container whose user
+     *                            differs from ours and must be world-writable; otherwise it
+     *                            is private to this process
+     */
+    public Path allocate(boolean sharedWithContainer) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Path workspace = inMemory ? pooled.poll() : null;
+            if (workspace == null) {
+                workspace = inMemory
+                    ? Files.createDirectory(root.resolve(PREFIX + UUID.randomUUID()))
+                    : Files.createTempDirectory(PREFIX);
+            }
+            Files.setPosixFilePermissions(workspace,
+                PosixFilePermissions.fromString(sharedWithContainer ? "rwxrwxrwx" : "rwx------"));
+            return workspace;
+        } finally {
+            setupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns a workspace once its sandbox is closed. Its contents are discarded.
+     */
+    public void release(Path workspace) {
+        File dir = workspace.toFile();
+        if (!dir.isDirectory()) {
+            return; // Already gone
+        }
+        if (inMemory && pooled.size() < maxPooled && FileUtils.deleteContents(dir)) {
+            pooled.offer(workspace);
+            return;
+        }
+        // Something the sandbox user created may not be removable; such a workspace is never handed out again
+        if (!FileUtils.deleteDirectory(dir)) {
+            logger.warn("Could not remove workspace {}; files created in the sandbox are left behind", workspace);
+        }
+    }
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Path workspace;
+        while ((workspace = pooled.poll()) != null) {
+            FileUtils.deleteDirectory(workspace.toFile());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.compiler.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte buffer that never grows past a fixed capacity. Bytes written beyond the
+ * capacity are dropped and counted. A counting buffer applies the same cap but
+ * keeps no bytes, for output that has already been delivered elsewhere.
+ */
+public class BoundedOutputBuffer {
+
+    private static final int INITIAL_SIZE = 8192;
+
+    private final int capacity;
+    private final boolean retain;
+    private byte[] data;
+    private int size = 0;
+    private long droppedBytes = 0;
+
+    public BoundedOutputBuffer(int capacity) {
+        this(capacity, true);
+    }
+
+    private BoundedOutputBuffer(int capacity, boolean retain) {
+        this.capacity = Math.max(0, capacity);
+        this.retain = retain;
+        this.data = new byte[retain ? Math.min(this.capacity, INITIAL_SIZE) : 0];
+    }
+
+    public static BoundedOutputBuffer counting(int capacity) {
+        return new BoundedOutputBuffer(capacity, false);
+    }
+
+    /**
+     * Appends as much of the chunk as fits.
+     *
+     * @return false once the capacity has been exceeded
+     */
+    public synchronized boolean write(byte[] chunk, int offset, int length) {
+        int accepted = Math.min(length, capacity - size);
+        if (accepted > 0 && retain) {
+            if (size + accepted > data.length) {
+                data = Arrays.copyOf(data, Math.min(capacity, Math.max(size + accepted, data.length * 2)));
+            }
+            System.arraycopy(chunk, offset, data, size, accepted);
+        }
+        if (accepted > 0) {
+            size += accepted;
+        }
+        droppedBytes += length - accepted;
+        return droppedBytes == 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    public synchronized boolean isTruncated() {
+        return droppedBytes > 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return retain ? new String(data, 0, size, StandardCharsets.UTF_8) : "";
+    }
+}
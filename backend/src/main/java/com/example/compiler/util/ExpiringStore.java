@@ -0,0 +1,174 @@
+package com.example.compiler.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Per-client state that expires when a client goes quiet, bounded in size whatever the
+ * number of distinct clients. Entries live in a fixed number of segments: new and
+ * recently used entries sit in the newest, and every idle-timeout / (segments - 1) the
+ * oldest segment is dropped whole. An entry is therefore kept for between one and
+ * 1.25 idle timeouts after its last use. Going over the maximum entry count drops the
+ * oldest segment early, so the least recently used clients go first.
+ *
+ * <p>Lookups of recently used entries are a single map read and allocate nothing.
+ */
+public class ExpiringStore<K, V> {
+
+    private static final int SEGMENTS = 5;
+
+    private final Function<? super K, ? extends V> loader;
+    private final long rotationMillis;
+    private final int maxEntries;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Counter expired;
+    private final Counter evicted;
+
+    // Newest first; replaced as a whole on rotation
+    private volatile Map<K, V>[] segments;
+    private volatile long nextRotation;
+
+    /**
+     * @param name        tags the store's metrics
+     * @param idleTimeout shortest time an unused entry is kept; choose one after which
+     *                    the entry's state would have reset anyway
+     * @param maxEntries  entries held before the least recently used are dropped early
+     * @param loader      creates the state of a client seen for the first time
+     */
+    public ExpiringStore(String name, Duration idleTimeout, int maxEntries, Function<? super K, ? extends V> loader,
+                         MeterRegistry meterRegistry) {
+        this.loader = loader;
+        this.rotationMillis = Math.max(1, idleTimeout.toMillis() / (SEGMENTS - 1));
+        this.maxEntries = Math.max(1, maxEntries);
+        this.segments = newSegments();
+        this.nextRotation = System.currentTimeMillis() + rotationMillis;
+
+        Gauge.builder("limiter.store.size", size, AtomicInteger::get)
+            .description("Clients with state held in an in-memory limiter store")
+            .tag("store", name)
+            .register(meterRegistry);
+        expired = Counter.builder("limiter.store.evictions")
+            .description("Client states dropped from an in-memory limiter store")
+            .tags("store", name, "cause", "expired")
+            .register(meterRegistry);
+        evicted = Counter.builder("limiter.store.evictions")
+            .description("Client states dropped from an in-memory limiter store")
+            .tags("store", name, "cause", "size")
+            .register(meterRegistry);
+    }
+
+    /**
+     * The client's state, created by the loader when there is none, and marked as used.
+     */
+    public V get(K key) {
+        Map<K, V>[] current = rotateIfDue();
+        V value = current[0].get(key);
+        if (value != null) {
+            return value;
+        }
+        value = promote(current, key);
+        if (value != null) {
+            return value;
+        }
+        boolean[] created = new boolean[1];
+        value = current[0].computeIfAbsent(key, k -> {
+            created[0] = true;
+            return loader.apply(k);
+        });
+        if (created[0] && size.incrementAndGet() > maxEntries) {
+            evictOldest();
+        }
+        return value;
+    }
+
+    /**
+     * The client's state without creating any, marked as used; null when there is none.
+     */
+    public V getIfPresent(K key) {
+        Map<K, V>[] current = rotateIfDue();
+        V value = current[0].get(key);
+        return value != null ? value : promote(current, key);
+    }
+
+    public void remove(K key) {
+        for (Map<K, V> segment : segments) {
+            if (segment.remove(key) != null) {
+                size.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    // Moves an entry found in an older segment into the newest; added there before it is removed, so never missed
+    private V promote(Map<K, V>[] current, K key) {
+        for (int i = 1; i < current.length; i++) {
+            V value = current[i].get(key);
+            if (value != null) {
+                V existing = current[0].putIfAbsent(key, value);
+                current[i].remove(key, value);
+                return existing != null ? existing : value;
+            }
+        }
+        return null;
+    }
+
+    private Map<K, V>[] rotateIfDue() {
+        long now = System.currentTimeMillis();
+        if (now >= nextRotation) {
+            synchronized (this) {
+                // Catch up on every interval that passed, at most emptying the store
+                for (int i = 0; i < SEGMENTS && now >= nextRotation; i++) {
+                    expired.increment(dropOldest());
+                    nextRotation += rotationMillis;
+                }
+                if (now >= nextRotation) {
+                    nextRotation = now + rotationMillis;
+                }
+            }
+        }
+        return segments;
+    }
+
+    private synchronized void evictOldest() {
+        // Segments may be empty, so drop until back under the limit or only the newest is left
+        for (int i = 1; i < SEGMENTS && size.get() > maxEntries; i++) {
+            evicted.increment(dropOldest());
+        }
+    }
+
+    // Caller holds the lock
+    private int dropOldest() {
+        Map<K, V>[] current = segments;
+        Map<K, V>[] next = newSegments();
+        System.arraycopy(current, 0, next, 1, SEGMENTS - 1);
+        next[0] = new ConcurrentHashMap<>();
+        segments = next;
+        // Recount rather than subtract, so inserts racing with a rotation cannot skew the size
+        int remaining = 0;
+        for (Map<K, V> segment : next) {
+            remaining += segment.size();
+        }
+        size.set(remaining);
+        return current[SEGMENTS - 1].size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<K, V>[] newSegments() {
+        Map<K, V>[] created = new Map[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            created[i] = new ConcurrentHashMap<>();
+        }
+        return created;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.compiler.util;
+
+import java.io.File;
+import java.nio.file.Files;
+
+public final class FileUtils {
+
+    private FileUtils() {
+    }
+
+    /**
+     * Deletes a directory tree. Symbolic links are removed, never followed, so a link a
+     * program left behind cannot reach files outside the tree.
+     *
+     * @return whether the directory is gone
+     */
+    public static boolean deleteDirectory(File dir) {
+        if (!Files.isSymbolicLink(dir.toPath())) {
+            deleteContents(dir);
+        }
+        dir.delete();
+        return !dir.exists() && !Files.isSymbolicLink(dir.toPath());
+    }
+
+    /**
+     * Deletes everything inside a directory, keeping the directory itself.
+     *
+     * @return whether the directory is now empty
+     */
+    public static boolean deleteContents(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+                    deleteDirectory(file);
+                } else {
+                    file.delete();
+                }
+            }
+        }
+        String[] left = dir.list();
+        return left != null && left.length == 0;
+    }
+}
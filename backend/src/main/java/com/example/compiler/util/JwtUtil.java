@@ -3,14 +3,21 @@ package com.example.compiler.util;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
@@ -22,6 +29,25 @@ public class JwtUtil {
     @Value("${app.jwt.expiration}")
     private long jwtExpirationMs;
     
+    // Verified tokens held at once; a token is verified again once it drops out
+    @Value("${app.jwt.cache-size:10000}")
+    private int cacheSize;
+    
+    // Both are immutable and thread-safe, so built once rather than per token
+    private SecretKey signingKey;
+    private JwtParser parser;
+    
+    // Claims of recently verified tokens, keyed by the token's SHA-256 so the cache holds no usable tokens
+    private final Map<ByteBuffer, Claims> verified = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        signingKey = getSigningKey();
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+    
     private SecretKey getSigningKey() {
         // Ensure the secret is at least 256 bits (32 bytes) for HS256
         byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
@@ -39,47 +65,17 @@ public class JwtUtil {
                 .claim("userId", userId)
                 .issuedAt(new Date())
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
     
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.getSubject();
-    }
-    
-    public String getUserIdFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.get("userId", String.class);
-    }
-    
-    public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-        
-        return claims.getExpiration();
-    }
-    
-    public boolean validateToken(String token) {
+    /**
+     * Verifies the token's signature and expiry once and returns its claims; empty when
+     * the token is not valid.
+     */
+    public Optional<Claims> parseAndVerify(String token) {
         try {
-            Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token);
-            return true;
+            return Optional.of(verify(token));
         } catch (SignatureException ex) {
             logger.error("Invalid JWT signature: {}", ex.getMessage());
         } catch (MalformedJwtException ex) {
@@ -93,7 +89,68 @@ public class JwtUtil {
         } catch (Exception ex) {
             logger.error("JWT validation error: {}", ex.getMessage());
         }
-        return false;
+        return Optional.empty();
+    }
+    
+    // Claims of a valid token, from the cache until the token expires; throws like the parser otherwise
+    private Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            throw new IllegalArgumentException("JWT token is empty");
+        }
+        ByteBuffer hash = hash(token);
+        long now = System.currentTimeMillis();
+        Claims claims = verified.get(hash);
+        if (claims != null) {
+            if (claims.getExpiration().getTime() > now) {
+                return claims;
+            }
+            verified.remove(hash, claims);
+        }
+        claims = parser.parseSignedClaims(token).getPayload();
+        // Tokens without an expiry would stay valid in the cache forever
+        if (claims.getExpiration() != null) {
+            if (verified.size() >= cacheSize) {
+                evict(now);
+            }
+            verified.put(hash, claims);
+        }
+        return claims;
+    }
+    
+    // Drops expired tokens, and every token when that frees nothing; they are verified again on next use
+    private void evict(long now) {
+        verified.values().removeIf(claims -> claims.getExpiration().getTime() <= now);
+        if (verified.size() >= cacheSize) {
+            verified.clear();
+        }
+    }
+    
+    private static ByteBuffer hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    public String getUsernameFromToken(String token) {
+        Claims claims = verify(token);
+        return claims.getSubject();
+    }
+    
+    public String getUserIdFromToken(String token) {
+        Claims claims = verify(token);
+        return claims.get("userId", String.class);
+    }
+    
+    public Date getExpirationDateFromToken(String token) {
+        Claims claims = verify(token);
+        return claims.getExpiration();
+    }
+    
+    public boolean validateToken(String token) {
+        return parseAndVerify(token).isPresent();
     }
     
     public long getExpirationTime() {
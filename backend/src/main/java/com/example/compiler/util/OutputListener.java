@@ -0,0 +1,16 @@
+package com.example.compiler.util;
+
+import java.io.IOException;
+
+/**
+ * Receives program output as it is produced. Called on the thread draining the
+ * stream, so a slow listener slows the program down instead of buffering output.
+ */
+@FunctionalInterface
+public interface OutputListener {
+
+    /**
+     * @throws IOException when the output can no longer be delivered; the process is killed
+     */
+    void onOutput(boolean stderr, byte[] data, int offset, int length) throws IOException;
+}
@@ -0,0 +1,173 @@
+package com.example.compiler.util;
+
+import com.example.compiler.service.ProcessResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs an external process with stdin, a wall-clock timeout and bounded output capture.
+ * stdout and stderr are drained concurrently so a chatty program can never block on a
+ * full pipe, and the process is killed as soon as either stream exceeds the output cap.
+ * With an {@link OutputListener} output is handed over as it arrives instead of captured.
+ */
+public final class ProcessRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+
+    // How long to wait for the drain threads once the process has exited
+    private static final long DRAIN_GRACE_MILLIS = 2000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private static final ExecutorService IO_THREADS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "process-io-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ProcessRunner() {
+    }
+
+    /**
+     * @param stdin          program input, read until EOF; may be null
+     * @param listener       receives output as it is produced, which is then not kept in the result;
+     *                       null to capture output in the result
+     * @param maxOutputBytes cap per stream; output beyond it is dropped and the process killed
+     * @param onKill         extra cleanup when the process is killed early, e.g. removing a container
+     */
+    public static ProcessResult run(ProcessBuilder builder, InputStream stdin, OutputListener listener,
+                                    int timeoutSeconds, int maxOutputBytes, Runnable onKill)
+            throws IOException, InterruptedException {
+        Process process = builder.start();
+        BoundedOutputBuffer stdout = listener == null
+            ? new BoundedOutputBuffer(maxOutputBytes) : BoundedOutputBuffer.counting(maxOutputBytes);
+        BoundedOutputBuffer stderr = listener == null
+            ? new BoundedOutputBuffer(maxOutputBytes) : BoundedOutputBuffer.counting(maxOutputBytes);
+        AtomicBoolean killed = new AtomicBoolean(false);
+        Runnable killOnce = () -> {
+            if (killed.compareAndSet(false, true)) {
+                kill(process);
+                if (onKill != null) {
+                    onKill.run();
+                }
+            }
+        };
+
+        Future<?> stdoutDrain = IO_THREADS.submit(() -> drain(process.getInputStream(), stdout, false, listener, killOnce));
+        Future<?> stderrDrain = IO_THREADS.submit(() -> drain(process.getErrorStream(), stderr, true, listener, killOnce));
+        Future<?> stdinFeed = IO_THREADS.submit(() -> feed(process.getOutputStream(), stdin));
+
+        try {
+            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            boolean timedOut = !finished && !killed.get();
+            if (!finished) {
+                killOnce.run();
+                process.waitFor(DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            awaitDrain(stdoutDrain);
+            awaitDrain(stderrDrain);
+
+            boolean outputLimitExceeded = stdout.isTruncated() || stderr.isTruncated();
+            int exitCode = process.isAlive() ? -1 : process.exitValue();
+            return new ProcessResult(stdout.toString(), stderr.toString(), exitCode, timedOut,
+                outputLimitExceeded, stdout.getDroppedBytes(), stderr.getDroppedBytes());
+        } catch (InterruptedException e) {
+            killOnce.run();
+            throw e;
+        } finally {
+            stdoutDrain.cancel(true);
+            stderrDrain.cancel(true);
+            // Interactive input may still be waiting for chunks that will never be read
+            stdinFeed.cancel(true);
+        }
+    }
+
+    public static ProcessResult run(ProcessBuilder builder, byte[] stdin, int timeoutSeconds,
+                                    int maxOutputBytes, Runnable onKill) throws IOException, InterruptedException {
+        return run(builder, stdin != null ? new ByteArrayInputStream(stdin) : null, null,
+            timeoutSeconds, maxOutputBytes, onKill);
+    }
+
+    public static ProcessResult run(ProcessBuilder builder, byte[] stdin, int timeoutSeconds, int maxOutputBytes)
+            throws IOException, InterruptedException {
+        return run(builder, stdin, timeoutSeconds, maxOutputBytes, null);
+    }
+
+    /**
+     * Kills the process together with anything it spawned.
+     */
+    public static void kill(Process process) {
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    private static void drain(InputStream stream, BoundedOutputBuffer buffer, boolean isStderr,
+                              OutputListener listener, Runnable kill) {
+        byte[] chunk = new byte[8192];
+        try (stream) {
+            int read;
+            while ((read = stream.read(chunk)) != -1) {
+                int before = buffer.size();
+                boolean withinCap = buffer.write(chunk, 0, read);
+                int accepted = buffer.size() - before;
+                if (listener != null && accepted > 0) {
+                    try {
+                        listener.onOutput(isStderr, chunk, 0, accepted);
+                    } catch (IOException e) {
+                        // Nobody is listening any more
+                        logger.debug("Output listener failed: {}", e.getMessage());
+                        kill.run();
+                        return;
+                    }
+                }
+                if (!withinCap) {
+                    kill.run();
+                }
+            }
+        } catch (IOException e) {
+            // Stream closed because the process was killed
+        }
+    }
+
+    private static void feed(OutputStream processInput, InputStream stdin) {
+        try (processInput) {
+            if (stdin == null) {
+                return;
+            }
+            byte[] chunk = new byte[8192];
+            int read;
+            while ((read = stdin.read(chunk)) != -1) {
+                processInput.write(chunk, 0, read);
+                // Interactive programs must see each line as soon as it is sent
+                processInput.flush();
+            }
+        } catch (IOException e) {
+            // The program exited or closed stdin before reading all input
+            logger.debug("Could not write all stdin: {}", e.getMessage());
+        }
+    }
+
+    private static void awaitDrain(Future<?> drain) throws InterruptedException {
+        try {
+            drain.get(DRAIN_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // A leftover child still holds the pipe open; keep what was captured so far
+            logger.debug("Output drain did not finish after process exit");
+        } catch (ExecutionException e) {
+            logger.debug("Output drain failed: {}", e.getMessage());
+        }
+    }
+}
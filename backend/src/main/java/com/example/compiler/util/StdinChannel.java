@@ -0,0 +1,87 @@
+package com.example.compiler.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Program stdin fed in chunks while the program runs. At most a fixed number of
+ * chunks are held; writers wait for the program to read, or give up.
+ */
+public class StdinChannel extends InputStream {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final BlockingQueue<byte[]> chunks;
+    private byte[] current;
+    private int position = 0;
+    private volatile boolean closed = false;
+
+    public StdinChannel(int maxChunks) {
+        this.chunks = new ArrayBlockingQueue<>(maxChunks);
+    }
+
+    /**
+     * Queues a chunk of input, waiting up to timeoutMillis for room.
+     *
+     * @return false when input was already closed or the program is not reading
+     */
+    public boolean offer(byte[] data, long timeoutMillis) throws InterruptedException {
+        if (closed) {
+            return false;
+        }
+        return data.length == 0 || chunks.offer(data, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a chunk of input if there is room right now.
+     */
+    public boolean offer(byte[] data) {
+        return !closed && (data.length == 0 || chunks.offer(data));
+    }
+
+    /**
+     * Ends the input; the program sees EOF once queued chunks have been read.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        try {
+            while (current == null || position == current.length) {
+                current = chunks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                position = 0;
+                if (current == null && closed && chunks.isEmpty()) {
+                    return -1;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for input");
+        }
+        int count = Math.min(length, current.length - position);
+        System.arraycopy(current, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+}
@@ -0,0 +1,565 @@
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.Permissions;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PropertyPermission;
+
+/**
+ * Long-lived Java worker started inside a sandbox by the online compiler backend.
+ * Compiles each submitted Main.java in memory with javax.tools, runs Main.main in a
+ * fresh class loader with its own stdin/stdout/stderr, and enforces CPU time, wall
+ * time, heap and output limits per job. Job classes are defined in a protection domain
+ * with almost no permissions, so they cannot open files (including the worker's own
+ * protocol stream through /proc), start processes or touch threads outside the job.
+ * Exits after a number of jobs, or when a job could not be stopped cleanly or left
+ * threads or processes behind, so the backend starts a fresh worker.
+ *
+ * Relies on the Security Manager and Thread.stop, so it needs JDK 17 to 19; on a later
+ * JDK it answers the handshake with UNSUPPORTED and exits, and the backend stops
+ * starting Java workers.
+ *
+ * Protocol on stdin/stdout, all integers big-endian:
+ *   ready:    int MAGIC, or int UNSUPPORTED when the runtime cannot host the worker
+ *   request:  int sourceLength, source, int stdinLength, stdin, int timeoutMillis, int maxOutputBytes
+ *   response: int exitCode, int flags, int stdoutLength, stdout, long stdoutDropped,
+ *             int stderrLength, stderr, long stderrDropped
+ */
+public class JavaWorker {
+
+    static final int MAGIC = 0x4F435752;
+    static final int UNSUPPORTED = 0x4F435755;
+    // Thread.stop throws from JDK 20 on
+    static final int LAST_SUPPORTED_JDK = 19;
+    static final int FLAG_TIMED_OUT = 1;
+    static final int FLAG_OUTPUT_LIMIT = 2;
+    static final int FLAG_RECYCLE = 4;
+
+    private static final long WATCHDOG_INTERVAL_MILLIS = 10;
+    private static final long STOP_GRACE_MILLIS = 500;
+
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+    private static final StandardJavaFileManager STANDARD_FILES =
+        COMPILER.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    // Threads in this group belong to the running job
+    static volatile ThreadGroup jobGroup;
+
+    // Every job class is defined here; code with a job frame on its stack gets only these permissions
+    static final ProtectionDomain JOB_DOMAIN = new ProtectionDomain(
+        new CodeSource(null, (Certificate[]) null), jobPermissions());
+
+    private static Permissions jobPermissions() {
+        Permissions permissions = new Permissions();
+        permissions.add(new PropertyPermission("*", "read"));
+        // Shutting down its own pools; threads of other groups also need modifyThreadGroup, which jobs lack
+        permissions.add(new RuntimePermission("modifyThread"));
+        permissions.setReadOnly();
+        return permissions;
+    }
+
+    @SuppressWarnings("removal")
+    public static void main(String[] args) throws Exception {
+        int maxJobs = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        // Fraction of the heap a job may keep live before it is stopped
+        double heapFraction = args.length > 1 ? Double.parseDouble(args[1]) : 0.8;
+
+        DataInputStream in = new DataInputStream(new FileInputStream(FileDescriptor.in));
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(FileDescriptor.out));
+        PrintStream log = new PrintStream(new FileOutputStream(FileDescriptor.err), true);
+        if (Runtime.version().feature() > LAST_SUPPORTED_JDK) {
+            log.println("JavaWorker needs JDK 17 to " + LAST_SUPPORTED_JDK + " for the Security Manager and Thread.stop,"
+                + " but runs on " + Runtime.version() + "; run Java jobs in regular sandboxes instead");
+            out.writeInt(UNSUPPORTED);
+            out.flush();
+            System.exit(2);
+        }
+        // The worker's own code may do anything; JOB_DOMAIN has fixed permissions the policy is never asked about
+        Policy.setPolicy(new Policy() {
+            @Override
+            public boolean implies(ProtectionDomain domain, Permission permission) {
+                return domain != JOB_DOMAIN;
+            }
+        });
+        System.setSecurityManager(new JobSecurityManager());
+
+        // Load javac's classes before reporting ready, so the first job is fast too
+        compile("public class Main { public static void main(String[] a) {} }");
+
+        out.writeInt(MAGIC);
+        out.flush();
+
+        for (int jobs = 0; jobs < maxJobs; jobs++) {
+            byte[] source;
+            try {
+                source = readBlock(in);
+            } catch (IOException e) {
+                return; // Backend closed the connection
+            }
+            byte[] stdin = readBlock(in);
+            int timeoutMillis = in.readInt();
+            int maxOutputBytes = in.readInt();
+
+            Result result = runJob(new String(source, StandardCharsets.UTF_8), stdin, timeoutMillis, maxOutputBytes,
+                (long) (MEMORY.getHeapMemoryUsage().getMax() * heapFraction), log);
+            writeResult(out, result);
+            if ((result.flags & FLAG_RECYCLE) != 0) {
+                return;
+            }
+        }
+    }
+
+    private static Result runJob(String source, byte[] stdin, int timeoutMillis, int maxOutputBytes,
+                                 long heapLimit, PrintStream log) {
+        Result result = new Result(maxOutputBytes);
+
+        Compilation compilation = compile(source);
+        if (compilation.classes == null) {
+            byte[] errors = compilation.errors.getBytes(StandardCharsets.UTF_8);
+            result.stderr.write(errors, 0, errors.length);
+            result.exitCode = 1;
+            return result;
+        }
+
+        ThreadGroup group = new ThreadGroup("job");
+        ClassLoader loader = new MemoryClassLoader(compilation.classes);
+        PrintStream stdout = new PrintStream(result.stdout, true, StandardCharsets.UTF_8);
+        PrintStream stderr = new PrintStream(result.stderr, true, StandardCharsets.UTF_8);
+        InputStream originalIn = System.in;
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+
+        Thread main = new Thread(group, () -> {
+            try {
+                Class<?> mainClass = Class.forName("Main", true, loader);
+                Method entry = mainClass.getMethod("main", String[].class);
+                if (!Modifier.isStatic(entry.getModifiers())) {
+                    throw new NoSuchMethodException("Main.main must be static");
+                }
+                entry.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ExitTrap) {
+                    result.exitCode = ((ExitTrap) cause).status;
+                } else if (!(cause instanceof ThreadDeath)) {
+                    stderr.print("Exception in thread \"main\" ");
+                    hideWorkerFrames(cause);
+                    cause.printStackTrace(stderr);
+                    result.exitCode = 1;
+                }
+            } catch (ExitTrap e) {
+                result.exitCode = e.status;
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                stderr.println("Error: Main method not found in class Main, please define the method as:");
+                stderr.println("   public static void main(String[] args)");
+                result.exitCode = 1;
+            } catch (Throwable e) {
+                if (!(e instanceof ThreadDeath)) {
+                    e.printStackTrace(stderr);
+                    result.exitCode = 1;
+                }
+            }
+        }, "main");
+
+        System.setIn(new ByteArrayInputStream(stdin));
+        System.setOut(stdout);
+        System.setErr(stderr);
+        int threadsBefore = THREADS.getThreadCount();
+        jobGroup = group;
+        long started = System.nanoTime();
+        try {
+            main.start();
+            watch(group, main, result, started, timeoutMillis, heapLimit);
+        } finally {
+            System.setIn(originalIn);
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+        }
+
+        // Still the job's group while stopping, so threads its pools replace meanwhile land there too
+        boolean stopped = stopAll(group);
+        jobGroup = null;
+        if (!stopped) {
+            log.println("Job threads did not stop; recycling worker");
+            result.flags |= FLAG_RECYCLE;
+        } else if (THREADS.getThreadCount() > threadsBefore || ProcessHandle.current().children().findAny().isPresent()) {
+            // E.g. common pool threads running job code; the next job must not share the JVM with them
+            log.println("Job left threads or processes behind; recycling worker");
+            result.flags |= FLAG_RECYCLE;
+        }
+        stdout.flush();
+        stderr.flush();
+        return result;
+    }
+
+    // Drops the reflective call from the worker, so traces end at Main.main as with plain java
+    private static void hideWorkerFrames(Throwable error) {
+        StackTraceElement[] frames = error.getStackTrace();
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i].getClassName().startsWith("jdk.internal.reflect.")) {
+                error.setStackTrace(Arrays.copyOf(frames, i));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for the job's main thread while enforcing wall time, CPU time, heap and
+     * output limits. Like the JVM, the job lasts until its last non-daemon thread ends.
+     * Returns then or when the job was stopped.
+     */
+    private static void watch(ThreadGroup group, Thread main, Result result, long started,
+                              int timeoutMillis, long heapLimit) {
+        long timeoutNanos = timeoutMillis * 1_000_000L;
+        while (true) {
+            try {
+                main.join(WATCHDOG_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!main.isAlive() && !hasUserThreads(group)) {
+                return;
+            }
+            if (System.nanoTime() - started > timeoutNanos || cpuTime(group) > timeoutNanos) {
+                result.flags |= FLAG_TIMED_OUT;
+                result.exitCode = -1;
+                return;
+            }
+            if (result.stdout.overflowed || result.stderr.overflowed) {
+                result.flags |= FLAG_OUTPUT_LIMIT;
+                result.exitCode = -1;
+                return;
+            }
+            if (MEMORY.getHeapMemoryUsage().getUsed() > heapLimit) {
+                System.gc();
+                if (MEMORY.getHeapMemoryUsage().getUsed() > heapLimit) {
+                    stopAll(group);
+                    byte[] message = "Memory limit exceeded\n".getBytes(StandardCharsets.UTF_8);
+                    result.stderr.write(message, 0, message.length);
+                    result.exitCode = 137;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean hasUserThreads(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int count = group.enumerate(threads, true);
+        for (int i = 0; i < count; i++) {
+            if (threads[i].isAlive() && !threads[i].isDaemon()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long cpuTime(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 8];
+        int count = group.enumerate(threads, true);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long time = THREADS.getThreadCpuTime(threads[i].getId());
+            if (time > 0) {
+                total += time;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Stops every thread the job started.
+     *
+     * @return false when some thread is still alive afterwards
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    private static boolean stopAll(ThreadGroup group) {
+        long deadline = System.currentTimeMillis() + STOP_GRACE_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Thread[] threads = new Thread[group.activeCount() + 8];
+            int count = group.enumerate(threads, true);
+            boolean alive = false;
+            for (int i = 0; i < count; i++) {
+                if (threads[i].isAlive()) {
+                    alive = true;
+                    threads[i].stop();
+                }
+            }
+            if (!alive) {
+                return true;
+            }
+            try {
+                Thread.sleep(WATCHDOG_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    static Compilation compile(String source) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        MemoryFileManager files = new MemoryFileManager(STANDARD_FILES);
+        JavaFileObject unit = new SimpleJavaFileObject(URI.create("string:///Main.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        boolean ok = COMPILER.getTask(null, files, diagnostics, List.of("-proc:none", "-Xlint:none"), null, List.of(unit)).call();
+
+        Compilation compilation = new Compilation();
+        if (ok) {
+            compilation.classes = files.classes;
+            return compilation;
+        }
+        // Same layout as command-line javac
+        StringBuilder errors = new StringBuilder();
+        int errorCount = 0;
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() != Diagnostic.Kind.ERROR) {
+                continue;
+            }
+            errorCount++;
+            errors.append("Main.java:").append(diagnostic.getLineNumber()).append(": error: ")
+                .append(diagnostic.getMessage(Locale.ROOT)).append('\n');
+            String line = sourceLine(source, diagnostic.getLineNumber());
+            if (line != null) {
+                errors.append(line).append('\n');
+                errors.append(" ".repeat((int) Math.max(0, diagnostic.getColumnNumber() - 1))).append("^\n");
+            }
+        }
+        errors.append(errorCount).append(errorCount == 1 ? " error\n" : " errors\n");
+        compilation.errors = errors.toString();
+        return compilation;
+    }
+
+    private static String sourceLine(String source, long lineNumber) {
+        if (lineNumber < 1) {
+            return null;
+        }
+        String[] lines = source.split("\n", -1);
+        return lineNumber <= lines.length ? lines[(int) lineNumber - 1].replace("\r", "") : null;
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+
+    private static void writeResult(DataOutputStream out, Result result) throws IOException {
+        out.writeInt(result.exitCode);
+        out.writeInt(result.flags);
+        byte[] stdout = result.stdout.toByteArray();
+        out.writeInt(stdout.length);
+        out.write(stdout);
+        out.writeLong(result.stdout.dropped);
+        byte[] stderr = result.stderr.toByteArray();
+        out.writeInt(stderr.length);
+        out.write(stderr);
+        out.writeLong(result.stderr.dropped);
+        out.flush();
+    }
+
+    static class Compilation {
+        Map<String, byte[]> classes;
+        String errors;
+    }
+
+    static class Result {
+        final CappedOutput stdout;
+        final CappedOutput stderr;
+        int exitCode = 0;
+        int flags = 0;
+
+        Result(int maxOutputBytes) {
+            stdout = new CappedOutput(maxOutputBytes);
+            stderr = new CappedOutput(maxOutputBytes);
+        }
+    }
+
+    /**
+     * Keeps up to a fixed number of bytes and counts the rest.
+     */
+    static class CappedOutput extends OutputStream {
+        private final int capacity;
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        volatile boolean overflowed = false;
+        long dropped = 0;
+
+        CappedOutput(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length) {
+            int accepted = Math.min(length, capacity - data.size());
+            if (accepted > 0) {
+                data.write(bytes, offset, accepted);
+            }
+            if (accepted < length) {
+                dropped += length - accepted;
+                overflowed = true;
+            }
+        }
+
+        synchronized byte[] toByteArray() {
+            return data.toByteArray();
+        }
+    }
+
+    static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        final Map<String, byte[]> classes = new HashMap<>();
+
+        MemoryFileManager(JavaFileManager delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                                   FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension), kind) {
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            // The standard file manager is shared between jobs
+        }
+    }
+
+    static class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            // Only platform classes are visible, never the worker's own
+            super(ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length, JOB_DOMAIN);
+        }
+    }
+
+    static class ExitTrap extends SecurityException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ExitTrap(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    /**
+     * Checks permissions against the stack, where a job frame limits the caller to
+     * {@link #JOB_DOMAIN}'s permissions even on threads outside the job's group. Also turns
+     * System.exit in a job into the job's exit code and keeps jobs to their own threads.
+     */
+    @SuppressWarnings("removal")
+    static class JobSecurityManager extends SecurityManager {
+        private static final RuntimePermission MODIFY_THREAD_GROUP = new RuntimePermission("modifyThreadGroup");
+
+        private static boolean inJobGroup(ThreadGroup candidate) {
+            ThreadGroup group = jobGroup;
+            return group != null && candidate != null && (candidate == group || group.parentOf(candidate));
+        }
+
+        @Override
+        public void checkPermission(Permission permission) {
+            AccessController.checkPermission(permission);
+        }
+
+        @Override
+        public void checkPermission(Permission permission, Object context) {
+            checkPermission(permission);
+        }
+
+        @Override
+        public void checkExit(int status) {
+            try {
+                super.checkExit(status);
+            } catch (SecurityException e) {
+                throw new ExitTrap(status);
+            }
+        }
+
+        // The job may start, stop and inspect its own threads, never the worker's or a parent group
+        @Override
+        public void checkAccess(Thread thread) {
+            if (!inJobGroup(thread.getThreadGroup())) {
+                checkPermission(MODIFY_THREAD_GROUP);
+            }
+        }
+
+        @Override
+        public void checkAccess(ThreadGroup group) {
+            if (!inJobGroup(group)) {
+                checkPermission(MODIFY_THREAD_GROUP);
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+'use strict';
+/*
+ * Standby Node.js worker started inside a sandbox by the online compiler backend.
+ *
+ * Node cannot fork a running process, so the worker keeps one child started ahead of
+ * time: it has already booted the runtime and loaded the core modules most programs
+ * use, and only waits to be told which script to run. Each job consumes the standby
+ * child, which has its own process group, and runs from its own directory. The worker
+ * enforces wall time and output caps. The worker's sandbox runs nothing else as its
+ * user, so after every job it kills every other process of that user, including any
+ * that left the job's process group, removes the job's directory, and only then starts
+ * the next standby child, which the job never gets to see. It asks to be replaced when
+ * that fails.
+ *
+ * Protocol on stdin/stdout, all integers big-endian (same as JavaWorker):
+ *   ready:    int MAGIC
+ *   request:  int sourceLength, source, int stdinLength, stdin, int timeoutMillis, int maxOutputBytes
+ *   response: int exitCode, int flags, int stdoutLength, stdout, long stdoutDropped,
+ *             int stderrLength, stderr, long stderrDropped
+ */
+
+const MAGIC = 0x4F435752;
+const FLAG_TIMED_OUT = 1;
+const FLAG_OUTPUT_LIMIT = 2;
+const FLAG_RECYCLE = 4;
+
+// Sweeps over the process table before giving up on a job that keeps forking
+const SWEEP_ROUNDS = 50;
+
+// Loaded by the standby child before it reports ready
+const WARM_MODULES = ['assert', 'buffer', 'events', 'fs', 'os', 'path', 'readline', 'stream', 'string_decoder', 'util'];
+
+if (process.argv[2] === '--standby') {
+  standby();
+} else {
+  serve(parseInt(process.argv[2] || '100', 10));
+}
+
+function standby() {
+  for (const name of WARM_MODULES) {
+    require(name);
+  }
+  process.once('message', (script) => {
+    // Let the program's own event loop decide when this process exits
+    process.disconnect();
+    process.chdir(require('path').dirname(script));
+    process.argv[1] = script;
+    require('module').runMain();
+  });
+  process.send('ready');
+}
+
+function serve(maxJobs) {
+  const fs = require('fs');
+  const path = require('path');
+  const { spawn } = require('child_process');
+
+  function processStatus(pid) {
+    const status = {};
+    try {
+      for (const line of fs.readFileSync(`/proc/${pid}/status`, 'utf8').split('\n')) {
+        const colon = line.indexOf(':');
+        status[line.slice(0, colon)] = line.slice(colon + 1).trim().split(/\s+/);
+      }
+    } catch (e) {
+      // Already gone
+    }
+    return status;
+  }
+
+  function ancestors() {
+    const pids = new Set();
+    let pid = process.pid;
+    while (pid > 0 && !pids.has(pid)) {
+      pids.add(pid);
+      pid = parseInt((processStatus(pid).PPid || ['0'])[0], 10);
+    }
+    return pids;
+  }
+
+  /*
+   * Kills every process of this user except the worker and its ancestors. Returns false
+   * if any is left, even a zombie: Node cannot reap orphans, and they count against the
+   * sandbox's process limit.
+   */
+  function sweep() {
+    const uid = String(process.getuid());
+    const keep = ancestors().add(1);
+    for (let round = 0; round < SWEEP_ROUNDS; round++) {
+      let left = false;
+      for (const name of fs.readdirSync('/proc')) {
+        if (!/^\d+$/.test(name) || keep.has(parseInt(name, 10))) {
+          continue;
+        }
+        const status = processStatus(name);
+        if (!(status.Uid || []).includes(uid)) {
+          continue;
+        }
+        left = true;
+        if (!['Z', 'X'].includes((status.State || ['Z'])[0])) {
+          try {
+            process.kill(parseInt(name, 10), 'SIGKILL');
+          } catch (e) {
+            // Already gone
+          }
+        }
+      }
+      if (!left) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  function removeTree(dir) {
+    // A job may have taken its own permissions away from what it created
+    function unlock(target) {
+      try {
+        fs.chmodSync(target, 0o700);
+        for (const entry of fs.readdirSync(target, { withFileTypes: true })) {
+          if (entry.isDirectory()) {
+            unlock(path.join(target, entry.name));
+          }
+        }
+      } catch (e) {
+        // rmSync reports what is left
+      }
+    }
+    unlock(dir);
+    try {
+      fs.rmSync(dir, { recursive: true, force: true });
+    } catch (e) {
+      // Unreachable once every process of the job is gone
+    }
+  }
+
+  let next = null;
+  function startStandby() {
+    const child = spawn(process.execPath, [__filename, '--standby'], {
+      stdio: ['pipe', 'pipe', 'pipe', 'ipc'],
+      detached: true,
+    });
+    next = {
+      child,
+      ready: new Promise((resolve, reject) => {
+        child.once('message', resolve);
+        child.once('exit', () => reject(new Error('standby process exited')));
+      }),
+    };
+    next.ready.catch(() => {});
+  }
+
+  async function runJob(source, stdin, timeoutMillis, maxOutput) {
+    let standby = next;
+    try {
+      await standby.ready;
+    } catch (e) {
+      startStandby();
+      standby = next;
+      await standby.ready;
+    }
+    next = null;
+    // A fresh, private directory; nothing of the job survives to see it reused
+    const dir = fs.mkdtempSync(path.join(process.cwd(), '.job-'));
+    const script = path.join(dir, 'main.js');
+    fs.writeFileSync(script, source);
+
+    const child = standby.child;
+    const output = [[], []];
+    const sizes = [0, 0];
+    const dropped = [0, 0];
+    let flags = 0;
+
+    function kill() {
+      try {
+        process.kill(-child.pid, 'SIGKILL');
+      } catch (e) {
+        // Already gone
+      }
+    }
+
+    // Also ends processes that left the group and would keep the job's output open
+    function abort(flag) {
+      if (!(flags & flag)) {
+        flags |= flag;
+        kill();
+        sweep();
+      }
+    }
+
+    function collect(index) {
+      return (chunk) => {
+        const room = Math.max(0, maxOutput - sizes[index]);
+        if (room > 0) {
+          const kept = chunk.length > room ? chunk.subarray(0, room) : chunk;
+          output[index].push(kept);
+          sizes[index] += kept.length;
+        }
+        if (chunk.length > room) {
+          dropped[index] += chunk.length - room;
+          abort(FLAG_OUTPUT_LIMIT);
+        }
+      };
+    }
+
+    const finished = new Promise((resolve) => child.once('close', (code, signal) => resolve({ code, signal })));
+    child.stdout.on('data', collect(0));
+    child.stderr.on('data', collect(1));
+    child.stdin.on('error', () => {});
+    const timer = setTimeout(() => abort(FLAG_TIMED_OUT), timeoutMillis);
+
+    child.send(script);
+    child.stdin.end(stdin);
+    const { code, signal } = await finished;
+    clearTimeout(timer);
+    kill();
+
+    let exitCode;
+    if (flags & (FLAG_TIMED_OUT | FLAG_OUTPUT_LIMIT)) {
+      exitCode = -1;
+    } else if (code !== null) {
+      exitCode = code;
+    } else {
+      exitCode = 128 + (require('os').constants.signals[signal] || 0);
+    }
+    if (!sweep()) {
+      flags |= FLAG_RECYCLE;
+    }
+    removeTree(dir);
+    if (!(flags & FLAG_RECYCLE)) {
+      startStandby();
+    }
+    return { exitCode, flags, stdout: Buffer.concat(output[0]), stdoutDropped: dropped[0],
+      stderr: Buffer.concat(output[1]), stderrDropped: dropped[1] };
+  }
+
+  function header(...ints) {
+    const buffer = Buffer.alloc(ints.length * 4);
+    ints.forEach((value, i) => buffer.writeInt32BE(value, i * 4));
+    return buffer;
+  }
+
+  function long(value) {
+    const buffer = Buffer.alloc(8);
+    buffer.writeBigInt64BE(BigInt(value));
+    return buffer;
+  }
+
+  // Requests are read from a growing buffer and handled one at a time
+  let received = Buffer.alloc(0);
+  let busy = false;
+  let jobs = 0;
+
+  function nextRequest() {
+    let offset = 0;
+    function int() {
+      if (received.length < offset + 4) {
+        return null;
+      }
+      const value = received.readInt32BE(offset);
+      offset += 4;
+      return value;
+    }
+    function block() {
+      const length = int();
+      if (length === null || received.length < offset + length) {
+        return null;
+      }
+      const data = received.subarray(offset, offset + length);
+      offset += length;
+      return data;
+    }
+    const source = block();
+    const stdin = source === null ? null : block();
+    const timeoutMillis = stdin === null ? null : int();
+    const maxOutput = timeoutMillis === null ? null : int();
+    if (maxOutput === null) {
+      return null;
+    }
+    received = received.subarray(offset);
+    return { source, stdin: Buffer.from(stdin), timeoutMillis, maxOutput };
+  }
+
+  async function pump() {
+    if (busy) {
+      return;
+    }
+    busy = true;
+    let request;
+    while ((request = nextRequest()) !== null) {
+      const result = await runJob(request.source, request.stdin, request.timeoutMillis, request.maxOutput);
+      process.stdout.write(Buffer.concat([
+        header(result.exitCode, result.flags, result.stdout.length), result.stdout, long(result.stdoutDropped),
+        header(result.stderr.length), result.stderr, long(result.stderrDropped),
+      ]));
+      if (++jobs >= maxJobs || (result.flags & FLAG_RECYCLE)) {
+        if (next) {
+          next.child.kill('SIGKILL');
+        }
+        process.stdout.end(() => process.exit(0));
+        return;
+      }
+    }
+    busy = false;
+  }
+
+  process.stdin.on('data', (chunk) => {
+    received = Buffer.concat([received, chunk]);
+    pump();
+  });
+  process.stdin.on('end', () => {
+    if (next) {
+      next.child.kill('SIGKILL');
+    }
+    process.exit(0);
+  });
+
+  startStandby();
+  next.ready.then(() => process.stdout.write(header(MAGIC)));
+}
@@ -0,0 +1,326 @@
+"""Fork-server Python worker started inside a sandbox by the online compiler backend.
+
+The parent imports the commonly used standard library once and then forks a child
+per job, so every program starts from a warm, copy-on-write interpreter and no state
+survives from one job to the next. The parent enforces wall time and output caps; the
+child runs under a CPU time rlimit in its own process group and its own directory.
+The worker's sandbox runs nothing else as its user, so after every job the parent kills
+every other process of that user, including any that left the job's process group or
+session, before it takes the next job. It asks to be replaced when that fails.
+
+Protocol on stdin/stdout, all integers big-endian (same as JavaWorker):
+  ready:    int MAGIC
+  request:  int sourceLength, source, int stdinLength, stdin, int timeoutMillis, int maxOutputBytes
+  response: int exitCode, int flags, int stdoutLength, stdout, long stdoutDropped,
+            int stderrLength, stderr, long stderrDropped
+"""
+
+import builtins
+import ctypes
+import linecache
+import os
+import resource
+import select
+import shutil
+import signal
+import struct
+import sys
+import tempfile
+import time
+import traceback
+
+MAGIC = 0x4F435752
+FLAG_TIMED_OUT = 1
+FLAG_OUTPUT_LIMIT = 2
+FLAG_RECYCLE = 4
+
+# Sweeps over the process table before giving up on a job that keeps forking
+SWEEP_ROUNDS = 50
+PR_SET_CHILD_SUBREAPER = 36
+
+# Imported once in the parent so children inherit them ready to use
+WARM_MODULES = (
+    "array", "bisect", "collections", "copy", "dataclasses", "datetime", "decimal", "fractions",
+    "functools", "heapq", "io", "itertools", "json", "math", "operator", "random", "re",
+    "statistics", "string", "textwrap", "typing",
+)
+
+
+def warm_up():
+    for name in WARM_MODULES:
+        try:
+            __import__(name)
+        except ImportError:
+            pass
+
+
+def adopt_orphans():
+    """Makes processes a job leaves behind children of this worker, so they can be reaped."""
+    try:
+        ctypes.CDLL(None, use_errno=True).prctl(PR_SET_CHILD_SUBREAPER, 1, 0, 0, 0)
+    except (OSError, AttributeError):
+        pass
+
+
+def process_status(pid):
+    status = {}
+    try:
+        with open("/proc/%s/status" % pid) as lines:
+            for line in lines:
+                key, _, value = line.partition(":")
+                status[key] = value.split()
+    except OSError:
+        pass
+    return status
+
+
+def ancestors():
+    pids = set()
+    pid = os.getpid()
+    while pid > 0 and pid not in pids:
+        pids.add(pid)
+        pid = int(process_status(pid).get("PPid", ["0"])[0])
+    return pids
+
+
+def sweep():
+    """Kills every process of this user except the worker and its ancestors.
+
+    Returns whether none is left, not even a zombie still counting against the process limit.
+    """
+    uid = str(os.getuid())
+    keep = ancestors() | {1}
+    for _ in range(SWEEP_ROUNDS):
+        left = False
+        for name in os.listdir("/proc"):
+            if not name.isdigit() or int(name) in keep:
+                continue
+            status = process_status(name)
+            if uid not in status.get("Uid", ()):
+                continue
+            left = True
+            if status.get("State", ["Z"])[0] not in ("Z", "X"):
+                try:
+                    os.kill(int(name), signal.SIGKILL)
+                except (ProcessLookupError, PermissionError):
+                    pass
+        reap()
+        if not left:
+            return True
+    return False
+
+
+def reap():
+    try:
+        while os.waitpid(-1, os.WNOHANG)[0] > 0:
+            pass
+    except ChildProcessError:
+        pass
+
+
+def remove_tree(path):
+    # A job may have taken its own permissions away from what it created
+    try:
+        os.chmod(path, 0o700)
+    except OSError:
+        pass
+    for root, dirs, _ in os.walk(path):
+        for name in dirs:
+            try:
+                os.chmod(os.path.join(root, name), 0o700, follow_symlinks=False)
+            except (OSError, NotImplementedError):
+                pass
+    shutil.rmtree(path, ignore_errors=True)
+
+
+def read_exactly(stream, length):
+    data = b""
+    while len(data) < length:
+        chunk = stream.read(length - len(data))
+        if not chunk:
+            raise EOFError
+        data += chunk
+    return data
+
+
+def read_int(stream):
+    return struct.unpack(">i", read_exactly(stream, 4))[0]
+
+
+def read_block(stream):
+    return read_exactly(stream, read_int(stream))
+
+
+def run_child(source, job_dir, protocol_fds, stdin_fd, stdout_fd, stderr_fd, timeout_millis):
+    code = 1
+    try:
+        os.setsid()
+        os.chdir(job_dir)
+        os.dup2(stdin_fd, 0)
+        os.dup2(stdout_fd, 1)
+        os.dup2(stderr_fd, 2)
+        for fd in protocol_fds + (stdin_fd, stdout_fd, stderr_fd):
+            os.close(fd)
+        seconds = max(1, (timeout_millis + 999) // 1000)
+        resource.setrlimit(resource.RLIMIT_CPU, (seconds, seconds + 1))
+
+        # Fresh streams over the job's pipes, buffered like a plain `python3 main.py`
+        sys.stdin = open(0, "r", encoding="utf-8", closefd=False)
+        sys.stdout = open(1, "w", encoding="utf-8", closefd=False)
+        sys.stderr = open(2, "w", encoding="utf-8", buffering=1, closefd=False)
+        sys.argv = ["main.py"]
+
+        # Tracebacks quote source lines; main.py only exists in memory
+        linecache.cache["main.py"] = (len(source), None, source.splitlines(True), "main.py")
+
+        code = 0
+        try:
+            program = compile(source, "main.py", "exec")
+            exec(program, {"__name__": "__main__", "__file__": "main.py", "__builtins__": builtins})
+        except SystemExit as e:
+            if e.code is None:
+                code = 0
+            elif isinstance(e.code, int):
+                code = e.code
+            else:
+                print(e.code, file=sys.stderr)
+                code = 1
+        except BaseException:
+            error_type, error, tb = sys.exc_info()
+            # Skip this function's frame so the traceback starts in main.py
+            traceback.print_exception(error_type, error, tb.tb_next if tb is not None else None)
+            code = 1
+        for stream in (sys.stdout, sys.stderr):
+            try:
+                stream.flush()
+            except BaseException:
+                pass
+    finally:
+        os._exit(code & 0xFF)
+
+
+def run_job(source, data, timeout_millis, max_output, protocol_fds):
+    # A fresh, private directory; nothing of the job survives to see it reused
+    job_dir = tempfile.mkdtemp(prefix=".job-", dir=os.getcwd())
+    stdin_r, stdin_w = os.pipe()
+    stdout_r, stdout_w = os.pipe()
+    stderr_r, stderr_w = os.pipe()
+    pid = os.fork()
+    if pid == 0:
+        for fd in (stdin_w, stdout_r, stderr_r):
+            os.close(fd)
+        run_child(source, job_dir, protocol_fds, stdin_r, stdout_w, stderr_w, timeout_millis)
+    for fd in (stdin_r, stdout_w, stderr_w):
+        os.close(fd)
+
+    output = {stdout_r: bytearray(), stderr_r: bytearray()}
+    dropped = {stdout_r: 0, stderr_r: 0}
+    flags = 0
+    deadline = time.monotonic() + timeout_millis / 1000.0
+    pending = data
+    writer = stdin_w
+    if pending:
+        os.set_blocking(writer, False)
+    else:
+        os.close(writer)
+        writer = None
+    readers = [stdout_r, stderr_r]
+
+    while readers and not flags:
+        remaining = deadline - time.monotonic()
+        if remaining <= 0:
+            flags |= FLAG_TIMED_OUT
+            break
+        readable, writable, _ = select.select(readers, [writer] if writer is not None else [], [], remaining)
+        for fd in readable:
+            chunk = os.read(fd, 65536)
+            if not chunk:
+                readers.remove(fd)
+                os.close(fd)
+                continue
+            buffer = output[fd]
+            room = max(0, max_output - len(buffer))
+            buffer += chunk[:room]
+            if len(chunk) > room:
+                dropped[fd] += len(chunk) - room
+                flags |= FLAG_OUTPUT_LIMIT
+        if writable:
+            try:
+                pending = pending[os.write(writer, pending[:65536]):]
+            except BlockingIOError:
+                pass
+            except BrokenPipeError:
+                pending = b""
+            if not pending:
+                os.close(writer)
+                writer = None
+
+    # Output is closed; give the program until the deadline to exit
+    status = None
+    while status is None and not flags:
+        finished, wait_status = os.waitpid(pid, os.WNOHANG)
+        if finished:
+            status = wait_status
+        elif time.monotonic() >= deadline:
+            flags |= FLAG_TIMED_OUT
+        else:
+            time.sleep(0.005)
+    try:
+        os.killpg(pid, signal.SIGKILL)
+    except (ProcessLookupError, PermissionError):
+        pass
+    if status is None:
+        _, status = os.waitpid(pid, 0)
+    for fd in readers + ([writer] if writer is not None else []):
+        os.close(fd)
+    if not sweep():
+        flags |= FLAG_RECYCLE
+    remove_tree(job_dir)
+
+    if os.WIFSIGNALED(status) and os.WTERMSIG(status) == signal.SIGXCPU:
+        flags |= FLAG_TIMED_OUT
+    if flags & (FLAG_TIMED_OUT | FLAG_OUTPUT_LIMIT):
+        exit_code = -1
+    elif os.WIFEXITED(status):
+        exit_code = os.WEXITSTATUS(status)
+    else:
+        exit_code = 128 + os.WTERMSIG(status)
+    return exit_code, flags, bytes(output[stdout_r]), dropped[stdout_r], bytes(output[stderr_r]), dropped[stderr_r]
+
+
+def main():
+    max_jobs = int(sys.argv[1]) if len(sys.argv) > 1 else 100
+    # Keep the protocol off fds 0 and 1 so nothing else can write to it
+    protocol_in = os.fdopen(os.dup(0), "rb", 0)
+    protocol_out = os.fdopen(os.dup(1), "wb")
+    devnull = os.open(os.devnull, os.O_RDWR)
+    os.dup2(devnull, 0)
+    os.dup2(2, 1)
+    os.close(devnull)
+    protocol_fds = (protocol_in.fileno(), protocol_out.fileno())
+
+    adopt_orphans()
+    warm_up()
+    protocol_out.write(struct.pack(">i", MAGIC))
+    protocol_out.flush()
+
+    for _ in range(max_jobs):
+        try:
+            source = read_block(protocol_in)
+        except EOFError:
+            return
+        data = read_block(protocol_in)
+        timeout_millis, max_output = struct.unpack(">ii", read_exactly(protocol_in, 8))
+
+        exit_code, flags, stdout, stdout_dropped, stderr, stderr_dropped = run_job(
+            source.decode("utf-8", errors="replace"), data, timeout_millis, max_output, protocol_fds)
+        protocol_out.write(struct.pack(">ii", exit_code, flags))
+        protocol_out.write(struct.pack(">i", len(stdout)) + stdout + struct.pack(">q", stdout_dropped))
+        protocol_out.write(struct.pack(">i", len(stderr)) + stderr + struct.pack(">q", stderr_dropped))
+        protocol_out.flush()
+        if flags & FLAG_RECYCLE:
+            return
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,165 @@
+package com.example.compiler.security;
+
+import com.example.compiler.config.DistributedRateLimitProperties;
+import com.example.compiler.model.User;
+import com.example.compiler.service.AuthService;
+import com.example.compiler.service.DistributedRateLimiter;
+import com.example.compiler.service.RateLimitEngine;
+import com.example.compiler.service.UserService;
+import com.example.compiler.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The JWT part of an authenticated request, before and after it was verified once
+ * through a cached parser: the old path rebuilt the key and parser and verified the
+ * token three times. Cache hits reuse one token; misses cycle through more tokens than
+ * the cache holds. The whole filter is measured as well, with the user lookup stubbed.
+ *
+ * <p>{@code mvn -P benchmark test-compile exec:exec -Dbenchmark=JwtAuthenticationFilterBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    // The shipped app.jwt settings
+    private static final String SECRET = "mySecretKey12345678901234567890123456789012345678901234567890";
+    private static final long EXPIRATION_MILLIS = 86_400_000;
+    private static final int CACHE_SIZE = 10_000;
+    // Twice the cache, so a token has always been evicted by the time it comes round again
+    private static final int MISS_TOKENS = 2 * CACHE_SIZE;
+
+    private static final FilterChain CHAIN = (request, response) -> { };
+
+    private JwtUtil jwtUtil;
+    private JwtAuthenticationFilter filter;
+    private String token;
+    private String[] missTokens;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", EXPIRATION_MILLIS);
+        ReflectionTestUtils.setField(jwtUtil, "cacheSize", CACHE_SIZE);
+        jwtUtil.init();
+
+        token = jwtUtil.generateToken("user-0", "id-0");
+        jwtUtil.parseAndVerify(token);
+        missTokens = new String[MISS_TOKENS];
+        for (int i = 0; i < MISS_TOKENS; i++) {
+            missTokens[i] = jwtUtil.generateToken("user-" + (i + 1), "id-" + (i + 1));
+        }
+
+        AuthService authService = new AuthService();
+        ReflectionTestUtils.setField(authService, "jwtUtil", jwtUtil);
+
+        User user = new User("user", "user@example.com", "password");
+        user.setId("id");
+        UserService userService = new UserService() {
+            @Override
+            public Optional<User> findByUsername(String username) {
+                return Optional.of(user);
+            }
+        };
+
+        DistributedRateLimiter distributed = new DistributedRateLimiter();
+        ReflectionTestUtils.setField(distributed, "properties", new DistributedRateLimitProperties());
+        RateLimitEngine rateLimitEngine = new RateLimitEngine();
+        ReflectionTestUtils.setField(rateLimitEngine, "requestsPerMinute", 10);
+        // Never refuses, so every request reaches the token
+        ReflectionTestUtils.setField(rateLimitEngine, "burstCapacity", Integer.MAX_VALUE / 2);
+        ReflectionTestUtils.setField(rateLimitEngine, "maxClients", 100_000);
+        ReflectionTestUtils.setField(rateLimitEngine, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(rateLimitEngine, "distributed", distributed);
+        rateLimitEngine.init();
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "authService", authService);
+        ReflectionTestUtils.setField(filter, "userService", userService);
+        ReflectionTestUtils.setField(filter, "rateLimitEngine", rateLimitEngine);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int advance() {
+            int current = next;
+            next = current + 1 == MISS_TOKENS ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    // validateToken, getUsernameFromToken and getUserIdFromToken as the filter called them before
+    @Benchmark
+    public String beforeValidateAndParseTwice() {
+        Jwts.parser().verifyWith(signingKey()).build().parseSignedClaims(token);
+        String username = Jwts.parser().verifyWith(signingKey()).build().parseSignedClaims(token).getPayload()
+            .getSubject();
+        String userId = Jwts.parser().verifyWith(signingKey()).build().parseSignedClaims(token).getPayload()
+            .get("userId", String.class);
+        return username + userId;
+    }
+
+    @Benchmark
+    public Optional<Claims> parseAndVerifyCacheHit() {
+        return jwtUtil.parseAndVerify(token);
+    }
+
+    @Benchmark
+    public Optional<Claims> parseAndVerifyCacheMiss(Cursor cursor) {
+        return jwtUtil.parseAndVerify(missTokens[cursor.advance()]);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filterCacheHit() throws Exception {
+        return runFilter(token);
+    }
+
+    @Benchmark
+    public MockHttpServletResponse filterCacheMiss(Cursor cursor) throws Exception {
+        return runFilter(missTokens[cursor.advance()]);
+    }
+
+    private MockHttpServletResponse runFilter(String bearer) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/execute");
+        request.addHeader("Authorization", "Bearer " + bearer);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            filter.doFilter(request, response, CHAIN);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+
+    private static javax.crypto.SecretKey signingKey() {
+        return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+    }
+}
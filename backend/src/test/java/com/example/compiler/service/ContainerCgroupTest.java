@@ -0,0 +1,84 @@
+package com.example.compiler.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reads counters from fake cgroup hierarchies laid out like the host's.
+ */
+class ContainerCgroupTest {
+
+    private static final String ID = "0123456789abcdef";
+
+    @TempDir
+    Path root;
+
+    @Test
+    void readsUnifiedHierarchyWithSystemdLayout() throws Exception {
+        Files.writeString(root.resolve("cgroup.controllers"), "cpu memory pids\n");
+        Path dir = Files.createDirectories(root.resolve("system.slice/docker-" + ID + ".scope"));
+        Files.writeString(dir.resolve("cpu.stat"), "usage_usec 5000\nuser_usec 3000\nsystem_usec 2000\n");
+        Files.writeString(dir.resolve("memory.events"), "low 0\nhigh 0\nmax 4\noom 1\noom_kill 1\n");
+        Files.writeString(dir.resolve("memory.peak"), "1048576\n");
+        Files.writeString(dir.resolve("pids.peak"), "7\n");
+
+        Map<String, Long> counters = new ContainerCgroup(root, ID).read();
+
+        assertThat(counters).containsEntry("cpu.stat user_usec", 3000L)
+            .containsEntry("cpu.stat system_usec", 2000L)
+            .containsEntry("memory.events oom_kill", 1L)
+            .containsEntry("memory.peak", 1048576L)
+            .containsEntry("pids.peak", 7L);
+    }
+
+    @Test
+    void readsV1HierarchyWithCgroupfsLayout() throws Exception {
+        Path cpu = Files.createDirectories(root.resolve("cpuacct/docker/" + ID));
+        Path memory = Files.createDirectories(root.resolve("memory/docker/" + ID));
+        Files.writeString(cpu.resolve("cpuacct.usage_user"), "3000000\n");
+        Files.writeString(cpu.resolve("cpuacct.usage_sys"), "2000000\n");
+        Files.writeString(memory.resolve("memory.oom_control"), "oom_kill_disable 0\nunder_oom 0\noom_kill 2\n");
+        Files.writeString(memory.resolve("memory.max_usage_in_bytes"), "4096\n");
+
+        Map<String, Long> counters = new ContainerCgroup(root, ID).read();
+
+        assertThat(counters).containsEntry("cpuacct/cpuacct.usage_user", 3000000L)
+            .containsEntry("memory/memory.oom_control oom_kill", 2L)
+            .containsEntry("memory/memory.max_usage_in_bytes", 4096L);
+    }
+
+    @Test
+    void missingContainerReadsNothing() throws Exception {
+        Files.writeString(root.resolve("cgroup.controllers"), "cpu memory pids\n");
+
+        assertThat(new ContainerCgroup(root, ID).read()).isEmpty();
+    }
+
+    @Test
+    void ownCgroupCountsFromZeroAndSharedOneByDifference() {
+        HostDirectorySandbox.StepUsage own = new HostDirectorySandbox.StepUsage();
+        own.fromCounters(Map.of(), Map.of("cpu.stat user_usec", 3000L, "cpu.stat system_usec", 2000L,
+            "memory.events oom_kill", 1L, "memory.peak", 1048576L), true);
+
+        assertThat(own.userCpuMillis).isEqualTo(3);
+        assertThat(own.systemCpuMillis).isEqualTo(2);
+        assertThat(own.oomKilled).isTrue();
+        assertThat(own.peakMemoryBytes).isEqualTo(1048576);
+
+        HostDirectorySandbox.StepUsage shared = new HostDirectorySandbox.StepUsage();
+        shared.fromCounters(Map.of("cpu.stat user_usec", 1000L, "cpu.stat system_usec", 0L, "memory.events oom_kill", 1L),
+            Map.of("cpu.stat user_usec", 5000L, "cpu.stat system_usec", 1000L, "memory.events oom_kill", 1L,
+                "memory.peak", 1048576L), false);
+
+        assertThat(shared.userCpuMillis).isEqualTo(4);
+        assertThat(shared.systemCpuMillis).isEqualTo(1);
+        assertThat(shared.oomKilled).isFalse();
+        assertThat(shared.peakMemoryBytes).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.DistributedRateLimitProperties;
+import com.example.compiler.repository.RateLimitWindowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Several nodes sharing a client's quota through an in-memory stand-in for the window
+ * collection, with every hit sent to the next node in turn as a round-robin load
+ * balancer would.
+ */
+class DistributedRateLimiterTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long REQUESTS_WINDOW = Duration.ofMinutes(2).toMillis();
+
+    private final InMemoryWindows windows = new InMemoryWindows();
+    private final DistributedRateLimitProperties properties = new DistributedRateLimitProperties();
+
+    @Test
+    void clusterNeverAdmitsMoreThanTheLimit() {
+        for (int limit : new int[] {5, 10, 20, 50, 200}) {
+            for (int nodes : new int[] {1, 3, 8}) {
+                Cluster cluster = new Cluster(nodes);
+                long start = 1000 * HOUR + 1;
+
+                // Far more hits than the limit within a second of the window opening
+                int admitted = cluster.hit(RateLimitPolicy.EXECUTIONS, "user:" + limit + "-" + nodes, limit, HOUR,
+                    start, limit * 10);
+
+                assertThat(admitted).as("limit %d on %d nodes", limit, nodes).isLessThanOrEqualTo(limit);
+            }
+        }
+    }
+
+    @Test
+    void singleNodeAdmitsTheWholeLimit() {
+        Cluster cluster = new Cluster(1);
+
+        int admitted = cluster.hit(RateLimitPolicy.EXECUTIONS, "user:1", 50, HOUR, 1000 * HOUR, 500);
+
+        assertThat(admitted).isEqualTo(50);
+    }
+
+    @Test
+    void hitsOfThePreviousWindowStillCount() {
+        Cluster cluster = new Cluster(2);
+        long windowStart = 1000 * HOUR;
+
+        assertThat(cluster.hit(RateLimitPolicy.EXECUTIONS, "user:1", 20, HOUR, windowStart - 1000, 20)).isEqualTo(20);
+        // A quarter into the next window three quarters of those 20 are still inside the sliding window
+        int admitted = cluster.hit(RateLimitPolicy.EXECUTIONS, "user:1", 20, HOUR, windowStart + HOUR / 4, 100);
+
+        assertThat(admitted).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void leasesKeepDatabaseCallsWellBelowOnePerHitAtShippedLimits() {
+        // Burst capacity of the REQUESTS policy, and the larger tiers' hourly execution limits
+        int[][] shipped = {{20, (int) REQUESTS_WINDOW}, {50, (int) HOUR}, {200, (int) HOUR}};
+        for (int[] policy : shipped) {
+            int limit = policy[0];
+            Cluster cluster = new Cluster(1);
+
+            int admitted = cluster.hit(RateLimitPolicy.REQUESTS, "ip:" + limit, limit, policy[1], 1000L * policy[1],
+                limit);
+
+            assertThat(admitted).isEqualTo(limit);
+            assertThat(windows.calls.get()).as("database calls for %d hits", limit).isLessThanOrEqualTo(limit / 4);
+            windows.calls.set(0);
+        }
+    }
+
+    @Test
+    void usedUpQuotaIsRefusedWithoutAskingAgainUntilHitsFade() {
+        Cluster cluster = new Cluster(1);
+        long windowStart = 1000 * HOUR;
+        assertThat(cluster.hit(RateLimitPolicy.EXECUTIONS, "user:1", 20, HOUR, windowStart + 1000, 20)).isEqualTo(20);
+
+        int callsBefore = windows.calls.get();
+        int admitted = cluster.hit(RateLimitPolicy.EXECUTIONS, "user:1", 20, HOUR, windowStart + 2000, 1000);
+
+        assertThat(admitted).isZero();
+        // One lease refused and handed back, then nothing until the next window
+        assertThat(windows.calls.get() - callsBefore).isLessThanOrEqualTo(2);
+        assertThat(DistributedRateLimiter.freedAt(1000, HOUR, 20, 0, 20)).isEqualTo(1001 * HOUR);
+        // With 20 hits in the previous window and 10 in this one, the 11th fits once 11 of those have faded
+        assertThat(DistributedRateLimiter.freedAt(1000, HOUR, 20, 20, 10)).isEqualTo(1000 * HOUR + HOUR * 11 / 20);
+    }
+
+    /**
+     * Nodes with their own limiter and lease, taking hits in turn.
+     */
+    private class Cluster {
+        private final List<DistributedRateLimiter> limiters = new ArrayList<>();
+        private final List<DistributedRateLimiter.Lease> leases = new ArrayList<>();
+
+        Cluster(int nodes) {
+            properties.setEnabled(true);
+            for (int i = 0; i < nodes; i++) {
+                DistributedRateLimiter limiter = new DistributedRateLimiter();
+                ReflectionTestUtils.setField(limiter, "properties", properties);
+                ReflectionTestUtils.setField(limiter, "repository", windows);
+                ReflectionTestUtils.setField(limiter, "meterRegistry", new SimpleMeterRegistry());
+                limiter.init();
+                limiters.add(limiter);
+                leases.add(new DistributedRateLimiter.Lease());
+            }
+        }
+
+        // Admitted hits of count sent one millisecond apart from start
+        int hit(RateLimitPolicy policy, String key, int limit, long windowMillis, long start, int count) {
+            int admitted = 0;
+            for (int i = 0; i < count; i++) {
+                int node = i % limiters.size();
+                if (limiters.get(node).tryAcquire(leases.get(node), policy, key, limit, windowMillis, start + i) >= 0) {
+                    admitted++;
+                }
+            }
+            return admitted;
+        }
+    }
+
+    /**
+     * Window counts in a map, with the collection's atomic increment and read.
+     */
+    static class InMemoryWindows extends RateLimitWindowRepository {
+        private final Map<String, Integer> counts = new ConcurrentHashMap<>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void ensureIndexes() {
+        }
+
+        @Override
+        public int increment(String windowId, int delta, Date expiresAt) {
+            calls.incrementAndGet();
+            return counts.merge(windowId, delta, Integer::sum);
+        }
+
+        @Override
+        public int count(String windowId) {
+            calls.incrementAndGet();
+            return counts.getOrDefault(windowId, 0);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.compiler.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the client against a fake daemon on a Unix socket that can drop connections at
+ * chosen points of a request.
+ */
+class DockerEngineClientTest {
+
+    @TempDir
+    Path tempDir;
+
+    private FakeDaemon daemon;
+    private DockerEngineClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        daemon = new FakeDaemon(tempDir.resolve("docker.sock"));
+        client = new DockerEngineClient(4);
+        ReflectionTestUtils.setField(client, "socketPath", daemon.socket.toString());
+        ReflectionTestUtils.setField(client, "apiVersion", "");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.shutdown();
+        daemon.close();
+    }
+
+    @Test
+    void getIsRetriedWhenReusedConnectionDropsTheResponse() throws Exception {
+        daemon.script(request -> daemon.requests.size() == 2 ? Action.DROP : Action.ok("{\"Id\":\"sha256:abc\"}"));
+
+        assertThat(client.inspectImageId("python")).isEqualTo("sha256:abc");
+        assertThat(client.inspectImageId("python")).isEqualTo("sha256:abc");
+
+        assertThat(daemon.requests).hasSize(3);
+        assertThat(daemon.connections).isEqualTo(2);
+    }
+
+    @Test
+    void createIsNotRetriedOnceTheDaemonReadIt() throws Exception {
+        daemon.script(request -> request.startsWith("POST") ? Action.DROP : Action.ok("{\"Id\":\"sha256:abc\"}"));
+
+        client.inspectImageId("python");
+        assertThatThrownBy(() -> client.createContainer("oc-run-1", Map.of("Image", "python")))
+            .isInstanceOf(IOException.class);
+
+        assertThat(daemon.requests).filteredOn(request -> request.startsWith("POST /containers/create")).hasSize(1);
+    }
+
+    @Test
+    void createIsRetriedWhenReusedConnectionWasAlreadyClosed() throws Exception {
+        daemon.script(request -> request.startsWith("GET")
+            ? Action.respondAndClose("{\"Id\":\"sha256:abc\"}")
+            : new Action(201, "{\"Id\":\"c1\"}", false, false));
+
+        client.inspectImageId("python");
+        daemon.closed.await(5, TimeUnit.SECONDS);
+        assertThat(client.createContainer("oc-run-1", Map.of("Image", "python"))).isEqualTo("c1");
+
+        assertThat(daemon.requests).filteredOn(request -> request.startsWith("POST /containers/create")).hasSize(1);
+    }
+
+    private record Action(int status, String body, boolean drop, boolean closeAfter) {
+        static final Action DROP = new Action(0, null, true, false);
+
+        static Action ok(String body) {
+            return new Action(200, body, false, false);
+        }
+
+        // Responds as if keeping the connection alive, then closes it like an idle timeout would
+        static Action respondAndClose(String body) {
+            return new Action(200, body, false, true);
+        }
+    }
+
+    private static class FakeDaemon implements AutoCloseable {
+        final Path socket;
+        final List<String> requests = new CopyOnWriteArrayList<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+        volatile int connections;
+        private final ServerSocketChannel server;
+        private volatile Function<String, Action> script;
+
+        FakeDaemon(Path socket) throws IOException {
+            this.socket = socket;
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Thread acceptor = new Thread(this::accept, "fake-docker-daemon");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        void script(Function<String, Action> script) {
+            this.script = script;
+        }
+
+        private void accept() {
+            while (server.isOpen()) {
+                try {
+                    SocketChannel channel = server.accept();
+                    connections++;
+                    Thread handler = new Thread(() -> serve(channel), "fake-docker-connection");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(SocketChannel channel) {
+            try (channel) {
+                InputStream in = Channels.newInputStream(channel);
+                OutputStream out = Channels.newOutputStream(channel);
+                while (true) {
+                    String requestLine = readRequest(in);
+                    if (requestLine == null) {
+                        return;
+                    }
+                    requests.add(requestLine);
+                    Action action = script.apply(requestLine);
+                    if (action.drop()) {
+                        return;
+                    }
+                    byte[] body = action.body().getBytes(StandardCharsets.UTF_8);
+                    out.write(("HTTP/1.1 " + action.status() + " OK\r\nContent-Type: application/json\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.write(body);
+                    out.flush();
+                    if (action.closeAfter()) {
+                        channel.close();
+                        closed.countDown();
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                // Client went away
+            }
+        }
+
+        // The request line, after consuming headers and body; null at end of stream
+        private static String readRequest(InputStream in) throws IOException {
+            String requestLine = readLine(in);
+            if (requestLine == null) {
+                return null;
+            }
+            int contentLength = 0;
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("content-length:")) {
+                    contentLength = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            in.readNBytes(contentLength);
+            return requestLine;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    return line.toString(StandardCharsets.US_ASCII).replace("\r", "");
+                }
+                line.write(b);
+            }
+            return line.size() > 0 ? line.toString(StandardCharsets.US_ASCII) : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
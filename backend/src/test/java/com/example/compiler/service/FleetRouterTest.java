@@ -0,0 +1,178 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.WorkerExecuteRequest;
+import com.example.compiler.model.WorkerHeartbeat;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A coordinator's router and registry in front of two worker nodes served over HTTP,
+ * one of which misbehaves.
+ */
+class FleetRouterTest {
+
+    private static final String TOKEN = "fleet-token";
+
+    private final FleetProperties properties = new FleetProperties();
+    private final WorkerRegistry registry = new WorkerRegistry();
+    private final FleetRouter router = new FleetRouter();
+    private final List<StubWorker> workers = new ArrayList<>();
+
+    @BeforeEach
+    void startCoordinator() {
+        properties.setRole(FleetProperties.Role.COORDINATOR);
+        properties.setToken(TOKEN);
+        properties.setRequestTimeout(Duration.ofMillis(500));
+        ReflectionTestUtils.setField(registry, "properties", properties);
+        ReflectionTestUtils.setField(router, "properties", properties);
+        ReflectionTestUtils.setField(router, "registry", registry);
+        ReflectionTestUtils.setField(router, "restTemplateBuilder", new RestTemplateBuilder());
+        router.init();
+    }
+
+    @AfterEach
+    void stopWorkers() {
+        workers.forEach(worker -> worker.server.stop(0));
+    }
+
+    @Test
+    void unreachableWorkerIsDroppedAndAnotherRunsTheExecution() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        register("gone", "http://127.0.0.1:" + closedPort, 4);
+        StubWorker healthy = startWorker("healthy", 2, 200, 0);
+
+        ExecuteResponse response = router.execute(request(), null);
+
+        assertThat(response.getStdout()).isEqualTo("ran on healthy");
+        assertThat(response.getMetadata()).containsEntry("worker", "healthy");
+        assertThat(healthy.requests.get()).isEqualTo(1);
+        assertThat(registry.describe()).containsOnlyKeys("healthy");
+    }
+
+    @Test
+    void fullWorkerIsSkippedButKept() throws Exception {
+        StubWorker full = startWorker("full", 4, 503, 0);
+        StubWorker healthy = startWorker("healthy", 2, 200, 0);
+
+        ExecuteResponse response = router.execute(request(), null);
+
+        assertThat(response.getStdout()).isEqualTo("ran on healthy");
+        assertThat(full.requests.get()).isEqualTo(1);
+        assertThat(healthy.requests.get()).isEqualTo(1);
+        assertThat(registry.describe()).containsOnlyKeys("full", "healthy");
+    }
+
+    @Test
+    void workerThatTimesOutIsNotRetriedOrDropped() throws Exception {
+        StubWorker slow = startWorker("slow", 4, 200, 2000);
+        StubWorker healthy = startWorker("healthy", 2, 200, 0);
+
+        ExecuteResponse response = router.execute(request(), null);
+
+        assertThat(response.getError()).contains("did not answer");
+        assertThat(slow.requests.get()).isEqualTo(1);
+        assertThat(healthy.requests.get()).isZero();
+        assertThat(registry.describe()).containsOnlyKeys("slow", "healthy");
+    }
+
+    @Test
+    void otherServerErrorsAreNotRetried() throws Exception {
+        startWorker("broken", 4, 500, 0);
+        StubWorker healthy = startWorker("healthy", 2, 200, 0);
+
+        ExecuteResponse response = router.execute(request(), null);
+
+        assertThat(response.getError()).contains("500");
+        assertThat(healthy.requests.get()).isZero();
+    }
+
+    @Test
+    void capacityIsTheLiveWorkersSlots() throws Exception {
+        startWorker("a", 4, 200, 0);
+        startWorker("b", 2, 200, 0);
+
+        assertThat(registry.getTotalSlots()).isEqualTo(6);
+        registry.deregister("a");
+        assertThat(registry.getTotalSlots()).isEqualTo(2);
+    }
+
+    private static WorkerExecuteRequest request() {
+        WorkerExecuteRequest request = new WorkerExecuteRequest();
+        request.setCode("print(1)");
+        request.setLanguage("python");
+        return request;
+    }
+
+    // Workers with more free slots are chosen first, so the misbehaving one gets more
+    private void register(String id, String url, int slots) {
+        WorkerHeartbeat heartbeat = new WorkerHeartbeat();
+        heartbeat.setWorkerId(id);
+        heartbeat.setUrl(url);
+        heartbeat.setSlots(slots);
+        heartbeat.setFreeSlots(Map.of("python", slots));
+        registry.heartbeat(heartbeat);
+    }
+
+    private StubWorker startWorker(String id, int slots, int status, long delayMillis) throws IOException {
+        StubWorker worker = new StubWorker(id, status, delayMillis);
+        workers.add(worker);
+        register(id, "http://127.0.0.1:" + worker.server.getAddress().getPort(), slots);
+        return worker;
+    }
+
+    /**
+     * Answers /internal/worker/execute with a fixed status after a delay, checking the token.
+     */
+    private static class StubWorker {
+        final HttpServer server;
+        final AtomicInteger requests = new AtomicInteger();
+
+        StubWorker(String id, int status, long delayMillis) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/internal/worker/execute", exchange -> {
+                requests.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                boolean authorized = TOKEN.equals(exchange.getRequestHeaders().getFirst(FleetRouter.TOKEN_HEADER));
+                byte[] body = ("{\"stdout\":\"ran on " + id + "\",\"exitCode\":0}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                if (!authorized || status != 200) {
+                    exchange.sendResponseHeaders(authorized ? status : 403, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+                exchange.close();
+            });
+            server.start();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.compiler.service;
+
+import com.example.compiler.util.OutputListener;
+import com.example.compiler.util.ProcessRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs steps in a plain host directory, as the local backend does, with programs that
+ * tamper with the stats file the measuring shell writes.
+ */
+class HostDirectorySandboxTest {
+
+    // Finds the stats file name in the measuring shell's own command line
+    private static final String STATS_FILE =
+        "f=$(tr '\\0' '\\n' < /proc/$$/cmdline | grep -o '\\.oc-step-[0-9a-f-]*' | tail -n 1); ";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void measuresAStep() throws Exception {
+        ProcessResult result = sandbox().runStep("echo hi", null, null, 10, 4096);
+
+        assertThat(result.getStdout()).isEqualTo("hi\n");
+        assertThat(result.getUserCpuMillis()).isGreaterThanOrEqualTo(0);
+        assertThat(result.getWallTimeMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    @Timeout(value = 20, unit = TimeUnit.SECONDS, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void statsFileReplacedByAFifoIsNotRead() throws Exception {
+        // The measuring shell then blocks on the FIFO until the step times out
+        ProcessResult result = sandbox().runStep(STATS_FILE + "mkfifo $f", null, null, 2, 4096);
+
+        assertThat(result.isTimedOut()).isTrue();
+        assertThat(result.getUserCpuMillis()).isEqualTo(-1);
+    }
+
+    @Test
+    void statsFileReplacedByALinkIsNotFollowed() throws Exception {
+        Path forged = Files.writeString(tempDir.resolve("forged"), "after\n0m0.000s 0m0.000s\n0m9.000s 0m9.000s\n");
+        ProcessResult result = sandbox().runStep(STATS_FILE + "ln -s " + forged + " $f", null, null, 10, 4096);
+
+        assertThat(result.getExitCode()).isZero();
+        assertThat(result.getUserCpuMillis()).isEqualTo(-1);
+        assertThat(forged).exists();
+    }
+
+    @Test
+    void oversizedStatsFileIsCappedAndRemoved() throws Exception {
+        ProcessResult result = sandbox().runStep(STATS_FILE + "head -c 100000000 /dev/zero > $f", null, null, 30, 4096);
+
+        assertThat(result.getExitCode()).isZero();
+        assertThat(result.getUserCpuMillis()).isEqualTo(-1);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files.map(file -> file.getFileName().toString())).noneMatch(name -> name.contains(".oc-step-"));
+        }
+    }
+
+    private HostSandbox sandbox() throws IOException {
+        return new HostSandbox(Files.createDirectory(tempDir.resolve("workspace")));
+    }
+
+    private static class HostSandbox extends HostDirectorySandbox {
+        HostSandbox(Path workDir) {
+            super(workDir);
+        }
+
+        @Override
+        protected ProcessResult execute(String command, InputStream stdin, OutputListener listener, int timeoutSeconds,
+                                        int maxOutputBytes, StepUsage usage) throws IOException, InterruptedException {
+            return ProcessRunner.run(new ProcessBuilder("sh", "-c", command).directory(workDir.toFile()), stdin,
+                listener, timeoutSeconds, maxOutputBytes, null);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.FleetProperties;
+import com.example.compiler.config.JobSchedulerProperties;
+import com.example.compiler.model.ExecuteResponse;
+import com.example.compiler.model.JobStatus;
+import com.example.compiler.model.UserTier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Identical jobs matched when submitted, on a standalone node with two workers and an
+ * execution that blocks until released.
+ */
+class JobServiceTest {
+
+    private static final ExecutionProfile PROFILE = new ExecutionProfile(10, 5, "256m", 1.0, 64, 1024);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StubExecution execution = new StubExecution();
+    private final ExecutionCoalescer coalescer = new ExecutionCoalescer();
+    private final TierScheduler scheduler = new TierScheduler();
+    private final AdmissionLimiter admission = new AdmissionLimiter();
+    private final JobService jobService = new JobService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        ReflectionTestUtils.setField(coalescer, "resultTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(coalescer, "maxCachedResults", 1000);
+        ReflectionTestUtils.setField(coalescer, "meterRegistry", meterRegistry);
+        coalescer.registerMetrics();
+
+        ReflectionTestUtils.setField(scheduler, "properties", new JobSchedulerProperties());
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", meterRegistry);
+        scheduler.init();
+
+        ReflectionTestUtils.setField(admission, "enabled", false);
+        ReflectionTestUtils.setField(admission, "minLimit", 1);
+        ReflectionTestUtils.setField(admission, "queueTimeout", Duration.ofSeconds(20));
+        ReflectionTestUtils.setField(admission, "meterRegistry", meterRegistry);
+
+        ReflectionTestUtils.setField(jobService, "executionService", execution);
+        ReflectionTestUtils.setField(jobService, "coalescer", coalescer);
+        ReflectionTestUtils.setField(jobService, "scheduler", scheduler);
+        ReflectionTestUtils.setField(jobService, "admission", admission);
+        ReflectionTestUtils.setField(jobService, "fleetProperties", new FleetProperties());
+        ReflectionTestUtils.setField(jobService, "workerRegistry", new WorkerRegistry());
+        ReflectionTestUtils.setField(jobService, "workers", 2);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", 100);
+        ReflectionTestUtils.setField(jobService, "retention", Duration.ofMinutes(10));
+        jobService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        execution.release.countDown();
+        jobService.shutdown();
+    }
+
+    @Test
+    void identicalJobsFollowOneRunWithoutQueueing() throws Exception {
+        ExecutionJob leader = jobService.submit(job("print(1)", UserTier.BASIC));
+        List<ExecutionJob> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(jobService.submit(job("print(1)", UserTier.BASIC)));
+        }
+        ExecutionJob other = jobService.submit(job("print(2)", UserTier.BASIC));
+
+        // Both workers are taken by the two distinct programs, and nothing waits behind them
+        assertThat(execution.started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(jobService.getQueueDepth()).isZero();
+        execution.release.countDown();
+
+        assertThat(leader.getCompletion().get(5, TimeUnit.SECONDS).getStdout()).isEqualTo("ran print(1)");
+        other.getCompletion().get(5, TimeUnit.SECONDS);
+        for (ExecutionJob follower : followers) {
+            ExecuteResponse response = follower.getCompletion().get(5, TimeUnit.SECONDS);
+            assertThat(response.getStdout()).isEqualTo("ran print(1)");
+            assertThat(response.getMetadata()).containsEntry("coalesced", "joined");
+            assertThat(follower.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        }
+        assertThat(execution.runs.get()).isEqualTo(2);
+    }
+
+    @Test
+    void followerRunsItselfWhenItsLeaderIsCancelled() throws Exception {
+        // Fill both workers so the leader stays queued
+        jobService.submit(job("busy(1)", UserTier.BASIC));
+        jobService.submit(job("busy(2)", UserTier.BASIC));
+        assertThat(execution.started.await(5, TimeUnit.SECONDS)).isTrue();
+        ExecutionJob leader = jobService.submit(job("print(1)", UserTier.BASIC));
+        ExecutionJob follower = jobService.submit(job("print(1)", UserTier.BASIC));
+        assertThat(jobService.getQueueDepth()).isEqualTo(1);
+
+        jobService.cancel(leader);
+        execution.release.countDown();
+
+        ExecuteResponse response = follower.getCompletion().get(5, TimeUnit.SECONDS);
+        assertThat(response.getStdout()).isEqualTo("ran print(1)");
+        assertThat(response.getMetadata()).doesNotContainKey("coalesced");
+        assertThat(leader.getStatus()).isEqualTo(JobStatus.CANCELLED);
+    }
+
+    @Test
+    void queuedLeaderOfAnotherTierIsNotFollowed() throws Exception {
+        jobService.submit(job("busy(1)", UserTier.BASIC));
+        jobService.submit(job("busy(2)", UserTier.BASIC));
+        assertThat(execution.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        jobService.submit(job("print(1)", UserTier.ANONYMOUS));
+        jobService.submit(job("print(1)", UserTier.MASTER));
+
+        assertThat(jobService.getQueueDepth()).isEqualTo(2);
+    }
+
+    @Test
+    void deterministicJobIsAnsweredFromTheCache() throws Exception {
+        execution.release.countDown();
+        ExecutionJob first = job("print(1)", UserTier.BASIC);
+        first.setDeterministic(true);
+        jobService.submit(first).getCompletion().get(5, TimeUnit.SECONDS);
+        // The stub bypasses the coalescer, so cache its result as a real run would
+        coalescer.execute("python", "print(1)", null, 1024, PROFILE, false, true,
+            () -> new ExecuteResponse("ran print(1)", "", 0, 1));
+
+        ExecutionJob second = job("print(1)", UserTier.BASIC);
+        second.setDeterministic(true);
+        ExecuteResponse response = jobService.execute(second);
+
+        assertThat(response.getMetadata()).containsEntry("coalesced", "cached");
+        assertThat(execution.runs.get()).isEqualTo(1);
+    }
+
+    private static ExecutionJob job(String code, UserTier tier) {
+        return new ExecutionJob("owner", code, "python", null, null, tier, null);
+    }
+
+    /**
+     * Runs nothing; each execution waits for the release latch and echoes the code.
+     */
+    private static class StubExecution extends ExecutionService {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public ExecuteResponse executeCode(String code, String language, String input, String userId, UserTier tier,
+                                           Integer maxOutputSize, boolean deterministic, boolean compileOnly) {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ExecuteResponse.error("Execution interrupted");
+            }
+            return new ExecuteResponse("ran " + code, "", 0, 1);
+        }
+
+        @Override
+        String coalescingKey(ExecutionJob job) {
+            return ExecutionCoalescer.key(job.getLanguage(), job.getCode(), job.getInput(), 1024, PROFILE,
+                job.isCompileOnly());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.compiler.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The worker sources shipped under {@code resources/workers}, which the build itself never
+ * compiles, and their protocol spoken through the local backend. The Python and Node
+ * workers kill every other process of their user between jobs, so here they run in a PID
+ * namespace of their own; without one, or without the interpreter, their tests are skipped.
+ */
+@Timeout(value = 120, unit = TimeUnit.SECONDS, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+class LanguageWorkerTest {
+
+    private static final String ISOLATED = "unshare --user --map-root-user --pid --fork --mount-proc ";
+    private static final String JAVA_OPTIONS =
+        "-XX:+UseSerialGC -Xmx64m -Xss8m -XX:CompressedClassSpaceSize=64m -XX:ReservedCodeCacheSize=32m";
+
+    private final LocalSandboxBackend backend = new LocalSandboxBackend();
+
+    @BeforeEach
+    void setUp() {
+        WorkspaceAllocator workspaces = new WorkspaceAllocator();
+        ReflectionTestUtils.setField(workspaces, "mode", "disk");
+        ReflectionTestUtils.setField(workspaces, "meterRegistry", new SimpleMeterRegistry());
+        workspaces.init();
+
+        ReflectionTestUtils.setField(backend, "workspaceAllocator", workspaces);
+        ReflectionTestUtils.setField(backend, "maxMemoryMb", 2048);
+        ReflectionTestUtils.setField(backend, "maxFileSizeMb", 16);
+        ReflectionTestUtils.setField(backend, "maxOpenFiles", 256);
+        backend.start(Map.of());
+    }
+
+    @Test
+    void javaWorkerRunsJobsWithinTheirLimits() throws Exception {
+        exercise("JavaWorker.java",
+            "java " + JAVA_OPTIONS + " -Dfile.encoding=UTF-8 -Djava.security.manager=allow JavaWorker.java 100",
+            "public class Main { public static void main(String[] a) {"
+                + " System.out.println(new java.util.Scanner(System.in).nextLine()); } }",
+            "public class Main { public static void main(String[] a) { while (true) { } } }",
+            "public class Main { public static void main(String[] a) { System.out.print(\"x\".repeat(100000)); } }");
+    }
+
+    @Test
+    void pythonWorkerRunsJobsWithinTheirLimits() throws Exception {
+        assumeIsolated("python3");
+        exercise("python_worker.py", ISOLATED + "python3 python_worker.py 100",
+            "print(input())",
+            "while True:\n    pass\n",
+            "print('x' * 100000)");
+    }
+
+    @Test
+    void nodeWorkerRunsJobsWithinTheirLimits() throws Exception {
+        assumeIsolated("node");
+        exercise("node_worker.js", ISOLATED + "node node_worker.js 100",
+            "console.log(require('fs').readFileSync(0, 'utf8').trim())",
+            "for (;;) {}",
+            "console.log('x'.repeat(100000))");
+    }
+
+    @Test
+    void javaWorkerCompilesWithoutWarnings(@TempDir Path classes) throws IOException {
+        String source = workerSource("JavaWorker.java");
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///JavaWorker.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        boolean compiled = compiler.getTask(null, null, diagnostics,
+            List.of("-Xlint:all", "-Werror", "-d", classes.toString()), null, List.of(file)).call();
+
+        assertThat(diagnostics.getDiagnostics()).extracting(Diagnostic::toString).isEmpty();
+        assertThat(compiled).isTrue();
+    }
+
+    /**
+     * Echoes a line of stdin, then runs a program past its time limit and one past its
+     * output cap, starting a new worker whenever the last one may not be reused.
+     */
+    private void exercise(String fileName, String command, String echo, String spin, String flood) throws Exception {
+        byte[] source = workerSource(fileName).getBytes(StandardCharsets.UTF_8);
+        LanguageWorker worker = start(fileName, source, command);
+        try {
+            ProcessResult result = worker.execute(bytes(echo), bytes("hi\n"), 10, 4096);
+            assertThat(result.getStdout()).isEqualTo("hi\n");
+            assertThat(result.getExitCode()).isZero();
+            assertThat(result.isTimedOut()).isFalse();
+
+            result = worker.execute(bytes(spin), new byte[0], 1, 4096);
+            assertThat(result.isTimedOut()).isTrue();
+
+            if (!worker.isReusable()) {
+                worker.destroy();
+                worker = start(fileName, source, command);
+            }
+            result = worker.execute(bytes(flood), new byte[0], 10, 1000);
+            assertThat(result.isOutputLimitExceeded()).isTrue();
+            assertThat(result.getStdout().length()).isLessThanOrEqualTo(1000);
+            assertThat(result.getStdoutTruncatedBytes()).isPositive();
+        } finally {
+            worker.destroy();
+        }
+    }
+
+    private LanguageWorker start(String fileName, byte[] source, String command) throws Exception {
+        Sandbox sandbox = backend.openWorkerSandbox(null, null);
+        sandbox.writeFile(fileName, source);
+        return LanguageWorker.start(fileName, sandbox, command, 100, 60);
+    }
+
+    private static void assumeIsolated(String interpreter) throws Exception {
+        assumeTrue(run("command -v " + interpreter), interpreter + " is not installed");
+        assumeTrue(run(ISOLATED + "true"), "no PID namespace available");
+    }
+
+    private static boolean run(String command) throws Exception {
+        Process process = new ProcessBuilder("sh", "-c", command)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String workerSource(String fileName) throws IOException {
+        try (InputStream in = LanguageWorkerTest.class.getResourceAsStream("/workers/" + fileName)) {
+            assertThat(in).as(fileName).isNotNull();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
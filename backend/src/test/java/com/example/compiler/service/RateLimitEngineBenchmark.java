@@ -0,0 +1,142 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.DistributedRateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-node rate limit checks with 100k clients, as many as app.rate-limit.max-clients
+ * holds by default, against the timestamp queues the limits were counted in before. With
+ * the shipped burst capacity most clients are soon refused, so that limit measures the
+ * refusing path; MASTER's hourly limit of 200 mostly measures the allowing path.
+ *
+ * <p>{@code mvn -P benchmark test-compile exec:exec -Dbenchmark=RateLimitEngineBenchmark},
+ * with JMH options such as {@code -t 4} appended to the benchmark name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+// The queues hold up to 200 timestamps for each of the 100k clients
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class RateLimitEngineBenchmark {
+
+    private static final int CLIENTS = 100_000;
+
+    @Param({"20", "200"})
+    private int limit;
+
+    private RateLimitEngine engine;
+    private String[] keys;
+    private RateLimitEngine.SlidingWindow[] windows;
+    private QueueRateLimiter queues;
+
+    @Setup
+    public void setUp() {
+        DistributedRateLimiter distributed = new DistributedRateLimiter();
+        ReflectionTestUtils.setField(distributed, "properties", new DistributedRateLimitProperties());
+
+        engine = new RateLimitEngine();
+        ReflectionTestUtils.setField(engine, "requestsPerMinute", 10);
+        ReflectionTestUtils.setField(engine, "burstCapacity", limit);
+        ReflectionTestUtils.setField(engine, "maxClients", CLIENTS);
+        ReflectionTestUtils.setField(engine, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "distributed", distributed);
+        engine.init();
+
+        keys = new String[CLIENTS];
+        windows = new RateLimitEngine.SlidingWindow[CLIENTS];
+        for (int i = 0; i < CLIENTS; i++) {
+            keys[i] = "ip:10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff);
+            engine.check(keys[i], null, RateLimitPolicy.REQUESTS);
+            // Twelve buckets and one spare, like the REQUESTS window
+            windows[i] = new RateLimitEngine.SlidingWindow(13);
+        }
+        queues = new QueueRateLimiter();
+        for (String key : keys) {
+            queues.isRateLimited(key, limit);
+        }
+    }
+
+    /**
+     * Each thread walks the clients from its own starting point.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next = (int) (Thread.currentThread().getId() * 7919 % CLIENTS);
+
+        int advance() {
+            int current = next;
+            next = current + 1 == CLIENTS ? 0 : current + 1;
+            return current;
+        }
+    }
+
+    // The check the authentication filter makes on every request
+    @Benchmark
+    public int checkRequest(Cursor cursor) {
+        return engine.tryAcquire(keys[cursor.advance()], null, RateLimitPolicy.REQUESTS);
+    }
+
+    @Benchmark
+    public RateLimitEngine.Decision checkRequestDecision(Cursor cursor) {
+        return engine.check(keys[cursor.advance()], null, RateLimitPolicy.REQUESTS);
+    }
+
+    @Benchmark
+    public boolean beforeTimestampQueue(Cursor cursor) {
+        return queues.isRateLimited(keys[cursor.advance()], limit);
+    }
+
+    // The window alone, without the client lookup and metrics
+    @Benchmark
+    public int slidingWindowTryAcquire(Cursor cursor) {
+        long slot = System.currentTimeMillis() / 5000;
+        return windows[cursor.advance()].tryAcquire(slot, limit);
+    }
+
+    /**
+     * RateLimitService as it was before the sliding windows, with the limit passed in
+     * rather than read from the tier.
+     */
+    static class QueueRateLimiter {
+        private final ConcurrentHashMap<String, ConcurrentLinkedQueue<LocalDateTime>> userRequests = new ConcurrentHashMap<>();
+
+        boolean isRateLimited(String userId, int limit) {
+            ConcurrentLinkedQueue<LocalDateTime> requests = userRequests.computeIfAbsent(userId, k -> new ConcurrentLinkedQueue<>());
+
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime oneHourAgo = now.minus(1, ChronoUnit.HOURS);
+
+            // Remove requests older than 1 hour
+            requests.removeIf(timestamp -> timestamp.isBefore(oneHourAgo));
+
+            // Check if user has exceeded rate limit
+            if (requests.size() >= limit) {
+                return true;
+            }
+
+            // Add current request
+            requests.offer(now);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.DistributedRateLimitProperties;
+import com.example.compiler.model.UserTier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One node's engine with distributed limits disabled, so only persistent policies reach
+ * the in-memory stand-in for the window collection.
+ */
+class RateLimitEngineTest {
+
+    private final DistributedRateLimiterTest.InMemoryWindows windows = new DistributedRateLimiterTest.InMemoryWindows();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void windowAdmitsExactlyTheLimitUnderContention() throws Exception {
+        RateLimitEngine.SlidingWindow window = new RateLimitEngine.SlidingWindow(13);
+        int threads = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int admitted = 0;
+                    for (int i = 0; i < 20; i++) {
+                        if (window.tryAcquire(1000, 200) >= 0) {
+                            admitted++;
+                        }
+                    }
+                    return admitted;
+                }));
+            }
+            start.countDown();
+            int admitted = 0;
+            for (Future<Integer> result : results) {
+                admitted += result.get(30, TimeUnit.SECONDS);
+            }
+
+            assertThat(admitted).isEqualTo(200);
+            // Every refused hit was taken back
+            assertThat(window.count(1000)).isEqualTo(200);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void hitsLeaveTheWindowOnceItHasMovedPast() {
+        RateLimitEngine.SlidingWindow window = new RateLimitEngine.SlidingWindow(13);
+        for (int i = 0; i < 5; i++) {
+            window.tryAcquire(1000, 5);
+        }
+
+        assertThat(window.tryAcquire(1012, 5)).isEqualTo(-1);
+        assertThat(window.tryAcquire(1013, 5)).isEqualTo(4);
+        // A hit from a slot that has left the window is not taken back from the new one
+        window.release(1000);
+        assertThat(window.count(1013)).isEqualTo(1);
+    }
+
+    @Test
+    void sharesOutliveARestart() {
+        RateLimitEngine engine = engine();
+        for (int i = 0; i < 3; i++) {
+            assertThat(engine.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES).isAllowed()).isTrue();
+        }
+
+        RateLimitEngine restarted = engine();
+
+        assertThat(restarted.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES).isAllowed()).isFalse();
+        assertThat(restarted.peek("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES).getRemaining()).isZero();
+    }
+
+    @Test
+    void refusedCheckGivesEachHitBackWhereItWasCounted() {
+        RateLimitEngine engine = engine();
+        for (int i = 0; i < 5; i++) {
+            engine.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.EXECUTIONS);
+        }
+
+        // Shares are counted in the database and executions on this node
+        RateLimitEngine.Decision decision = engine.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES,
+            RateLimitPolicy.EXECUTIONS);
+
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(decision.getPolicy()).isEqualTo(RateLimitPolicy.EXECUTIONS);
+        assertThat(engine.peek("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES).getRemaining()).isEqualTo(3);
+
+        for (int i = 0; i < 3; i++) {
+            engine.check("ip:2", UserTier.ANONYMOUS, RateLimitPolicy.SHARES);
+        }
+        decision = engine.check("ip:2", UserTier.ANONYMOUS, RateLimitPolicy.EXECUTIONS, RateLimitPolicy.SHARES);
+
+        assertThat(decision.getPolicy()).isEqualTo(RateLimitPolicy.SHARES);
+        assertThat(engine.peek("ip:2", UserTier.ANONYMOUS, RateLimitPolicy.EXECUTIONS).getRemaining()).isEqualTo(5);
+    }
+
+    @Test
+    void batchCountsEveryHitOrNone() {
+        RateLimitEngine engine = engine();
+
+        RateLimitEngine.Decision decision = engine.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.EXECUTIONS, 3);
+        assertThat(decision.isAllowed()).isTrue();
+        assertThat(decision.getRemaining()).isEqualTo(2);
+
+        decision = engine.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.EXECUTIONS, 3);
+        assertThat(decision.isAllowed()).isFalse();
+        assertThat(decision.getRemaining()).isEqualTo(2);
+        assertThat(engine.peek("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.EXECUTIONS).getRemaining()).isEqualTo(2);
+
+        // Persistent policies give back to the database what a refused batch leased
+        assertThat(engine.check("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES, 4).isAllowed()).isFalse();
+        assertThat(engine.peek("ip:1", UserTier.ANONYMOUS, RateLimitPolicy.SHARES).getRemaining()).isEqualTo(3);
+    }
+
+    @Test
+    void clientOnlySendingRequestsHoldsNoOtherPolicysEntry() {
+        RateLimitEngine engine = engine();
+        for (int i = 0; i < 100; i++) {
+            engine.check("ip:" + i, null, RateLimitPolicy.REQUESTS);
+        }
+
+        assertThat(storeSize("rate-limits-requests")).isEqualTo(100);
+        assertThat(storeSize("rate-limits-shares")).isZero();
+        assertThat(storeSize("rate-limits-executions")).isZero();
+    }
+
+    private RateLimitEngine engine() {
+        DistributedRateLimiter distributed = new DistributedRateLimiter();
+        ReflectionTestUtils.setField(distributed, "properties", new DistributedRateLimitProperties());
+        ReflectionTestUtils.setField(distributed, "repository", windows);
+        ReflectionTestUtils.setField(distributed, "meterRegistry", meterRegistry);
+        distributed.init();
+
+        RateLimitEngine engine = new RateLimitEngine();
+        ReflectionTestUtils.setField(engine, "requestsPerMinute", 10);
+        ReflectionTestUtils.setField(engine, "burstCapacity", 20);
+        ReflectionTestUtils.setField(engine, "maxClients", 100_000);
+        ReflectionTestUtils.setField(engine, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(engine, "distributed", distributed);
+        engine.init();
+        return engine;
+    }
+
+    private double storeSize(String store) {
+        return meterRegistry.get("limiter.store.size").tag("store", store).gauge().value();
+    }
+}
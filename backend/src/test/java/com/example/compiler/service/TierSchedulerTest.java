@@ -0,0 +1,135 @@
+package com.example.compiler.service;
+
+import com.example.compiler.config.JobSchedulerProperties;
+import com.example.compiler.model.UserTier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Order in which queued jobs of different tiers are handed to workers, with the shipped
+ * weights unless a test says otherwise.
+ */
+class TierSchedulerTest {
+
+    private final JobSchedulerProperties properties = new JobSchedulerProperties();
+    private final TierScheduler scheduler = new TierScheduler();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "properties", properties);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        scheduler.init();
+    }
+
+    @Test
+    void masterJobsGoFirst() {
+        offer(UserTier.ANONYMOUS, UserTier.BASIC, UserTier.ADVANCED, UserTier.MASTER);
+
+        assertThat(scheduler.poll().getTier()).isEqualTo(UserTier.MASTER);
+    }
+
+    @Test
+    void otherTiersShareWorkersByWeight() {
+        for (int i = 0; i < 100; i++) {
+            offer(UserTier.ADVANCED, UserTier.BASIC, UserTier.ANONYMOUS);
+        }
+
+        Map<UserTier, Integer> served = runNext(70);
+
+        // Weights 4 : 2 : 1
+        assertThat(served.get(UserTier.ADVANCED)).isEqualTo(40);
+        assertThat(served.get(UserTier.BASIC)).isEqualTo(20);
+        assertThat(served.get(UserTier.ANONYMOUS)).isEqualTo(10);
+    }
+
+    @Test
+    void tierBackFromIdleGetsNoCreditForTheTimeItWasAway() {
+        for (int i = 0; i < 200; i++) {
+            offer(UserTier.BASIC);
+        }
+        runNext(100);
+        for (int i = 0; i < 100; i++) {
+            offer(UserTier.ADVANCED);
+        }
+
+        Map<UserTier, Integer> served = runNext(30);
+
+        assertThat(served.get(UserTier.ADVANCED)).isEqualTo(20);
+        assertThat(served.get(UserTier.BASIC)).isEqualTo(10);
+    }
+
+    @Test
+    void tierAtItsConcurrencyCapWaitsWhileOthersRun() {
+        properties.setMaxConcurrent(new EnumMap<>(Map.of(UserTier.ANONYMOUS, 2)));
+        offer(UserTier.ANONYMOUS, UserTier.ANONYMOUS, UserTier.ANONYMOUS);
+
+        ExecutionJob first = scheduler.poll();
+        assertThat(scheduler.poll()).isNotNull();
+        assertThat(scheduler.poll()).isNull();
+
+        offer(UserTier.BASIC);
+        assertThat(scheduler.poll().getTier()).isEqualTo(UserTier.BASIC);
+        scheduler.complete(first);
+        assertThat(scheduler.poll().getTier()).isEqualTo(UserTier.ANONYMOUS);
+    }
+
+    @Test
+    void starvedJobRunsBeforeMaster() throws Exception {
+        properties.setMaxWait(Duration.ofMillis(20));
+        offer(UserTier.ANONYMOUS);
+        Thread.sleep(50);
+        offer(UserTier.MASTER);
+
+        assertThat(scheduler.poll().getTier()).isEqualTo(UserTier.ANONYMOUS);
+        assertThat(scheduler.poll().getTier()).isEqualTo(UserTier.MASTER);
+    }
+
+    @Test
+    void onlyTierQueuedIsServedWhateverItsWeight() {
+        offer(UserTier.ANONYMOUS, UserTier.ANONYMOUS);
+
+        assertThat(runNext(2).get(UserTier.ANONYMOUS)).isEqualTo(2);
+        assertThat(scheduler.poll()).isNull();
+    }
+
+    @Test
+    void fullQueueRejectsAndExpiredJobsAreRemoved() {
+        offer(UserTier.BASIC, UserTier.ADVANCED);
+        assertThatThrownBy(() -> scheduler.offer(job(UserTier.BASIC), 2))
+            .isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(scheduler.removeQueuedBefore(System.nanoTime())).hasSize(2);
+        assertThat(scheduler.getQueueDepth()).isZero();
+    }
+
+    private void offer(UserTier... tiers) {
+        for (UserTier tier : tiers) {
+            scheduler.offer(job(tier), Integer.MAX_VALUE);
+        }
+    }
+
+    // Jobs served by the next count polls, each completing at once
+    private Map<UserTier, Integer> runNext(int count) {
+        Map<UserTier, Integer> served = new EnumMap<>(UserTier.class);
+        for (int i = 0; i < count; i++) {
+            ExecutionJob job = scheduler.poll();
+            served.merge(job.getTier(), 1, Integer::sum);
+            scheduler.complete(job);
+        }
+        return served;
+    }
+
+    private static ExecutionJob job(UserTier tier) {
+        return new ExecutionJob("owner", "print(1)", "python", null, null, tier, null);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.compiler.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Expiry by rotation, promotion of entries in use, and eviction when full.
+ */
+class ExpiringStoreTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void idleEntryIsDroppedAfterTheIdleTimeout() throws Exception {
+        ExpiringStore<String, Object> store = store(Duration.ofMillis(200), 100);
+        Object first = store.get("a");
+
+        // Kept for at most 1.25 idle timeouts after its last use
+        Thread.sleep(300);
+
+        assertThat(store.getIfPresent("a")).isNull();
+        assertThat(store.get("a")).isNotSameAs(first);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void entryInUseIsPromotedAndKept() throws Exception {
+        ExpiringStore<String, Object> store = store(Duration.ofMillis(200), 100);
+        Object first = store.get("a");
+
+        // Several rotations, each after the entry was last used
+        for (int i = 0; i < 12; i++) {
+            Thread.sleep(50);
+            assertThat(store.get("a")).isSameAs(first);
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void fullStoreDropsTheLeastRecentlyUsedFirst() {
+        ExpiringStore<String, Object> store = store(Duration.ofHours(1), 3);
+        Object a = store.get("a");
+        store.get("b");
+        store.get("c");
+        // Over the maximum, so everything so far moves to the oldest segment
+        store.get("d");
+        assertThat(store.getIfPresent("a")).isSameAs(a);
+
+        store.get("e");
+
+        assertThat(store.getIfPresent("a")).isSameAs(a);
+        assertThat(store.getIfPresent("b")).isNull();
+        assertThat(store.getIfPresent("d")).isNull();
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void removedEntryIsCreatedAgain() {
+        ExpiringStore<String, Object> store = store(Duration.ofHours(1), 100);
+        Object first = store.get("a");
+
+        store.remove("a");
+
+        assertThat(store.size()).isZero();
+        assertThat(store.get("a")).isNotSameAs(first);
+    }
+
+    private ExpiringStore<String, Object> store(Duration idleTimeout, int maxEntries) {
+        return new ExpiringStore<>("test", idleTimeout, maxEntries, key -> {
+            loads.incrementAndGet();
+            return new Object();
+        }, new SimpleMeterRegistry());
+    }
+}
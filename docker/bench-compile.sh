@@ -0,0 +1,104 @@
+#!/bin/bash
+# Times the compile step of each compiled language inside its sandbox image, with the
+# same command and limits the backend uses, so image changes can be compared.
+#
+# Usage: ./bench-compile.sh [tag] [runs]
+#   tag   image tag to measure (default: latest)
+#   runs  compiles per language; the median is reported (default: 5)
+#
+# To compare before and after an image change, build the old Dockerfiles with
+# e.g. "docker build -t online-compiler/cpp:baseline ..." and run this with both tags.
+
+TAG=${1:-latest}
+RUNS=${2:-5}
+MEMORY=${MEMORY:-128m}
+
+if ! docker info > /dev/null 2>&1; then
+    echo "Error: Docker is not running. Please start Docker and try again."
+    exit 1
+fi
+
+WORKDIR=$(mktemp -d)
+trap 'rm -rf "$WORKDIR"' EXIT
+
+cat > "$WORKDIR/main.cpp" <<'EOF'
+#include <bits/stdc++.h>
+using namespace std;
+int main() { vector<int> v{3, 1, 2}; sort(v.begin(), v.end()); for (int x : v) cout << x << "\n"; }
+EOF
+cat > "$WORKDIR/main.c" <<'EOF'
+#include <stdio.h>
+int main(void) { printf("hello\n"); return 0; }
+EOF
+cat > "$WORKDIR/main.go" <<'EOF'
+package main
+
+import (
+	"fmt"
+	"sort"
+	"strings"
+)
+
+func main() {
+	v := []string{"c", "a", "b"}
+	sort.Strings(v)
+	fmt.Println(strings.Join(v, " "))
+}
+EOF
+cat > "$WORKDIR/main.rs" <<'EOF'
+use std::collections::HashMap;
+fn main() { let mut m = HashMap::new(); m.insert("a", 1); println!("{:?}", m); }
+EOF
+cat > "$WORKDIR/Main.java" <<'EOF'
+public class Main { public static void main(String[] args) { System.out.println("hello"); } }
+EOF
+cat > "$WORKDIR/main.ts" <<'EOF'
+const xs: number[] = [3, 1, 2];
+console.log(xs.sort().join(" "));
+EOF
+cat > "$WORKDIR/Program.cs" <<'EOF'
+using System;
+class Program { static void Main() { Console.WriteLine("hello"); } }
+EOF
+# The sandbox user must be able to write build output
+chmod -R a+rwX "$WORKDIR"
+
+# language|image|cpus|compile command, as in ExecutionService and application.yml
+BENCHMARKS=(
+    "cpp|cpp|0.5|g++ -o main main.cpp"
+    "c|cpp|0.5|gcc -o main main.c"
+    "go|go|1.0|go build -o main main.go"
+    "rust|rust|1.0|rustc -C prefer-dynamic -C link-arg=-Wl,-rpath,\$(rustc --print sysroot)/lib main.rs"
+    "rust-static|rust|1.0|rustc main.rs"
+    "java|java|0.5|javac Main.java"
+    "typescript|typescript|0.5|tsc main.ts"
+    "csharp|csharp|0.5|mcs Program.cs"
+)
+
+printf "%-12s %-38s %10s\n" "LANGUAGE" "IMAGE" "MEDIAN MS"
+for entry in "${BENCHMARKS[@]}"; do
+    IFS='|' read -r language image cpus command <<< "$entry"
+    image="online-compiler/$image:$TAG"
+    if ! docker image inspect "$image" > /dev/null 2>&1; then
+        printf "%-12s %-38s %10s\n" "$language" "$image" "no image"
+        continue
+    fi
+    times=()
+    for ((i = 0; i < RUNS; i++)); do
+        # Timed inside the container so container start-up is not counted
+        ms=$(docker run --rm --network=none --memory="$MEMORY" --cpus="$cpus" --pids-limit=50 \
+            --tmpfs=/tmp:exec -v "$WORKDIR:/workspace" -w /workspace "$image" \
+            sh -c "start=\$(date +%s%N); { $command; } > /dev/null 2>&1 || exit 1; echo \$(( (\$(date +%s%N) - start) / 1000000 ))")
+        if [ $? -ne 0 ] || [ -z "$ms" ]; then
+            times=()
+            break
+        fi
+        times+=("$ms")
+    done
+    if [ ${#times[@]} -eq 0 ]; then
+        printf "%-12s %-38s %10s\n" "$language" "$image" "failed"
+        continue
+    fi
+    median=$(printf "%s\n" "${times[@]}" | sort -n | sed -n "$(( (${#times[@]} + 1) / 2 ))p")
+    printf "%-12s %-38s %10s\n" "$language" "$image" "$median"
+done
@@ -12,6 +12,16 @@ RUN apt-get update && \
     && rm -rf /var/lib/apt/lists/* \
     && apt-get clean
 
+# Precompile <bits/stdc++.h> next to the header so "g++ -o main main.cpp" picks it up.
+# GCC only uses a .gch built with the same options, so this must match the compile
+# command in ExecutionService; the PCH is ignored (not an error) if they drift apart.
+RUN header="$(echo '#include <bits/stdc++.h>' | g++ -x c++ -H -fsyntax-only - 2>&1 | grep -m1 'bits/stdc++.h$' | sed 's/^\.* //')" && \
+    g++ -x c++-header "$header" -o "$header.gch" && \
+    chmod a+r "$header.gch" && \
+    echo '#include <bits/stdc++.h>' > /tmp/pch-check.cpp && \
+    g++ -Winvalid-pch -H -fsyntax-only /tmp/pch-check.cpp 2>&1 | grep -q '^! .*stdc++.h.gch$' && \
+    rm /tmp/pch-check.cpp
+
 # Set resource limits
 RUN echo "coderunner soft nproc 50" >> /etc/security/limits.conf && \
     echo "coderunner hard nproc 100" >> /etc/security/limits.conf && \
@@ -5,9 +5,19 @@ WORKDIR /workspace
 
 # Set Go environment for optimized execution
 ENV GOMAXPROCS=1
-ENV GODEBUG=madvdontneed=1
+ENV GODEBUG=madvdontneed=1,installgoroot=all
 ENV CGO_ENABLED=0
 
+# Toolchain caches. The standard library is installed precompiled into GOROOT (see
+# below), so each build only compiles main.go and links. The build cache itself must
+# stay writable, so it lives on the container's /tmp. A shared module cache can be
+# mounted read-only at GOMODCACHE through app.execution.toolchain-caches; there is no
+# network in the sandbox, so modules are never downloaded.
+ENV GOCACHE=/tmp/go-build
+ENV GOMODCACHE=/opt/toolchain-cache/go/mod
+ENV GOPROXY=off
+ENV GOTOOLCHAIN=local
+
 # Install necessary packages and clean up
 RUN apt-get update && \
     apt-get install -y --no-install-recommends \
@@ -23,6 +33,13 @@ RUN groupadd -r coderunner && useradd -r -g coderunner coderunner
 RUN mkdir -p /home/coderunner/.cache/go-build && \
     chown -R coderunner:coderunner /home/coderunner
 
+# Precompile the standard library with the sandbox's build settings (installgoroot=all
+# puts the archives in GOROOT/pkg, as before Go 1.20), read-only for coderunner
+RUN go install std && \
+    mkdir -p "$GOMODCACHE" && \
+    chmod -R a+rX "$(go env GOROOT)/pkg" /opt/toolchain-cache && \
+    rm -rf "$GOCACHE"
+
 # Set resource limits
 RUN echo "coderunner soft nproc 50" >> /etc/security/limits.conf && \
     echo "coderunner hard nproc 100" >> /etc/security/limits.conf && \